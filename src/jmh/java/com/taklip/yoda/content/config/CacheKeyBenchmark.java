@@ -0,0 +1,81 @@
+package com.taklip.yoda.content.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.taklip.yoda.content.service.ContentListQueries;
+
+/**
+ * Key generation and L1 lookup of a page on the hit path, with the string keys built
+ * by the former key generator and with structured keys
+ *
+ * Run with ./gradlew jmh -PjmhIncludes=CacheKeyBenchmark, adding -prof gc to the JMH
+ * arguments to report the bytes allocated per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CacheKeyBenchmark {
+    private final CustomCacheKeyGenerator keyGenerator = new CustomCacheKeyGenerator();
+    private Cache<Object, Object> stringKeyCache;
+    private Cache<Object, Object> structuredKeyCache;
+    private ContentListQueries target;
+    private Method method;
+    private Integer offset;
+    private Integer limit;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchMethodException {
+        target = new ContentListQueries();
+        method = ContentListQueries.class.getMethod("getFeaturedContents", Integer.class, Integer.class);
+        offset = 0;
+        limit = 10;
+
+        stringKeyCache = Caffeine.newBuilder().maximumSize(1000).build();
+        structuredKeyCache = Caffeine.newBuilder().maximumSize(1000).build();
+        for (int page = 0; page < 100; page++) {
+            stringKeyCache.put(stringKey(target, method, page, limit), "page " + page);
+            structuredKeyCache.put(keyGenerator.generate(target, method, page, limit), "page " + page);
+        }
+    }
+
+    @Benchmark
+    public Object stringKeyHit() {
+        return stringKeyCache.getIfPresent(stringKey(target, method, offset, limit));
+    }
+
+    @Benchmark
+    public Object structuredKeyHit() {
+        return structuredKeyCache.getIfPresent(keyGenerator.generate(target, method, offset, limit));
+    }
+
+    /**
+     * The key the generator used to build, from the class, method and arguments
+     */
+    private static String stringKey(Object target, Method method, Object... params) {
+        StringBuilder keyBuilder = new StringBuilder();
+        keyBuilder.append(target.getClass().getSimpleName());
+        keyBuilder.append(".");
+        keyBuilder.append(method.getName());
+        keyBuilder.append("(");
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                keyBuilder.append(",");
+            }
+            keyBuilder.append(params[i] != null ? params[i].toString() : "null");
+        }
+        keyBuilder.append(")");
+        return keyBuilder.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.taklip.yoda.content.config;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.taklip.yoda.content.dto.ContentDTO;
+import com.taklip.yoda.content.dto.ContentPageResponse;
+
+/**
+ * Encode and decode time of a content page with the JSON and binary L2 codecs
+ *
+ * The encoded size of each codec is printed once per trial. Run with
+ * ./gradlew jmh -PjmhIncludes=ContentCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContentCodecBenchmark {
+
+    @Param({"json", "binary"})
+    private String codec;
+
+    @Param({"1", "20"})
+    private int pageSize;
+
+    private RedisSerializer<Object> serializer;
+    private ContentPageResponse page;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        objectMapper.activateDefaultTyping(objectMapper.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        RedisSerializer<Object> json = new GenericJackson2JsonRedisSerializer(objectMapper);
+        serializer = "binary".equals(codec) ? new ContentBinaryRedisSerializer(json) : json;
+
+        List<ContentDTO> records = new ArrayList<>();
+        for (long id = 1; id <= pageSize; id++) {
+            records.add(newContent(id));
+        }
+        page = new ContentPageResponse(records, 1000, 1, pageSize, 1000 / pageSize, null, false);
+        encoded = serializer.serialize(page);
+    }
+
+    @TearDown(Level.Trial)
+    public void reportSize() {
+        System.out.printf("%n%s codec, %d records: %d bytes%n", codec, pageSize, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return serializer.serialize(page);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return serializer.deserialize(encoded);
+    }
+
+    private static ContentDTO newContent(long id) {
+        ContentDTO content = new ContentDTO();
+        content.setId(id);
+        content.setTitle("How to tune a two-level cache, part " + id);
+        content.setShortDescription("A short summary of the article shown in content lists");
+        content.setDescription("The full body of the article. ".repeat(20));
+        content.setPageTitle("Two-level cache tuning " + id);
+        content.setFeaturedImage("/images/content/" + id + ".jpg");
+        content.setPublished(true);
+        content.setFeatureData(id % 2 == 0);
+        content.setCategoryId(3L);
+        content.setSiteId(1);
+        content.setNaturalKey("two-level-cache-tuning-" + id);
+        content.setHitCounter(1234);
+        content.setHomePage(false);
+        content.setCreateTime(LocalDateTime.of(2024, 5, 1, 10, 30));
+        content.setUpdateTime(LocalDateTime.of(2024, 5, 2, 11, 0));
+        content.setPublishDate(LocalDateTime.of(2024, 5, 1, 12, 0));
+        content.setCreateBy(9L);
+        content.setUpdateBy(9L);
+        content.setScore(5);
+        return content;
+    }
+}
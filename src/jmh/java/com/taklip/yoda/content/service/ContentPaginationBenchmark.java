@@ -0,0 +1,133 @@
+package com.taklip.yoda.content.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Latency of a page of published content ids by depth, read by offset as the offset
+ * endpoints do and after a cursor as their cursor variants do
+ *
+ * Runs the statements {@link ContentListQueries} generates against an in-memory H2
+ * table indexed like the content table, so the figures show how each query grows with
+ * the depth rather than MySQL latencies. Run with
+ * ./gradlew jmh -PjmhIncludes=ContentPaginationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContentPaginationBenchmark {
+    private static final int ROWS = 200_000;
+    private static final int PAGE_SIZE = 20;
+
+    private static final String OFFSET_PAGE = "SELECT id, create_time FROM content"
+            + " WHERE published = TRUE AND deleted = FALSE"
+            + " ORDER BY create_time DESC, id DESC LIMIT ? OFFSET ?";
+    private static final String CURSOR_PAGE = "SELECT id, create_time FROM content"
+            + " WHERE published = TRUE AND deleted = FALSE"
+            + " AND create_time <= ? AND (create_time < ? OR id < ?)"
+            + " ORDER BY create_time DESC, id DESC LIMIT ?";
+
+    @Param({"0", "1000", "10000", "100000"})
+    private int depth;
+
+    private Connection connection;
+    private PreparedStatement offsetPage;
+    private PreparedStatement cursorPage;
+    private Timestamp cursorTime;
+    private long cursorId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, ClassNotFoundException {
+        // The benchmark jar keeps the driver registration of MySQL only
+        Class.forName("org.h2.Driver");
+        connection = DriverManager.getConnection("jdbc:h2:mem:pagination;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE content (id BIGINT PRIMARY KEY, published BOOLEAN,"
+                    + " deleted BOOLEAN, create_time TIMESTAMP, title VARCHAR(500))");
+            statement.execute("CREATE INDEX idx_content_create_time_id ON content (create_time, id)");
+        }
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO content VALUES (?, ?, FALSE, ?, ?)")) {
+            for (int id = 1; id <= ROWS; id++) {
+                insert.setLong(1, id);
+                insert.setBoolean(2, id % 10 != 0);
+                // Contents created in groups of three share a timestamp, breaking ties by id
+                insert.setTimestamp(3, Timestamp.valueOf(start.plusMinutes(id / 3)));
+                insert.setString(4, "Content " + id);
+                insert.addBatch();
+                if (id % 10_000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+        }
+
+        offsetPage = connection.prepareStatement(OFFSET_PAGE);
+        cursorPage = connection.prepareStatement(CURSOR_PAGE);
+        // The cursor the previous page would have returned
+        if (depth > 0) {
+            offsetPage.setInt(1, 1);
+            offsetPage.setInt(2, depth - 1);
+            try (ResultSet last = offsetPage.executeQuery()) {
+                last.next();
+                cursorId = last.getLong(1);
+                cursorTime = last.getTimestamp(2);
+            }
+        } else {
+            cursorId = Long.MAX_VALUE;
+            cursorTime = Timestamp.valueOf(LocalDateTime.of(9999, 1, 1, 0, 0));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public long offsetPage() throws SQLException {
+        offsetPage.setInt(1, PAGE_SIZE);
+        offsetPage.setInt(2, depth);
+        return sumIds(offsetPage);
+    }
+
+    @Benchmark
+    public long cursorPage() throws SQLException {
+        cursorPage.setTimestamp(1, cursorTime);
+        cursorPage.setTimestamp(2, cursorTime);
+        cursorPage.setLong(3, cursorId);
+        // One more than the page to tell whether another follows
+        cursorPage.setInt(4, PAGE_SIZE + 1);
+        return sumIds(cursorPage);
+    }
+
+    private static long sumIds(PreparedStatement statement) throws SQLException {
+        long sum = 0;
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                sum += rows.getLong(1);
+            }
+        }
+        return sum;
+    }
+}
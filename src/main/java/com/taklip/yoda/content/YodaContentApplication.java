@@ -2,8 +2,12 @@ package com.taklip.yoda.content;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+
+import com.taklip.yoda.content.config.ContentProperties;
 
 @SpringBootApplication
+@EnableConfigurationProperties(ContentProperties.class)
 public class YodaContentApplication {
 
 	public static void main(String[] args) {
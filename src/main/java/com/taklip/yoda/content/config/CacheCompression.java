@@ -0,0 +1,119 @@
+package com.taklip.yoda.content.config;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.github.luben.zstd.Zstd;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Compression algorithms of the L2 values, identified in the stored header by their id
+ *
+ * Ids are persisted in Redis: never reuse or renumber them.
+ */
+public enum CacheCompression {
+    LZ4(1) {
+        private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+        private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+        @Override
+        byte[] compress(byte[] data) {
+            return compressor.compress(data);
+        }
+
+        @Override
+        byte[] decompress(byte[] data, int offset, int originalLength) {
+            byte[] restored = new byte[originalLength];
+            decompressor.decompress(data, offset, restored, 0, originalLength);
+            return restored;
+        }
+    },
+
+    ZSTD(2) {
+        private static final int LEVEL = 3;
+
+        @Override
+        byte[] compress(byte[] data) {
+            return Zstd.compress(data, LEVEL);
+        }
+
+        @Override
+        byte[] decompress(byte[] data, int offset, int originalLength) {
+            byte[] restored = new byte[originalLength];
+            Zstd.decompressByteArray(restored, 0, originalLength, data, offset, data.length - offset);
+            return restored;
+        }
+    },
+
+    DEFLATE(3) {
+        @Override
+        byte[] compress(byte[] data) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(data);
+                deflater.finish();
+                ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2);
+                byte[] buffer = new byte[4096];
+                while (!deflater.finished()) {
+                    output.write(buffer, 0, deflater.deflate(buffer));
+                }
+                return output.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        byte[] decompress(byte[] data, int offset, int originalLength) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(data, offset, data.length - offset);
+                byte[] restored = new byte[originalLength];
+                int length = 0;
+                while (length < originalLength && !inflater.finished()) {
+                    int inflated = inflater.inflate(restored, length, originalLength - length);
+                    if (inflated == 0 && inflater.needsInput()) {
+                        throw new IllegalStateException("Truncated deflate stream");
+                    }
+                    length += inflated;
+                }
+                return restored;
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt deflate stream", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    };
+
+    private final byte id;
+
+    CacheCompression(int id) {
+        this.id = (byte) id;
+    }
+
+    byte getId() {
+        return id;
+    }
+
+    abstract byte[] compress(byte[] data);
+
+    /**
+     * Restore the data compressed from offset to the end of the array
+     */
+    abstract byte[] decompress(byte[] data, int offset, int originalLength);
+
+    static CacheCompression fromId(byte id) {
+        for (CacheCompression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        return null;
+    }
+}
@@ -3,20 +3,31 @@ package com.taklip.yoda.content.config;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -24,35 +35,155 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.taklip.yoda.content.constant.ContentConstants;
 import com.taklip.yoda.content.service.CacheLoggingService;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(ContentCacheProperties.class)
 @Slf4j
 public class CacheConfig {
     @Autowired
     private ObjectMapper objectMapper;
 
+    // Statistics of the L1 caches known at startup, handed to their two-level caches
+    private final Map<String, EvictionCauseStatsCounter> l1StatsCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Redis TTL by cache name, which the L1 entries default to as well, before jitter
+     */
+    private static final Map<String, Duration> CACHE_TTLS = Map.of(
+            ContentConstants.CACHE_NAME_CONTENT_BY_ID, Duration.ofSeconds(ContentConstants.CACHE_TTL_CONTENT),
+            ContentConstants.CACHE_NAME_FEATURED, Duration.ofSeconds(ContentConstants.CACHE_TTL_FEATURED),
+            ContentConstants.CACHE_NAME_NO_FEATURED, Duration.ofSeconds(ContentConstants.CACHE_TTL_FEATURED),
+            ContentConstants.CACHE_NAME_PUBLISHED, Duration.ofSeconds(ContentConstants.CACHE_TTL_PUBLISHED),
+            ContentConstants.CACHE_NAME_BY_CATEGORY, Duration.ofSeconds(ContentConstants.CACHE_TTL_FEATURED),
+            ContentConstants.CACHE_NAME_BY_USER, Duration.ofSeconds(ContentConstants.CACHE_TTL_CONTENT),
+            ContentConstants.CACHE_NAME_BY_TAGS, Duration.ofSeconds(ContentConstants.CACHE_TTL_FEATURED));
+
     /**
      * L1 Cache Manager (Caffeine - In-Memory)
+     *
+     * Each cache is bounded by the estimated heap of its entries rather than their count.
+     * The heap budget is split between the known caches by their share, after the caches
+     * with a fixed maximum weight; caches created on demand get the default share each.
      */
     @Bean("caffeineCacheManager")
-    public CaffeineCacheManager caffeineCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    public CaffeineCacheManager caffeineCacheManager(ContentCacheProperties cacheProperties) {
+        ContentCacheProperties.Local local = cacheProperties.getLocal();
+        Set<String> cacheNames = new TreeSet<>(CACHE_TTLS.keySet());
+        cacheNames.addAll(local.getCaches().keySet());
+        cacheNames.addAll(cacheProperties.getRefresh().getPolicies().keySet());
+        double bytesPerShare = bytesPerShare(local, cacheNames);
 
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .maximumSize(1000) // Maximum 1000 entries
-                .expireAfterWrite(Duration.ofMinutes(10)) // 10 minutes TTL
-                .recordStats()); // Enable statistics
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(localCacheBuilder(null, local.getDefaultPolicy(), bytesPerShare, cacheProperties)
+                .recordStats());
+        for (String cacheName : cacheNames) {
+            ContentCacheProperties.LocalPolicy policy = local.policyOf(cacheName);
+            cacheManager.registerCustomCache(cacheName,
+                    localCacheBuilder(cacheName, policy, bytesPerShare, cacheProperties)
+                            .recordStats(() -> l1StatsCounters.computeIfAbsent(cacheName,
+                                    name -> new EvictionCauseStatsCounter()))
+                            .build());
+            log.info("L1 cache '{}' bounded to {} KB for {}", cacheName,
+                    maximumWeight(policy, bytesPerShare) / 1024, localTtl(cacheName, policy));
+        }
 
         return cacheManager;
     }
 
+    /**
+     * Bytes of the heap budget per share, once the caches with a fixed maximum weight are served
+     */
+    static double bytesPerShare(ContentCacheProperties.Local local, Set<String> cacheNames) {
+        long remaining = local.getHeapBudget().toBytes();
+        // Caches created on demand take part in the split as one more cache
+        double shares = local.getDefaultPolicy().getShare();
+        for (String cacheName : cacheNames) {
+            ContentCacheProperties.LocalPolicy policy = local.policyOf(cacheName);
+            if (policy.getMaximumWeight() != null) {
+                remaining -= policy.getMaximumWeight().toBytes();
+            } else {
+                shares += policy.getShare();
+            }
+        }
+        if (remaining <= 0) {
+            log.warn("⚠️ L1 caches with a fixed maximum weight exceed the heap budget of {}", local.getHeapBudget());
+        }
+        return shares > 0 ? Math.max(remaining, 0) / shares : 0;
+    }
+
+    static long maximumWeight(ContentCacheProperties.LocalPolicy policy, double bytesPerShare) {
+        if (policy.getMaximumWeight() != null) {
+            return policy.getMaximumWeight().toBytes();
+        }
+        return Math.max(1, (long) (policy.getShare() * bytesPerShare));
+    }
+
+    private static Duration localTtl(String cacheName, ContentCacheProperties.LocalPolicy policy) {
+        if (policy.getExpireAfterWrite() != null) {
+            return policy.getExpireAfterWrite();
+        }
+        Duration ttl = cacheName != null ? CACHE_TTLS.get(cacheName) : null;
+        return ttl != null ? ttl : Duration.ofSeconds(ContentConstants.CACHE_TTL_CONTENT);
+    }
+
+    private static Caffeine<Object, Object> localCacheBuilder(String cacheName,
+                                                              ContentCacheProperties.LocalPolicy policy,
+                                                              double bytesPerShare,
+                                                              ContentCacheProperties cacheProperties) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maximumWeight(policy, bytesPerShare))
+                .weigher(new CacheValueWeigher())
+                .expireAfter(ttlPolicy(cacheName, localTtl(cacheName, policy), cacheProperties).toExpiry());
+    }
+
+    /**
+     * Jittered TTL of the entries of a cache, or of the caches without their own configuration when null.
+     * The entries of a cache refreshed in the background live no longer than its hard TTL.
+     */
+    private static CacheTtlPolicy ttlPolicy(String cacheName, Duration ttl, ContentCacheProperties cacheProperties) {
+        ContentCacheProperties.Ttl ttlProperties = cacheProperties.getTtl();
+        ContentCacheProperties.RefreshPolicy refreshPolicy = cacheName != null
+                ? cacheProperties.getRefresh().getPolicies().get(cacheName)
+                : null;
+        return new CacheTtlPolicy(cacheName, ttl, ttlProperties.jitterOf(cacheName), ttlProperties.getStableAfter(),
+                ttlProperties.getStableMultiplier(), refreshPolicy != null ? refreshPolicy.getHardTtl() : null);
+    }
+
+    /**
+     * The longest TTL an entry of any cache can get in L1 or L2, jitter and stability included
+     */
+    static Duration tagRetention(ContentCacheProperties cacheProperties) {
+        ContentCacheProperties.Local local = cacheProperties.getLocal();
+        Duration defaultTtl = Duration.ofSeconds(ContentConstants.CACHE_TTL_CONTENT);
+        Duration retention = max(ttlPolicy(null, defaultTtl, cacheProperties).getMaximumTtl(),
+                ttlPolicy(null, localTtl(null, local.getDefaultPolicy()), cacheProperties).getMaximumTtl());
+        Set<String> cacheNames = new TreeSet<>(CACHE_TTLS.keySet());
+        cacheNames.addAll(local.getCaches().keySet());
+        cacheNames.addAll(cacheProperties.getRefresh().getPolicies().keySet());
+        for (String cacheName : cacheNames) {
+            Duration l2Ttl = CACHE_TTLS.getOrDefault(cacheName, defaultTtl);
+            retention = max(retention, ttlPolicy(cacheName, l2Ttl, cacheProperties).getMaximumTtl());
+            retention = max(retention, ttlPolicy(cacheName, localTtl(cacheName, local.policyOf(cacheName)),
+                    cacheProperties).getMaximumTtl());
+        }
+        return retention;
+    }
+
+    private static Duration max(Duration first, Duration second) {
+        return first.compareTo(second) >= 0 ? first : second;
+    }
+
     /**
      * L2 Cache Manager (Redis)
      */
     @Bean("redisCacheManager")
-    public RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory,
+                                               ContentCacheProperties cacheProperties,
+                                               ObjectProvider<CacheGenerations> cacheGenerations,
+                                               MeterRegistry meterRegistry) {
         // Create a custom ObjectMapper for Redis serialization with type information
         // GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
         ObjectMapper redisObjectMapper = objectMapper.copy();
@@ -65,45 +196,59 @@ public class CacheConfig {
         GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(redisObjectMapper);
         
         // Default cache configuration
+        // With generations, the key prefix of each cache embeds its current generation
+        CacheGenerations generations = cacheGenerations.getIfAvailable();
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofSeconds(ContentConstants.CACHE_TTL_CONTENT))
+                .computePrefixWith(generations != null ? generations.keyPrefix() : CacheKeyPrefix.simple())
+                .entryTtl(ttlPolicy(null, Duration.ofSeconds(ContentConstants.CACHE_TTL_CONTENT), cacheProperties))
                 .serializeKeysWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jsonSerializer))
                 .disableCachingNullValues();
 
-        // Custom cache configurations
+        // Custom cache configurations, one TTL per cache
         Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
+        CACHE_TTLS.forEach((cacheName, ttl) -> cacheConfigurations.put(cacheName,
+                defaultConfig.entryTtl(ttlPolicy(cacheName, ttl, cacheProperties))));
+        cacheProperties.getRefresh().getPolicies().keySet().forEach(cacheName -> cacheConfigurations.putIfAbsent(
+                cacheName, defaultConfig.entryTtl(ttlPolicy(cacheName,
+                        Duration.ofSeconds(ContentConstants.CACHE_TTL_CONTENT), cacheProperties))));
 
-        // Content by ID cache (1 hour)
-        cacheConfigurations.put("content:by:id",
-                defaultConfig.entryTtl(Duration.ofSeconds(ContentConstants.CACHE_TTL_CONTENT)));
-
-        // Featured content cache (30 minutes)
-        cacheConfigurations.put("content:featured",
-                defaultConfig.entryTtl(Duration.ofSeconds(ContentConstants.CACHE_TTL_FEATURED)));
-
-        cacheConfigurations.put("content:no:featured",
-                defaultConfig.entryTtl(Duration.ofSeconds(ContentConstants.CACHE_TTL_FEATURED)));
-
-        // Published content cache (15 minutes)
-        cacheConfigurations.put("content:published",
-                defaultConfig.entryTtl(Duration.ofSeconds(ContentConstants.CACHE_TTL_PUBLISHED)));
-
-        // Content by category cache (30 minutes)
-        cacheConfigurations.put("content:by:category",
-                defaultConfig.entryTtl(Duration.ofSeconds(ContentConstants.CACHE_TTL_FEATURED)));
-
-        // Content by tags cache (30 minutes)
-        cacheConfigurations.put("content:by:tags",
-                defaultConfig.entryTtl(Duration.ofSeconds(ContentConstants.CACHE_TTL_FEATURED)));
+        // Value codec and compression per cache
+        ContentCacheProperties.Serialization serialization = cacheProperties.getSerialization();
+        ContentCacheProperties.Compression compression = cacheProperties.getCompression();
+        serialization.getCodecs().keySet().forEach(cacheName -> cacheConfigurations.putIfAbsent(cacheName, defaultConfig));
+        compression.getCaches().forEach(cacheName -> cacheConfigurations.putIfAbsent(cacheName, defaultConfig));
+        cacheConfigurations.replaceAll((cacheName, config) -> config.serializeValuesWith(
+                RedisSerializationContext.SerializationPair.fromSerializer(
+                        valueSerializer(cacheName, jsonSerializer, cacheProperties, meterRegistry))));
 
         return RedisCacheManager.builder(connectionFactory)
-                .cacheDefaults(defaultConfig)
+                .cacheDefaults(defaultConfig.serializeValuesWith(RedisSerializationContext.SerializationPair
+                        .fromSerializer(valueSerializer(null, jsonSerializer, cacheProperties, meterRegistry))))
                 .withInitialCacheConfigurations(cacheConfigurations)
                 .build();
     }
 
+    /**
+     * Serializer of the L2 values of a cache, or of the caches without their own configuration when null
+     */
+    private RedisSerializer<Object> valueSerializer(String cacheName, RedisSerializer<Object> jsonSerializer,
+                                                    ContentCacheProperties cacheProperties,
+                                                    MeterRegistry meterRegistry) {
+        RedisSerializer<Object> serializer = cacheProperties.getSerialization().isBinary(cacheName)
+                ? new ContentBinaryRedisSerializer(jsonSerializer)
+                : jsonSerializer;
+
+        ContentCacheProperties.Compression compression = cacheProperties.getCompression();
+        if (compression.isCompressed(cacheName)) {
+            serializer = new CompressingRedisSerializer(serializer, compression.getAlgorithm(),
+                    (int) compression.getThreshold().toBytes(), cacheName != null ? cacheName : "default",
+                    meterRegistry);
+        }
+        return serializer;
+    }
+
     /**
      * Redis Template for manual cache operations
      */
@@ -133,6 +278,90 @@ public class CacheConfig {
         return template;
     }
 
+    /**
+     * Listener container for the invalidation channel, only when invalidations go through Redis
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "yoda.cache.invalidation", name = "transport", havingValue = "redis",
+            matchIfMissing = true)
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    /**
+     * Invalidation bus keeping the L1 of every node consistent
+     */
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(ContentCacheProperties cacheProperties,
+                                                     StringRedisTemplate stringRedisTemplate,
+                                                     ObjectProvider<RedisMessageListenerContainer> listenerContainer,
+                                                     MeterRegistry meterRegistry) {
+        ContentCacheProperties.Invalidation invalidation = cacheProperties.getInvalidation();
+        CacheInvalidationTransport transport = switch (invalidation.getTransport()) {
+            case "in-memory" -> new InMemoryCacheInvalidationTransport();
+            case "none" -> CacheInvalidationTransport.NONE;
+            default -> new RedisCacheInvalidationTransport(stringRedisTemplate, listenerContainer.getObject(),
+                    invalidation.getChannel());
+        };
+
+        String nodeId = System.getenv().getOrDefault("HOSTNAME", "node") + "-"
+                + UUID.randomUUID().toString().substring(0, 8);
+        log.info("Cache invalidation bus on node {} using {} transport", nodeId, invalidation.getTransport());
+
+        return new CacheInvalidationBus(nodeId, transport, objectMapper, meterRegistry,
+                invalidation.getBatchWindow(), invalidation.getMaxBatchSize());
+    }
+
+    /**
+     * Generations of the L2 keys, only created when clearing by generation is enabled
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "yoda.cache.generations", name = "enabled", havingValue = "true",
+            matchIfMissing = true)
+    public CacheGenerations cacheGenerations(ContentCacheProperties cacheProperties,
+                                             StringRedisTemplate stringRedisTemplate) {
+        ContentCacheProperties.Generations generations = cacheProperties.getGenerations();
+        return new CacheGenerations(stringRedisTemplate, generations.getKeyPrefix(),
+                generations.getRefreshInterval());
+    }
+
+    /**
+     * Background refreshes of the caches with a refresh policy
+     */
+    @Bean
+    public CacheRefresher cacheRefresher(ContentCacheProperties cacheProperties, MeterRegistry meterRegistry) {
+        ContentCacheProperties.Refresh refresh = cacheProperties.getRefresh();
+        return new CacheRefresher(refresh.getThreads(), refresh.getQueueCapacity(), meterRegistry);
+    }
+
+    /**
+     * Circuit breaker of the L2 operations, only created when enabled
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "yoda.cache.circuit-breaker", name = "enabled", havingValue = "true",
+            matchIfMissing = true)
+    public RedisCircuitBreaker redisCircuitBreaker(ContentCacheProperties cacheProperties,
+                                                   MeterRegistry meterRegistry) {
+        ContentCacheProperties.CircuitBreaker circuitBreaker = cacheProperties.getCircuitBreaker();
+        return new RedisCircuitBreaker(circuitBreaker.getTimeout(), circuitBreaker.getFailureThreshold(),
+                circuitBreaker.getOpenDuration(), circuitBreaker.getRepairInterval(), meterRegistry);
+    }
+
+    /**
+     * Asynchronous L2 writes, only created when enabled
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "yoda.cache.write-behind", name = "enabled", havingValue = "true")
+    public CacheWriteBehind cacheWriteBehind(ContentCacheProperties cacheProperties,
+                                             StringRedisTemplate stringRedisTemplate,
+                                             MeterRegistry meterRegistry) {
+        ContentCacheProperties.WriteBehind writeBehind = cacheProperties.getWriteBehind();
+        return new CacheWriteBehind(stringRedisTemplate, meterRegistry, writeBehind.getCapacity(),
+                writeBehind.getMaxBatchSize(), writeBehind.getFlushInterval(), writeBehind.getOverflow());
+    }
+
     /**
      * Two-Level Cache Manager (Primary)
      */
@@ -140,9 +369,37 @@ public class CacheConfig {
     @Primary
     public CacheManager twoLevelCacheManager(CaffeineCacheManager caffeineCacheManager,
                                            RedisCacheManager redisCacheManager,
-                                           CacheLoggingService cacheLoggingService) {
+                                           CacheLoggingService cacheLoggingService,
+                                           StringRedisTemplate stringRedisTemplate,
+                                           CacheInvalidationBus cacheInvalidationBus,
+                                           CacheRefresher cacheRefresher,
+                                           ObjectProvider<CacheWriteBehind> cacheWriteBehind,
+                                           ObjectProvider<RedisCircuitBreaker> redisCircuitBreaker,
+                                           ObjectProvider<CacheGenerations> cacheGenerations,
+                                           ContentCacheProperties cacheProperties,
+                                           MeterRegistry meterRegistry) {
         try {
-            return new TwoLevelCacheManager(caffeineCacheManager, redisCacheManager, cacheLoggingService);
+            // Tag index entries live as long as the longest entry of any cache
+            CacheTagIndex tagIndex = new CacheTagIndex(new ContentCacheTags(), stringRedisTemplate,
+                    tagRetention(cacheProperties));
+            TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(caffeineCacheManager, redisCacheManager,
+                    cacheLoggingService, tagIndex);
+            cacheManager.setInvalidationBus(cacheInvalidationBus);
+
+            ContentCacheProperties.Load load = cacheProperties.getLoad();
+            if (load.isLeaseEnabled()) {
+                cacheManager.setLoadLease(new CacheLoadLease(stringRedisTemplate, cacheInvalidationBus.getNodeId(),
+                        load.getLeaseTime(), load.getLeaseWait(), load.getLeasePollInterval()), load.getLeaseCaches());
+            }
+            cacheManager.setRefresh(cacheRefresher, cacheProperties.getRefresh().getPolicies());
+            cacheManager.setHotKeys(cacheProperties.getHotKeys(), cacheRefresher);
+            cacheManager.setBatchOperations(new RedisCacheBatchOperations(stringRedisTemplate));
+            cacheManager.setL1StatsCounters(l1StatsCounters);
+            cacheManager.setOffHeap(cacheProperties.getOffHeap(), meterRegistry);
+            cacheWriteBehind.ifAvailable(cacheManager::setWriteBehind);
+            redisCircuitBreaker.ifAvailable(cacheManager::setCircuitBreaker);
+            cacheGenerations.ifAvailable(cacheManager::setGenerations);
+            return cacheManager;
         } catch (Exception e) {
             log.warn("⚠️ Redis not available - falling back to Caffeine only: {}", e.getMessage());
             return caffeineCacheManager;
@@ -0,0 +1,123 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Generation of each cache, embedded in the prefix of its L2 keys
+ *
+ * Clearing a cache increments its generation with a single INCR: the next keys are
+ * built with the new prefix, and the entries of the former generation are left to
+ * expire with their TTL instead of being scanned and deleted. Generations are cached
+ * on each node, updated by the invalidation messages of the clears, and re-read from
+ * Redis periodically in case a message was lost.
+ */
+@Slf4j
+public class CacheGenerations implements DisposableBean {
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final ConcurrentMap<String, Long> generations = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher;
+
+    public CacheGenerations(StringRedisTemplate redisTemplate, String keyPrefix, Duration refreshInterval) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-generations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = refreshInterval.toMillis();
+        this.refresher.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Prefix of the L2 keys of a cache in its current generation, such as "content:by:id:g3::"
+     */
+    public CacheKeyPrefix keyPrefix() {
+        return cacheName -> cacheName + ":g" + current(cacheName) + CacheKeyPrefix.SEPARATOR;
+    }
+
+    /**
+     * The generation of the cache known to this node, read from Redis on first use
+     */
+    public long current(String cacheName) {
+        return generations.computeIfAbsent(cacheName, this::read);
+    }
+
+    /**
+     * Move the cache to its next generation, which empties it for every node
+     *
+     * @return the new generation
+     */
+    public long advance(String cacheName) {
+        Long generation = redisTemplate.opsForValue().increment(keyPrefix + cacheName);
+        if (generation == null) {
+            throw new IllegalStateException("No generation returned for cache " + cacheName);
+        }
+        apply(cacheName, generation);
+        log.debug("Cache {} moved to generation {}", cacheName, generation);
+        return generation;
+    }
+
+    /**
+     * Apply a generation published by another node, generations never going back
+     */
+    public void apply(String cacheName, long generation) {
+        generations.merge(cacheName, generation, Math::max);
+    }
+
+    /**
+     * Re-read the generations of the caches known to this node
+     */
+    void refresh() {
+        List<String> cacheNames = new ArrayList<>(generations.keySet());
+        if (cacheNames.isEmpty()) {
+            return;
+        }
+        try {
+            List<String> values = redisTemplate.opsForValue()
+                    .multiGet(cacheNames.stream().map(name -> keyPrefix + name).toList());
+            for (int i = 0; values != null && i < cacheNames.size(); i++) {
+                if (values.get(i) != null) {
+                    apply(cacheNames.get(i), Long.parseLong(values.get(i)));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh the cache generations: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Long> getGenerations() {
+        return Map.copyOf(generations);
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdown();
+    }
+
+    private long read(String cacheName) {
+        try {
+            String value = redisTemplate.opsForValue().get(keyPrefix + cacheName);
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (RuntimeException e) {
+            // Corrected by the next refresh once Redis is back
+            log.warn("Failed to read the generation of cache {}: {}", cacheName, e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Broadcasts L1 invalidations to the other nodes and applies theirs
+ *
+ * Evictions, clears, tag invalidations and content creations and deletions are buffered for a short batch window and
+ * published as one compact message. Messages from other nodes are handed to the
+ * subscribers, and their propagation lag is recorded per source node.
+ */
+@Slf4j
+public class CacheInvalidationBus implements DisposableBean {
+    private final String nodeId;
+    private final CacheInvalidationTransport transport;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService flusher;
+    private final List<Consumer<CacheInvalidationMessage>> subscribers = new CopyOnWriteArrayList<>();
+    private final Map<String, NodeLag> lagByNode = new ConcurrentHashMap<>();
+    private final Counter publishedCounter;
+    private final Counter receivedCounter;
+
+    private final Object lock = new Object();
+    private Map<String, LinkedHashSet<String>> pendingKeys = new LinkedHashMap<>();
+    private LinkedHashSet<String> pendingClears = new LinkedHashSet<>();
+    private Map<String, Long> pendingGenerations = new LinkedHashMap<>();
+    private LinkedHashSet<String> pendingTags = new LinkedHashSet<>();
+    private LinkedHashSet<Long> pendingCreated = new LinkedHashSet<>();
+    private LinkedHashSet<Long> pendingDeleted = new LinkedHashSet<>();
+    private int pendingSize;
+
+    public CacheInvalidationBus(String nodeId, CacheInvalidationTransport transport, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry, Duration batchWindow, int maxBatchSize) {
+        this.nodeId = nodeId;
+        this.transport = transport;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxBatchSize = maxBatchSize;
+        this.publishedCounter = meterRegistry.counter("cache.invalidation.published", "node", nodeId);
+        this.receivedCounter = meterRegistry.counter("cache.invalidation.received", "node", nodeId);
+
+        if (batchWindow.isZero()) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cache-invalidation-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long windowMicros = TimeUnit.NANOSECONDS.toMicros(batchWindow.toNanos());
+            this.flusher.scheduleWithFixedDelay(this::flush, windowMicros, windowMicros, TimeUnit.MICROSECONDS);
+        }
+
+        transport.subscribe(this::receive);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Receive the invalidations published by the other nodes
+     */
+    public void subscribe(Consumer<CacheInvalidationMessage> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void publishEvict(String cacheName, Object key) {
+        String encodedKey = CacheInvalidationMessage.encodeKey(key);
+        if (encodedKey == null) {
+            // The other nodes could not rebuild the key, clear the whole cache instead
+            publishClear(cacheName);
+            return;
+        }
+
+        synchronized (lock) {
+            if (pendingClears.contains(cacheName)) {
+                return;
+            }
+            if (pendingKeys.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).add(encodedKey)) {
+                pendingSize++;
+            }
+        }
+        flushIfFull();
+    }
+
+    public void publishClear(String cacheName) {
+        synchronized (lock) {
+            LinkedHashSet<String> keys = pendingKeys.remove(cacheName);
+            if (keys != null) {
+                pendingSize -= keys.size();
+            }
+            if (pendingClears.add(cacheName)) {
+                pendingSize++;
+            }
+        }
+        flushIfFull();
+    }
+
+    /**
+     * Clear the cache on the other nodes, moving them to the generation of its L2 keys
+     */
+    public void publishClear(String cacheName, long generation) {
+        synchronized (lock) {
+            pendingGenerations.merge(cacheName, generation, Math::max);
+        }
+        publishClear(cacheName);
+    }
+
+    public void publishTags(Collection<String> tags) {
+        synchronized (lock) {
+            for (String tag : tags) {
+                if (pendingTags.add(tag)) {
+                    pendingSize++;
+                }
+            }
+        }
+        flushIfFull();
+    }
+
+    /**
+     * Tell the other nodes a content was created, so their existence filter lets it through
+     */
+    public void publishCreated(Long id) {
+        synchronized (lock) {
+            if (pendingCreated.add(id)) {
+                pendingSize++;
+            }
+        }
+        flushIfFull();
+    }
+
+    /**
+     * Tell the other nodes a content was deleted
+     */
+    public void publishDeleted(Long id) {
+        synchronized (lock) {
+            if (pendingDeleted.add(id)) {
+                pendingSize++;
+            }
+        }
+        flushIfFull();
+    }
+
+    /**
+     * Publish the buffered invalidations as one message
+     */
+    public void flush() {
+        CacheInvalidationMessage message = new CacheInvalidationMessage(nodeId, 0);
+        synchronized (lock) {
+            if (pendingSize == 0) {
+                return;
+            }
+            pendingKeys.forEach((cacheName, keys) -> message.getKeys().put(cacheName, new ArrayList<>(keys)));
+            message.getClears().addAll(pendingClears);
+            message.getGenerations().putAll(pendingGenerations);
+            message.getTags().addAll(pendingTags);
+            message.getCreated().addAll(pendingCreated);
+            message.getDeleted().addAll(pendingDeleted);
+            pendingKeys = new LinkedHashMap<>();
+            pendingClears = new LinkedHashSet<>();
+            pendingGenerations = new LinkedHashMap<>();
+            pendingTags = new LinkedHashSet<>();
+            pendingCreated = new LinkedHashSet<>();
+            pendingDeleted = new LinkedHashSet<>();
+            pendingSize = 0;
+        }
+
+        message.setTimestamp(System.currentTimeMillis());
+        try {
+            transport.send(objectMapper.writeValueAsString(message));
+            publishedCounter.increment(message.size());
+        } catch (Exception e) {
+            log.warn("Failed to publish {} cache invalidations: {}", message.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Propagation lag of the messages received from each node
+     */
+    public Map<String, Map<String, Object>> getLagStatistics() {
+        Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+        lagByNode.forEach((node, lag) -> statistics.put(node, lag.toMap()));
+        return statistics;
+    }
+
+    @Override
+    public void destroy() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+
+    private void flushIfFull() {
+        boolean full;
+        synchronized (lock) {
+            full = flusher == null || pendingSize >= maxBatchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    private void receive(String payload) {
+        CacheInvalidationMessage message;
+        try {
+            message = objectMapper.readValue(payload, CacheInvalidationMessage.class);
+        } catch (Exception e) {
+            log.warn("Ignoring malformed cache invalidation message: {}", e.getMessage());
+            return;
+        }
+
+        if (nodeId.equals(message.getNode())) {
+            return;
+        }
+
+        long lagMillis = Math.max(0, System.currentTimeMillis() - message.getTimestamp());
+        lagByNode.computeIfAbsent(message.getNode(), this::newNodeLag).record(lagMillis);
+        receivedCounter.increment(message.size());
+
+        for (Consumer<CacheInvalidationMessage> subscriber : subscribers) {
+            try {
+                subscriber.accept(message);
+            } catch (Exception e) {
+                log.error("Failed to apply cache invalidation from {}", message.getNode(), e);
+            }
+        }
+    }
+
+    private NodeLag newNodeLag(String sourceNode) {
+        return new NodeLag(Timer.builder("cache.invalidation.lag")
+                .description("Time between an invalidation being published and applied on this node")
+                .tag("node", nodeId)
+                .tag("source", sourceNode)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+    }
+
+    private static class NodeLag {
+        private final Timer timer;
+        private final AtomicLong messages = new AtomicLong();
+        private final AtomicLong lastLagMillis = new AtomicLong();
+        private final AtomicLong maxLagMillis = new AtomicLong();
+
+        NodeLag(Timer timer) {
+            this.timer = timer;
+        }
+
+        void record(long lagMillis) {
+            timer.record(lagMillis, TimeUnit.MILLISECONDS);
+            messages.incrementAndGet();
+            lastLagMillis.set(lagMillis);
+            maxLagMillis.accumulateAndGet(lagMillis, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("messages", messages.get());
+            map.put("lastLagMs", lastLagMillis.get());
+            map.put("maxLagMs", maxLagMillis.get());
+            map.put("meanLagMs", timer.mean(TimeUnit.MILLISECONDS));
+            return map;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.taklip.yoda.content.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A batch of L1 invalidations published by one node, with short property names to keep it compact
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class CacheInvalidationMessage {
+    // Separates the encoded parts of a structured key
+    private static final char PART_SEPARATOR = '\u001F';
+
+    /**
+     * Node that published the message
+     */
+    @JsonProperty("n")
+    private String node;
+
+    /**
+     * Publish time in epoch milliseconds, used to measure propagation lag
+     */
+    @JsonProperty("t")
+    private long timestamp;
+
+    /**
+     * Names of the caches cleared
+     */
+    @JsonProperty("c")
+    private List<String> clears = new ArrayList<>();
+
+    /**
+     * Generation of the L2 keys reached by the caches cleared, by cache name
+     */
+    @JsonProperty("v")
+    private Map<String, Long> generations = new LinkedHashMap<>();
+
+    /**
+     * Encoded keys evicted, by cache name
+     */
+    @JsonProperty("k")
+    private Map<String, List<String>> keys = new LinkedHashMap<>();
+
+    /**
+     * Tags invalidated
+     */
+    @JsonProperty("g")
+    private List<String> tags = new ArrayList<>();
+
+    /**
+     * Ids of the contents created, for the existence filters of the other nodes
+     */
+    @JsonProperty("a")
+    private List<Long> created = new ArrayList<>();
+
+    /**
+     * Ids of the contents deleted
+     */
+    @JsonProperty("d")
+    private List<Long> deleted = new ArrayList<>();
+
+    public CacheInvalidationMessage(String node, long timestamp) {
+        this.node = node;
+        this.timestamp = timestamp;
+    }
+
+    @JsonIgnore
+    public int size() {
+        return clears.size() + tags.size() + created.size() + deleted.size()
+                + keys.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * Encode a cache key so the receiving node can rebuild an equal key object,
+     * or null when the key type is not supported
+     */
+    public static String encodeKey(Object key) {
+        if (key instanceof String str) {
+            return "S" + str;
+        } else if (key instanceof Long number) {
+            return "L" + number;
+        } else if (key instanceof Integer number) {
+            return "I" + number;
+        } else if (key instanceof CacheKey cacheKey) {
+            StringBuilder encoded = new StringBuilder("K");
+            for (int i = 0; i < cacheKey.size(); i++) {
+                String part = cacheKey.part(i) instanceof CacheKey ? null : encodeKey(cacheKey.part(i));
+                if (part == null || part.indexOf(PART_SEPARATOR) >= 0) {
+                    return null;
+                }
+                encoded.append(PART_SEPARATOR).append(part);
+            }
+            return encoded.toString();
+        }
+        return null;
+    }
+
+    public static Object decodeKey(String encoded) {
+        String value = encoded.substring(1);
+        return switch (encoded.charAt(0)) {
+            case 'L' -> Long.valueOf(value);
+            case 'I' -> Integer.valueOf(value);
+            case 'K' -> CacheKey.of(Arrays.stream(value.split(String.valueOf(PART_SEPARATOR), -1))
+                    .skip(1)
+                    .map(CacheInvalidationMessage::decodeKey)
+                    .toArray());
+            default -> value;
+        };
+    }
+}
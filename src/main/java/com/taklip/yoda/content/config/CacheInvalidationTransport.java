@@ -0,0 +1,32 @@
+package com.taklip.yoda.content.config;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded invalidation messages between nodes
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * Transport for a single node, nothing is sent or received
+     */
+    CacheInvalidationTransport NONE = new CacheInvalidationTransport() {
+        @Override
+        public void send(String payload) {
+        }
+
+        @Override
+        public void subscribe(Consumer<String> receiver) {
+        }
+    };
+
+    /**
+     * Send a payload to every subscribed node, including this one
+     */
+    void send(String payload);
+
+    /**
+     * Receive the payloads sent by any node
+     */
+    void subscribe(Consumer<String> receiver);
+}
@@ -0,0 +1,69 @@
+package com.taklip.yoda.content.config;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Immutable cache key made of the arguments of a cached call
+ *
+ * The hash code is computed once, so L1 lookups hash the arguments only when the key
+ * is created. The key is rendered as its parts joined by ':' only when first needed,
+ * which is when L2 or the shared tag index is touched: "5:20" for a category page.
+ */
+public final class CacheKey {
+    private static final char SEPARATOR = ':';
+
+    private final Object[] parts;
+    private final int hash;
+    private String rendered;
+
+    private CacheKey(Object[] parts) {
+        this.parts = parts;
+        this.hash = Arrays.hashCode(parts);
+    }
+
+    public static CacheKey of(Object... parts) {
+        return new CacheKey(parts.clone());
+    }
+
+    public Object part(int index) {
+        return parts[index];
+    }
+
+    public int size() {
+        return parts.length;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        return other instanceof CacheKey key && hash == key.hash && Arrays.equals(parts, key.parts);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * The Redis key of the entry within its cache, rendered once
+     */
+    @Override
+    public String toString() {
+        String text = rendered;
+        if (text == null) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    builder.append(SEPARATOR);
+                }
+                builder.append(Objects.toString(parts[i]));
+            }
+            text = builder.toString();
+            rendered = text;
+        }
+        return text;
+    }
+}
@@ -0,0 +1,75 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cluster-wide lease on recomputing a cache key, so only one node loads it from the database
+ *
+ * The lease expires on its own if the holder dies, and is released only by its holder.
+ */
+@Slf4j
+public class CacheLoadLease {
+    private static final String LEASE_PREFIX = "lease:";
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String holder;
+    private final Duration leaseTime;
+    private final Duration waitTime;
+    private final Duration pollInterval;
+
+    public CacheLoadLease(StringRedisTemplate redisTemplate, String holder, Duration leaseTime, Duration waitTime,
+            Duration pollInterval) {
+        this.redisTemplate = redisTemplate;
+        this.holder = holder;
+        this.leaseTime = leaseTime;
+        this.waitTime = waitTime;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Try to become the node loading the key. When Redis cannot be reached the caller
+     * is granted the lease, falling back to loading on every node.
+     */
+    public boolean tryAcquire(String cacheName, Object key) {
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey(cacheName, key), holder, leaseTime);
+            return !Boolean.FALSE.equals(acquired);
+        } catch (Exception e) {
+            log.warn("Failed to acquire load lease for {}::{}: {}", cacheName, key, e.getMessage());
+            return true;
+        }
+    }
+
+    public void release(String cacheName, Object key) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey(cacheName, key)), holder);
+        } catch (Exception e) {
+            log.warn("Failed to release load lease for {}::{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    /**
+     * How long a node without the lease waits for the holder to publish the value
+     */
+    public Duration getWaitTime() {
+        return waitTime;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    private static String leaseKey(String cacheName, Object key) {
+        return LEASE_PREFIX + cacheName + "::" + key;
+    }
+}
@@ -0,0 +1,111 @@
+package com.taklip.yoda.content.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs asynchronous cache refreshes on a bounded executor and records their outcome
+ *
+ * When every worker is busy and the queue is full, refreshes are rejected rather than
+ * queued without bound: readers keep getting the stale value until the next attempt.
+ */
+@Slf4j
+public class CacheRefresher implements DisposableBean {
+    public static final String TRIGGER_STALE = "stale";
+    public static final String TRIGGER_REFRESH_AHEAD = "refresh-ahead";
+    public static final String TRIGGER_PINNED = "pinned";
+
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> latencyByCache = new ConcurrentHashMap<>();
+
+    public CacheRefresher(int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Submit a refresh of a cache entry
+     *
+     * @return false when the refresh was rejected because the executor is saturated
+     */
+    public boolean submit(String cacheName, String trigger, Callable<?> refresh, Runnable onDone) {
+        Timer latency = latency(cacheName);
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    refresh.call();
+                    count(cacheName, trigger, "success");
+                } catch (Exception e) {
+                    count(cacheName, trigger, "failure");
+                    log.warn("Failed to refresh an entry of cache {}: {}", cacheName, e.getMessage());
+                } finally {
+                    latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    onDone.run();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            count(cacheName, trigger, "rejected");
+            return false;
+        }
+    }
+
+    /**
+     * Refresh counts by trigger and result, and refresh latency, for each cache
+     */
+    public Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+        latencyByCache.forEach((cacheName, timer) -> {
+            Map<String, Object> cacheStatistics = new LinkedHashMap<>();
+            meterRegistry.find("cache.refresh").tag("cache", cacheName).counters().forEach(counter ->
+                    cacheStatistics.put(counter.getId().getTag("trigger") + "." + counter.getId().getTag("result"),
+                            (long) counter.count()));
+            cacheStatistics.put("latencyMeanMs", timer.mean(TimeUnit.MILLISECONDS));
+            cacheStatistics.put("latencyMaxMs", timer.max(TimeUnit.MILLISECONDS));
+            statistics.put(cacheName, cacheStatistics);
+        });
+        statistics.put("executor", Map.<String, Object>of(
+                "active", executor.getActiveCount(),
+                "queued", executor.getQueue().size()));
+        return statistics;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void count(String cacheName, String trigger, String result) {
+        meterRegistry.counter("cache.refresh", "cache", cacheName, "trigger", trigger, "result", result)
+                .increment();
+    }
+
+    private Timer latency(String cacheName) {
+        return latencyByCache.computeIfAbsent(cacheName, name -> Timer.builder("cache.refresh.latency")
+                .description("Time to reload a cache entry in the background")
+                .tag("cache", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,224 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dependency index from invalidation tags to the cache entries that depend on them
+ *
+ * Entries are tracked locally by their original key object, so L1 can be evicted
+ * precisely. Entries written to L2 are also tracked in Redis sets, so a write on any
+ * node can evict L2 keys that were put by another node.
+ */
+@Slf4j
+public class CacheTagIndex {
+    static final String REDIS_TAG_PREFIX = "cache:tags:";
+    private static final char MEMBER_SEPARATOR = '|';
+    private static final long MAX_TRACKED_ENTRIES = 100_000;
+
+    private final CacheTagResolver tagResolver;
+    private final StringRedisTemplate redisTemplate;
+    private final Duration retention;
+    private final ConcurrentMap<String, Set<EntryRef>> entriesByTag = new ConcurrentHashMap<>();
+    private final Cache<EntryRef, Set<String>> tagsByEntry;
+    private RedisCircuitBreaker circuitBreaker;
+
+    public CacheTagIndex(CacheTagResolver tagResolver) {
+        this(tagResolver, null, Duration.ofHours(1));
+    }
+
+    /**
+     * @param redisTemplate shared index in Redis, or null to track local entries only
+     * @param retention     how long a tracked entry can live in any tier
+     */
+    public CacheTagIndex(CacheTagResolver tagResolver, StringRedisTemplate redisTemplate, Duration retention) {
+        this(tagResolver, redisTemplate, retention, Ticker.systemTicker());
+    }
+
+    CacheTagIndex(CacheTagResolver tagResolver, StringRedisTemplate redisTemplate, Duration retention,
+            Ticker ticker) {
+        this.tagResolver = tagResolver;
+        this.redisTemplate = redisTemplate;
+        this.retention = retention;
+        this.tagsByEntry = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .ticker(ticker)
+                .maximumSize(MAX_TRACKED_ENTRIES)
+                .executor(Runnable::run)
+                .removalListener(this::onEntryRemoved)
+                .build();
+    }
+
+    /**
+     * Run the Redis index operations under the circuit breaker of the L2 calls
+     */
+    public void setCircuitBreaker(RedisCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Record the tags of an entry just stored in the cache
+     *
+     * @param shared whether the entry was also written to L2 and must be indexed in Redis
+     */
+    public void track(String cacheName, Object key, Object value, boolean shared) {
+        Set<String> tags = tagResolver.resolveTags(cacheName, key, value);
+        if (tags.isEmpty()) {
+            return;
+        }
+
+        EntryRef ref = new EntryRef(cacheName, key);
+        Set<String> previous = tagsByEntry.asMap().put(ref, tags);
+        if (previous != null) {
+            previous.stream().filter(tag -> !tags.contains(tag)).forEach(tag -> unlink(tag, ref));
+        }
+        for (String tag : tags) {
+            entriesByTag.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(ref);
+        }
+
+        if (shared && redisTemplate != null) {
+            String member = cacheName + MEMBER_SEPARATOR + key;
+            long ttlSeconds = retention.toSeconds();
+            Runnable index = () -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String tag : tags) {
+                    stringConnection.sAdd(REDIS_TAG_PREFIX + tag, member);
+                    stringConnection.expire(REDIS_TAG_PREFIX + tag, ttlSeconds);
+                }
+                return null;
+            });
+            if (circuitBreaker != null) {
+                circuitBreaker.run(index);
+                return;
+            }
+            try {
+                index.run();
+            } catch (Exception e) {
+                log.warn("Failed to index tags {} for {}: {}", tags, member, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stop tracking an entry that was evicted
+     */
+    public void untrack(String cacheName, Object key) {
+        tagsByEntry.invalidate(new EntryRef(cacheName, key));
+    }
+
+    /**
+     * Stop tracking every entry of a cache that was cleared
+     */
+    public void untrackAll(String cacheName) {
+        tagsByEntry.asMap().keySet().removeIf(ref -> ref.cacheName().equals(cacheName));
+    }
+
+    /**
+     * Remove and return the locally tracked keys depending on any of the tags, by cache name
+     */
+    public Map<String, Set<Object>> removeLocal(Collection<String> tags) {
+        Map<String, Set<Object>> keysByCache = new HashMap<>();
+        for (String tag : tags) {
+            Set<EntryRef> refs = entriesByTag.remove(tag);
+            if (refs == null) {
+                continue;
+            }
+            for (EntryRef ref : refs) {
+                keysByCache.computeIfAbsent(ref.cacheName(), name -> new HashSet<>()).add(ref.key());
+                tagsByEntry.invalidate(ref);
+            }
+        }
+        return keysByCache;
+    }
+
+    /**
+     * Remove and return the L2 keys, as strings, indexed in Redis under any of the tags, by cache name
+     */
+    public Map<String, Set<String>> removeShared(Collection<String> tags) {
+        if (redisTemplate == null || tags.isEmpty()) {
+            return new HashMap<>();
+        }
+        if (circuitBreaker != null) {
+            return circuitBreaker.call(() -> readAndRemoveShared(tags), new HashMap<>());
+        }
+        try {
+            return readAndRemoveShared(tags);
+        } catch (Exception e) {
+            log.warn("Failed to read shared tag index for {}: {}", tags, e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    private Map<String, Set<String>> readAndRemoveShared(Collection<String> tags) {
+        Map<String, Set<String>> keysByCache = new HashMap<>();
+        List<Object> members = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String tag : tags) {
+                stringConnection.sMembers(REDIS_TAG_PREFIX + tag);
+            }
+            return null;
+        });
+        redisTemplate.delete(tags.stream().map(tag -> REDIS_TAG_PREFIX + tag).toList());
+
+        for (Object tagMembers : members) {
+            if (!(tagMembers instanceof Collection<?> memberSet)) {
+                continue;
+            }
+            for (Object member : memberSet) {
+                String memberStr = member.toString();
+                int separator = memberStr.indexOf(MEMBER_SEPARATOR);
+                if (separator > 0) {
+                    keysByCache.computeIfAbsent(memberStr.substring(0, separator), name -> new HashSet<>())
+                            .add(memberStr.substring(separator + 1));
+                }
+            }
+        }
+        return keysByCache;
+    }
+
+    /**
+     * Number of tags currently tracked locally
+     */
+    public int localTagCount() {
+        return entriesByTag.size();
+    }
+
+    private void onEntryRemoved(EntryRef ref, Set<String> tags, RemovalCause cause) {
+        if (cause == RemovalCause.REPLACED || ref == null || tags == null) {
+            return;
+        }
+        // The entry may have been tracked again since it expired
+        if (tagsByEntry.getIfPresent(ref) != null) {
+            return;
+        }
+        tags.forEach(tag -> unlink(tag, ref));
+    }
+
+    private void unlink(String tag, EntryRef ref) {
+        entriesByTag.computeIfPresent(tag, (t, refs) -> {
+            refs.remove(ref);
+            return refs.isEmpty() ? null : refs;
+        });
+    }
+
+    private record EntryRef(String cacheName, Object key) {
+    }
+}
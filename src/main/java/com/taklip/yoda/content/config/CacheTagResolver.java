@@ -0,0 +1,20 @@
+package com.taklip.yoda.content.config;
+
+import java.util.Set;
+
+/**
+ * Resolves the invalidation tags a cache entry depends on.
+ *
+ * Tags must be derivable from the cache name, key and value alone so every node
+ * computes the same dependencies for an entry, whether it loaded it or promoted it from L2.
+ */
+@FunctionalInterface
+public interface CacheTagResolver {
+
+    CacheTagResolver NONE = (cacheName, key, value) -> Set.of();
+
+    /**
+     * Resolve the tags for a cache entry, never null
+     */
+    Set<String> resolveTags(String cacheName, Object key, Object value);
+}
@@ -0,0 +1,116 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.taklip.yoda.content.dto.ContentDTO;
+
+/**
+ * Time to live of each entry of a cache, shared by L1 and L2
+ *
+ * The base TTL is spread by a jitter derived from the key, so entries written together
+ * do not expire together, while a given key gets the same TTL in both levels and on
+ * every node. Entries of content not updated for a while live longer, as they are
+ * unlikely to change soon. A maximum, such as the hard TTL of a cache refreshed in the
+ * background, bounds the result.
+ */
+public class CacheTtlPolicy implements RedisCacheWriter.TtlFunction {
+    private final String cacheName;
+    private final Duration ttl;
+    private final double jitter;
+    private final Duration stableAfter;
+    private final double stableMultiplier;
+    private final Duration maxTtl;
+
+    public CacheTtlPolicy(String cacheName, Duration ttl, double jitter, Duration stableAfter,
+            double stableMultiplier) {
+        this(cacheName, ttl, jitter, stableAfter, stableMultiplier, null);
+    }
+
+    /**
+     * @param jitter      fraction of the TTL by which it is spread either way
+     * @param stableAfter time since the last update of a content after which its entries live
+     *                    longer, or null
+     * @param maxTtl      TTL never exceeded, whatever the jitter and stability, or null
+     */
+    public CacheTtlPolicy(String cacheName, Duration ttl, double jitter, Duration stableAfter,
+            double stableMultiplier, Duration maxTtl) {
+        this.cacheName = cacheName;
+        this.ttl = ttl;
+        this.jitter = Math.max(0, Math.min(jitter, 1));
+        this.stableAfter = stableAfter;
+        this.stableMultiplier = stableMultiplier;
+        this.maxTtl = maxTtl;
+    }
+
+    @Override
+    public Duration getTimeToLive(Object key, Object value) {
+        double ttlNanos = ttl.toNanos();
+        if (stableAfter != null && value instanceof ContentDTO content && isStable(content)) {
+            ttlNanos *= stableMultiplier;
+        }
+        if (jitter > 0 && key != null) {
+            ttlNanos *= 1 + jitter * spread(key);
+        }
+        if (maxTtl != null) {
+            ttlNanos = Math.min(ttlNanos, maxTtl.toNanos());
+        }
+        return Duration.ofNanos(Math.max(1, (long) ttlNanos));
+    }
+
+    /**
+     * The longest TTL an entry can get, with the stable multiplier and the full jitter
+     */
+    public Duration getMaximumTtl() {
+        double ttlNanos = ttl.toNanos() * (1 + jitter);
+        if (stableAfter != null) {
+            ttlNanos *= Math.max(1, stableMultiplier);
+        }
+        if (maxTtl != null) {
+            ttlNanos = Math.min(ttlNanos, maxTtl.toNanos());
+        }
+        return Duration.ofNanos(Math.max(1, Math.round(ttlNanos)));
+    }
+
+    /**
+     * The same policy as a Caffeine expiry: set on every write, unchanged by reads
+     */
+    public Expiry<Object, Object> toExpiry() {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Object key, Object value, long currentTime) {
+                return getTimeToLive(key, value).toNanos();
+            }
+
+            @Override
+            public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                return getTimeToLive(key, value).toNanos();
+            }
+
+            @Override
+            public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private boolean isStable(ContentDTO content) {
+        LocalDateTime lastChange = content.getUpdateTime() != null ? content.getUpdateTime() : content.getCreateTime();
+        return lastChange != null && lastChange.isBefore(LocalDateTime.now().minus(stableAfter));
+    }
+
+    /**
+     * Uniform in [-1, 1), the same for a key on every node
+     */
+    private double spread(Object key) {
+        long hash = (cacheName != null ? cacheName.hashCode() : 0) * 31L + key.toString().hashCode();
+        // SplitMix64 finalizer, so neighbouring ids get unrelated TTLs
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        hash ^= hash >>> 31;
+        return (hash >>> 11) * 0x1.0p-52 - 1;
+    }
+}
@@ -0,0 +1,116 @@
+package com.taklip.yoda.content.config;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.taklip.yoda.content.dto.ContentDTO;
+import com.taklip.yoda.content.dto.ContentIdPage;
+import com.taklip.yoda.content.dto.ContentPageResponse;
+
+/**
+ * Estimated heap retained by an L1 entry, in bytes
+ *
+ * The estimates assume compressed references and a 12-byte object header, counting the
+ * entry's own objects but not the ones shared with other entries, such as cached
+ * Boolean and small Integer instances.
+ */
+public class CacheValueWeigher implements Weigher<Object, Object> {
+    // Caffeine node with its key and value references, and the hash table slot
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int BOXED_NUMBER = 16;
+    private static final int LOCAL_DATE_TIME = 72;
+    private static final int CONTENT_DTO = 96;
+    private static final int PAGE = 40;
+    private static final int UNKNOWN_VALUE = 256;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long weight = ENTRY_OVERHEAD + sizeOf(key) + sizeOf(value);
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    static long sizeOf(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 0;
+        }
+        if (value instanceof String text) {
+            return stringSize(text);
+        }
+        if (value instanceof Number) {
+            return BOXED_NUMBER;
+        }
+        if (value instanceof ContentDTO content) {
+            return contentSize(content);
+        }
+        if (value instanceof ContentPageResponse page) {
+            long size = PAGE + stringSize(page.getNextCursor());
+            List<ContentDTO> records = page.getRecords();
+            if (records != null) {
+                size += listSize(records.size());
+                for (ContentDTO record : records) {
+                    size += record != null ? contentSize(record) : 0;
+                }
+            }
+            return size;
+        }
+        if (value instanceof ContentIdPage page) {
+            int ids = page.getIds() != null ? page.getIds().size() : 0;
+            return PAGE + stringSize(page.getNextCursor()) + listSize(ids) + (long) ids * BOXED_NUMBER;
+        }
+        return UNKNOWN_VALUE;
+    }
+
+    private static long contentSize(ContentDTO content) {
+        return CONTENT_DTO
+                + stringSize(content.getTitle())
+                + stringSize(content.getShortDescription())
+                + stringSize(content.getDescription())
+                + stringSize(content.getPageTitle())
+                + stringSize(content.getFeaturedImage())
+                + stringSize(content.getNaturalKey())
+                + numberSize(content.getId()) + numberSize(content.getCategoryId())
+                + numberSize(content.getSiteId()) + numberSize(content.getHitCounter())
+                + numberSize(content.getCreateBy()) + numberSize(content.getUpdateBy())
+                + numberSize(content.getScore())
+                + timeSize(content.getCreateTime()) + timeSize(content.getUpdateTime())
+                + timeSize(content.getPublishDate()) + timeSize(content.getExpireDate());
+    }
+
+    /**
+     * Latin-1 strings take a byte per character, others two
+     */
+    private static long stringSize(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long bytes = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0xFF) {
+                bytes = 2L * text.length();
+                break;
+            }
+        }
+        // String object, then the byte array header and its content padded to 8 bytes
+        return 24 + align(16 + bytes);
+    }
+
+    private static long numberSize(Number number) {
+        return number != null ? BOXED_NUMBER : 0;
+    }
+
+    private static long timeSize(LocalDateTime time) {
+        return time != null ? LOCAL_DATE_TIME : 0;
+    }
+
+    /**
+     * ArrayList with an exactly sized element array
+     */
+    private static long listSize(int elements) {
+        return 24 + align(16 + 4L * elements);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,237 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes L2 puts behind the request thread
+ *
+ * Puts are coalesced per key in a bounded buffer and flushed in pipelined batches. An
+ * eviction cancels the pending put of its key, and a put already being flushed when the
+ * key is evicted is evicted again once the batch is written, so L2 never keeps a value
+ * written before an eviction. When the buffer is full the put is either dropped, L1
+ * still holding the value, or written through on the caller's thread.
+ */
+@Slf4j
+public class CacheWriteBehind implements DisposableBean {
+    public static final String OVERFLOW_DROP = "drop";
+    public static final String OVERFLOW_WRITE_THROUGH = "write-through";
+
+    private final RedisCacheBatchOperations batchOperations;
+    private final int capacity;
+    private final int maxBatchSize;
+    private final boolean dropOnOverflow;
+    private final ScheduledExecutorService flusher;
+    private final ConcurrentMap<WriteKey, PendingWrite> pending = new ConcurrentHashMap<>();
+    // Keys of the batch being flushed, mapped to whether they were evicted meanwhile
+    private final ConcurrentMap<WriteKey, Boolean> flushing = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingSize = new AtomicInteger();
+    private final Object flushLock = new Object();
+    private final Counter queuedCounter;
+    private final Counter coalescedCounter;
+    private final Counter flushedCounter;
+    private final Counter overflowCounter;
+    private final Counter failedCounter;
+    private final Counter writeThroughCounter;
+    private final Timer flushTimer;
+
+    public CacheWriteBehind(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry, int capacity,
+            int maxBatchSize, Duration flushInterval, String overflow) {
+        this.batchOperations = new RedisCacheBatchOperations(redisTemplate);
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.dropOnOverflow = !OVERFLOW_WRITE_THROUGH.equals(overflow);
+        this.queuedCounter = meterRegistry.counter("cache.write-behind.writes", "result", "queued");
+        this.coalescedCounter = meterRegistry.counter("cache.write-behind.writes", "result", "coalesced");
+        this.flushedCounter = meterRegistry.counter("cache.write-behind.writes", "result", "flushed");
+        this.overflowCounter = meterRegistry.counter("cache.write-behind.dropped", "reason", "overflow");
+        this.failedCounter = meterRegistry.counter("cache.write-behind.dropped", "reason", "error");
+        this.writeThroughCounter = meterRegistry.counter("cache.write-behind.writes", "result", "write-through");
+        this.flushTimer = Timer.builder("cache.write-behind.flush")
+                .description("Time to write one batch of L2 puts")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("cache.write-behind.pending", pendingSize);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMicros = TimeUnit.NANOSECONDS.toMicros(flushInterval.toNanos());
+        this.flusher.scheduleWithFixedDelay(this::flush, intervalMicros, intervalMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Queue a put into L2, replacing any put of the same key not flushed yet
+     */
+    public void put(String cacheName, Cache l2Cache, Object key, Object value) {
+        WriteKey writeKey = new WriteKey(cacheName, key);
+        PendingWrite write = new PendingWrite(writeKey, l2Cache, key, value);
+        PendingWrite replaced = pending.computeIfPresent(writeKey, (k, previous) -> write);
+        if (replaced != null) {
+            coalescedCounter.increment();
+            return;
+        }
+
+        if (pendingSize.get() >= capacity) {
+            if (dropOnOverflow) {
+                overflowCounter.increment();
+            } else {
+                writeThroughCounter.increment();
+                l2Cache.put(key, value);
+            }
+            return;
+        }
+
+        if (pending.putIfAbsent(writeKey, write) == null) {
+            pendingSize.incrementAndGet();
+            queuedCounter.increment();
+        } else {
+            pending.put(writeKey, write);
+            coalescedCounter.increment();
+        }
+
+        if (pendingSize.get() >= maxBatchSize) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Value of a put not yet flushed, so this node reads its own writes from L2
+     */
+    public Cache.ValueWrapper getPending(String cacheName, Object key) {
+        PendingWrite write = pending.get(new WriteKey(cacheName, key));
+        return write != null ? write::value : null;
+    }
+
+    /**
+     * Cancel the pending put of a key before it is evicted from L2
+     */
+    public void cancel(String cacheName, Object key) {
+        WriteKey writeKey = new WriteKey(cacheName, key);
+        if (pending.remove(writeKey) != null) {
+            pendingSize.decrementAndGet();
+        }
+        flushing.computeIfPresent(writeKey, (k, evicted) -> Boolean.TRUE);
+    }
+
+    /**
+     * Cancel the pending puts of a cache before it is cleared
+     */
+    public void cancelAll(String cacheName) {
+        for (WriteKey writeKey : pending.keySet()) {
+            if (writeKey.cacheName().equals(cacheName) && pending.remove(writeKey) != null) {
+                pendingSize.decrementAndGet();
+            }
+        }
+        flushing.replaceAll((writeKey, evicted) -> evicted || writeKey.cacheName().equals(cacheName));
+    }
+
+    /**
+     * Write the pending puts to L2 in batches
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            while (!pending.isEmpty()) {
+                List<PendingWrite> batch = takeBatch();
+                if (batch.isEmpty()) {
+                    return;
+                }
+                try {
+                    flushTimer.record(() -> write(batch));
+                    flushedCounter.increment(batch.size());
+                } catch (Exception e) {
+                    failedCounter.increment(batch.size());
+                    log.warn("Failed to write {} cache entries to L2: {}", batch.size(), e.getMessage());
+                } finally {
+                    evictCancelledDuringFlush(batch);
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("pending", pendingSize.get());
+        statistics.put("capacity", capacity);
+        statistics.put("queued", (long) queuedCounter.count());
+        statistics.put("coalesced", (long) coalescedCounter.count());
+        statistics.put("flushed", (long) flushedCounter.count());
+        statistics.put("writeThrough", (long) writeThroughCounter.count());
+        statistics.put("droppedOverflow", (long) overflowCounter.count());
+        statistics.put("droppedError", (long) failedCounter.count());
+        statistics.put("flushMeanMs", flushTimer.mean(TimeUnit.MILLISECONDS));
+        return statistics;
+    }
+
+    @Override
+    public void destroy() {
+        flusher.shutdown();
+        flush();
+    }
+
+    private List<PendingWrite> takeBatch() {
+        List<PendingWrite> batch = new ArrayList<>();
+        Iterator<WriteKey> keys = pending.keySet().iterator();
+        while (keys.hasNext() && batch.size() < maxBatchSize) {
+            WriteKey writeKey = keys.next();
+            // Mark the key as flushing before taking it, so a concurrent cancel sees one or the other
+            flushing.put(writeKey, Boolean.FALSE);
+            PendingWrite write = pending.remove(writeKey);
+            if (write == null) {
+                flushing.remove(writeKey);
+                continue;
+            }
+            pendingSize.decrementAndGet();
+            batch.add(write);
+        }
+        return batch;
+    }
+
+    private void evictCancelledDuringFlush(List<PendingWrite> batch) {
+        for (PendingWrite write : batch) {
+            if (Boolean.TRUE.equals(flushing.remove(write.writeKey()))) {
+                write.l2Cache().evict(write.key());
+            }
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        List<RedisCacheBatchOperations.Write> redisWrites = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write.l2Cache() instanceof RedisCache redisCache) {
+                redisWrites.add(new RedisCacheBatchOperations.Write(redisCache, write.key(), write.value()));
+            } else {
+                write.l2Cache().put(write.key(), write.value());
+            }
+        }
+        batchOperations.write(redisWrites);
+    }
+
+    private record WriteKey(String cacheName, Object key) {
+    }
+
+    private record PendingWrite(WriteKey writeKey, Cache l2Cache, Object key, Object value) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.taklip.yoda.content.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Compresses the L2 values of a cache above a size threshold
+ *
+ * A compressed value is a magic byte, the algorithm id and the original length on four
+ * bytes, followed by the compressed bytes of the delegate's output. Values below the
+ * threshold, those that would not shrink, and values written before compression was
+ * enabled are stored as the delegate wrote them, which never start with the magic byte.
+ *
+ * Compression ratio and CPU time are recorded per cache as cache.compression.* metrics.
+ */
+public class CompressingRedisSerializer implements RedisSerializer<Object> {
+    static final byte MAGIC = (byte) 0xC8;
+    private static final int HEADER_LENGTH = 6;
+
+    private final RedisSerializer<Object> delegate;
+    private final CacheCompression compression;
+    private final int threshold;
+    private final Counter originalBytes;
+    private final Counter compressedBytes;
+    private final Counter skipped;
+    private final Timer compressTimer;
+    private final Timer decompressTimer;
+
+    public CompressingRedisSerializer(RedisSerializer<Object> delegate, CacheCompression compression, int threshold,
+            String cacheName, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.compression = compression;
+        this.threshold = threshold;
+        this.originalBytes = meterRegistry.counter("cache.compression.bytes", "cache", cacheName, "stage", "original");
+        this.compressedBytes = meterRegistry.counter("cache.compression.bytes", "cache", cacheName, "stage", "compressed");
+        this.skipped = meterRegistry.counter("cache.compression.skipped", "cache", cacheName);
+        this.compressTimer = meterRegistry.timer("cache.compression.time", "cache", cacheName,
+                "operation", "compress", "algorithm", compression.name().toLowerCase());
+        this.decompressTimer = meterRegistry.timer("cache.compression.time", "cache", cacheName,
+                "operation", "decompress", "algorithm", compression.name().toLowerCase());
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        byte[] serialized = delegate.serialize(value);
+        if (serialized == null || serialized.length < threshold) {
+            return serialized;
+        }
+
+        long start = System.nanoTime();
+        byte[] compressed = compression.compress(serialized);
+        compressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (compressed.length + HEADER_LENGTH >= serialized.length) {
+            skipped.increment();
+            return serialized;
+        }
+        originalBytes.increment(serialized.length);
+        compressedBytes.increment(compressed.length + HEADER_LENGTH);
+
+        byte[] framed = new byte[HEADER_LENGTH + compressed.length];
+        framed[0] = MAGIC;
+        framed[1] = compression.getId();
+        writeInt(framed, 2, serialized.length);
+        System.arraycopy(compressed, 0, framed, HEADER_LENGTH, compressed.length);
+        return framed;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length < HEADER_LENGTH || bytes[0] != MAGIC) {
+            return delegate.deserialize(bytes);
+        }
+
+        // Any known algorithm is decoded, so changing the configured one needs no flush
+        CacheCompression stored = CacheCompression.fromId(bytes[1]);
+        if (stored == null) {
+            throw new SerializationException("Unknown cache compression algorithm " + bytes[1]);
+        }
+
+        long start = System.nanoTime();
+        byte[] restored;
+        try {
+            restored = stored.decompress(bytes, HEADER_LENGTH, readInt(bytes, 2));
+        } catch (RuntimeException e) {
+            throw new SerializationException("Failed to decompress cache value", e);
+        }
+        decompressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return delegate.deserialize(restored);
+    }
+
+    /**
+     * Original size over stored size of the values compressed so far
+     */
+    public double getCompressionRatio() {
+        double compressed = compressedBytes.count();
+        return compressed > 0 ? originalBytes.count() / compressed : 1.0;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8 | bytes[offset + 3] & 0xFF;
+    }
+}
@@ -0,0 +1,397 @@
+package com.taklip.yoda.content.config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.taklip.yoda.content.dto.ContentDTO;
+import com.taklip.yoda.content.dto.ContentIdPage;
+import com.taklip.yoda.content.dto.ContentPageResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compact binary codec of the L2 values: {@link ContentDTO}, {@link ContentPageResponse},
+ * {@link ContentIdPage} and Integer hit counters
+ *
+ * A value starts with a magic byte, a format version and a type byte, followed by the
+ * fields in a fixed order: a presence bit per nullable field, varints for numbers, and
+ * length-prefixed UTF-8 strings. Other types, and values written before this codec was
+ * enabled, go through the JSON delegate, which never starts with the magic byte.
+ *
+ * Values of another version are read as a cache miss, so a node reloads them rather
+ * than fail when a rolling upgrade changes the format.
+ */
+@Slf4j
+public class ContentBinaryRedisSerializer implements RedisSerializer<Object> {
+    static final byte MAGIC = (byte) 0xC7;
+    static final byte VERSION = 1;
+
+    private static final byte TYPE_INTEGER = 1;
+    private static final byte TYPE_CONTENT = 2;
+    private static final byte TYPE_PAGE = 3;
+    private static final byte TYPE_ID_PAGE = 4;
+
+    private final RedisSerializer<Object> fallback;
+
+    public ContentBinaryRedisSerializer(RedisSerializer<Object> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        BinaryWriter writer;
+        if (value instanceof Integer number) {
+            writer = new BinaryWriter(8).header(TYPE_INTEGER);
+            writer.writeVarLong(number);
+        } else if (value instanceof ContentDTO content) {
+            writer = new BinaryWriter(256).header(TYPE_CONTENT);
+            writeContent(writer, content);
+        } else if (value instanceof ContentPageResponse page) {
+            int records = page.getRecords() != null ? page.getRecords().size() : 0;
+            writer = new BinaryWriter(64 + records * 256).header(TYPE_PAGE);
+            writePage(writer, page);
+        } else if (value instanceof ContentIdPage idPage) {
+            int ids = idPage.getIds() != null ? idPage.getIds().size() : 0;
+            writer = new BinaryWriter(32 + ids * 5).header(TYPE_ID_PAGE);
+            writeIdPage(writer, idPage);
+        } else {
+            return fallback.serialize(value);
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        if (bytes.length < 3) {
+            throw new SerializationException("Truncated binary cache value");
+        }
+        if (bytes[1] != VERSION) {
+            log.debug("Ignoring cache value of binary format version {}", bytes[1]);
+            return null;
+        }
+
+        BinaryReader reader = new BinaryReader(bytes, 3);
+        try {
+            return switch (bytes[2]) {
+                case TYPE_INTEGER -> (int) reader.readVarLong();
+                case TYPE_CONTENT -> readContent(reader);
+                case TYPE_PAGE -> readPage(reader);
+                case TYPE_ID_PAGE -> readIdPage(reader);
+                default -> throw new SerializationException("Unknown binary cache value type " + bytes[2]);
+            };
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated binary cache value", e);
+        }
+    }
+
+    private static void writePage(BinaryWriter writer, ContentPageResponse page) {
+        writer.writeVarLong(page.getTotal());
+        writer.writeVarLong(page.getCurrent());
+        writer.writeVarLong(page.getSize());
+        writer.writeVarLong(page.getPages());
+
+        List<ContentDTO> records = page.getRecords();
+        // 0 stands for no record list, n + 1 for n records
+        writer.writeVarLong(records == null ? 0 : records.size() + 1);
+        if (records != null) {
+            for (ContentDTO content : records) {
+                writer.writeByte(content == null ? 0 : 1);
+                if (content != null) {
+                    writeContent(writer, content);
+                }
+            }
+        }
+        writeCursor(writer, page.getNextCursor());
+        writer.writeByte(page.isHasNext() ? 1 : 0);
+    }
+
+    private static ContentPageResponse readPage(BinaryReader reader) {
+        ContentPageResponse page = new ContentPageResponse();
+        page.setTotal(reader.readVarLong());
+        page.setCurrent(reader.readVarLong());
+        page.setSize(reader.readVarLong());
+        page.setPages(reader.readVarLong());
+
+        int count = (int) reader.readVarLong();
+        if (count > 0) {
+            List<ContentDTO> records = new ArrayList<>(count - 1);
+            for (int i = 0; i < count - 1; i++) {
+                records.add(reader.readByte() == 0 ? null : readContent(reader));
+            }
+            page.setRecords(records);
+        }
+        page.setNextCursor(readCursor(reader));
+        page.setHasNext(reader.readByte() != 0);
+        return page;
+    }
+
+    private static void writeIdPage(BinaryWriter writer, ContentIdPage page) {
+        writer.writeVarLong(page.getTotal());
+        writer.writeVarLong(page.getCurrent());
+        writer.writeVarLong(page.getSize());
+        writer.writeVarLong(page.getPages());
+
+        List<Long> ids = page.getIds();
+        // 0 stands for no id list, n + 1 for n ids
+        writer.writeVarLong(ids == null ? 0 : ids.size() + 1);
+        if (ids != null) {
+            for (Long id : ids) {
+                writer.writeVarLong(id);
+            }
+        }
+        writeCursor(writer, page.getNextCursor());
+        writer.writeByte(page.isHasNext() ? 1 : 0);
+    }
+
+    private static ContentIdPage readIdPage(BinaryReader reader) {
+        ContentIdPage page = new ContentIdPage();
+        page.setTotal(reader.readVarLong());
+        page.setCurrent(reader.readVarLong());
+        page.setSize(reader.readVarLong());
+        page.setPages(reader.readVarLong());
+
+        int count = (int) reader.readVarLong();
+        if (count > 0) {
+            List<Long> ids = new ArrayList<>(count - 1);
+            for (int i = 0; i < count - 1; i++) {
+                ids.add(reader.readVarLong());
+            }
+            page.setIds(ids);
+        }
+        page.setNextCursor(readCursor(reader));
+        page.setHasNext(reader.readByte() != 0);
+        return page;
+    }
+
+    /**
+     * Next page cursor of a page, or a 0 byte when none
+     */
+    private static void writeCursor(BinaryWriter writer, String cursor) {
+        writer.writeByte(cursor != null ? 1 : 0);
+        if (cursor != null) {
+            writer.writeString(cursor);
+        }
+    }
+
+    private static String readCursor(BinaryReader reader) {
+        return reader.readByte() != 0 ? reader.readString() : null;
+    }
+
+    /**
+     * A presence bit per field, then the fields present in this order
+     */
+    private static void writeContent(BinaryWriter writer, ContentDTO content) {
+        Object[] fields = {
+                content.getId(), content.getTitle(), content.getShortDescription(), content.getDescription(),
+                content.getPageTitle(), content.getFeaturedImage(), content.getPublished(), content.getFeatureData(),
+                content.getCategoryId(), content.getSiteId(), content.getNaturalKey(), content.getHitCounter(),
+                content.getHomePage(), content.getCreateTime(), content.getUpdateTime(), content.getPublishDate(),
+                content.getExpireDate(), content.getCreateBy(), content.getUpdateBy(), content.getScore()
+        };
+
+        long presence = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                presence |= 1L << i;
+            }
+        }
+        writer.writeVarLong(presence);
+
+        for (Object field : fields) {
+            if (field == null) {
+                continue;
+            }
+            if (field instanceof String text) {
+                writer.writeString(text);
+            } else if (field instanceof Boolean flag) {
+                writer.writeByte(flag ? 1 : 0);
+            } else if (field instanceof Number number) {
+                writer.writeVarLong(number.longValue());
+            } else if (field instanceof LocalDateTime time) {
+                writer.writeVarLong(time.toEpochSecond(ZoneOffset.UTC));
+                writer.writeVarLong(time.getNano());
+            }
+        }
+    }
+
+    private static ContentDTO readContent(BinaryReader reader) {
+        long presence = reader.readVarLong();
+        ContentDTO content = new ContentDTO();
+        if (isPresent(presence, 0)) {
+            content.setId(reader.readVarLong());
+        }
+        if (isPresent(presence, 1)) {
+            content.setTitle(reader.readString());
+        }
+        if (isPresent(presence, 2)) {
+            content.setShortDescription(reader.readString());
+        }
+        if (isPresent(presence, 3)) {
+            content.setDescription(reader.readString());
+        }
+        if (isPresent(presence, 4)) {
+            content.setPageTitle(reader.readString());
+        }
+        if (isPresent(presence, 5)) {
+            content.setFeaturedImage(reader.readString());
+        }
+        if (isPresent(presence, 6)) {
+            content.setPublished(reader.readByte() != 0);
+        }
+        if (isPresent(presence, 7)) {
+            content.setFeatureData(reader.readByte() != 0);
+        }
+        if (isPresent(presence, 8)) {
+            content.setCategoryId(reader.readVarLong());
+        }
+        if (isPresent(presence, 9)) {
+            content.setSiteId((int) reader.readVarLong());
+        }
+        if (isPresent(presence, 10)) {
+            content.setNaturalKey(reader.readString());
+        }
+        if (isPresent(presence, 11)) {
+            content.setHitCounter((int) reader.readVarLong());
+        }
+        if (isPresent(presence, 12)) {
+            content.setHomePage(reader.readByte() != 0);
+        }
+        if (isPresent(presence, 13)) {
+            content.setCreateTime(reader.readTime());
+        }
+        if (isPresent(presence, 14)) {
+            content.setUpdateTime(reader.readTime());
+        }
+        if (isPresent(presence, 15)) {
+            content.setPublishDate(reader.readTime());
+        }
+        if (isPresent(presence, 16)) {
+            content.setExpireDate(reader.readTime());
+        }
+        if (isPresent(presence, 17)) {
+            content.setCreateBy(reader.readVarLong());
+        }
+        if (isPresent(presence, 18)) {
+            content.setUpdateBy(reader.readVarLong());
+        }
+        if (isPresent(presence, 19)) {
+            content.setScore((int) reader.readVarLong());
+        }
+        return content;
+    }
+
+    private static boolean isPresent(long presence, int field) {
+        return (presence & 1L << field) != 0;
+    }
+
+    private static final class BinaryWriter {
+        private byte[] buffer;
+        private int position;
+
+        BinaryWriter(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        BinaryWriter header(byte type) {
+            writeByte(MAGIC);
+            writeByte(VERSION);
+            writeByte(type);
+            return this;
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        /**
+         * Zig-zag encoded so small negative numbers stay short
+         */
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigZag & 0x7F) | 0x80);
+                zigZag >>>= 7;
+            }
+            buffer[position++] = (byte) zigZag;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+    }
+
+    private static final class BinaryReader {
+        private final byte[] buffer;
+        private int position;
+
+        BinaryReader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        byte readByte() {
+            return buffer[position++];
+        }
+
+        long readVarLong() {
+            long zigZag = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = buffer[position++];
+                zigZag |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return (zigZag >>> 1) ^ -(zigZag & 1);
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            if (length < 0 || position + length > buffer.length) {
+                throw new SerializationException("Truncated binary cache value");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        LocalDateTime readTime() {
+            long epochSecond = readVarLong();
+            int nano = (int) readVarLong();
+            return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+        }
+    }
+}
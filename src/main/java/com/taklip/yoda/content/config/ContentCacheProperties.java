@@ -0,0 +1,509 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Tuning of the two-level content cache, bound from yoda.cache.*
+ */
+@Data
+@ConfigurationProperties(prefix = "yoda.cache")
+public class ContentCacheProperties {
+
+    private Local local = new Local();
+
+    private OffHeap offHeap = new OffHeap();
+
+    private Ttl ttl = new Ttl();
+
+    private Invalidation invalidation = new Invalidation();
+
+    private Generations generations = new Generations();
+
+    private Load load = new Load();
+
+    private Refresh refresh = new Refresh();
+
+    private WriteBehind writeBehind = new WriteBehind();
+
+    private Serialization serialization = new Serialization();
+
+    private Compression compression = new Compression();
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private Missing missing = new Missing();
+
+    private Warmup warmup = new Warmup();
+
+    private HotKeys hotKeys = new HotKeys();
+
+    private Logging logging = new Logging();
+
+    @Data
+    public static class Local {
+        /**
+         * Estimated heap shared by the L1 caches, split between them by their share
+         */
+        private DataSize heapBudget = DataSize.ofMegabytes(64);
+
+        /**
+         * Policy of the caches without one of their own
+         */
+        private LocalPolicy defaultPolicy = new LocalPolicy();
+
+        /**
+         * L1 policy by cache name
+         */
+        private Map<String, LocalPolicy> caches = new HashMap<>();
+
+        public LocalPolicy policyOf(String cacheName) {
+            return caches.getOrDefault(cacheName, defaultPolicy);
+        }
+    }
+
+    @Data
+    public static class LocalPolicy {
+        /**
+         * Weight of the cache in the split of the heap budget
+         */
+        private double share = 1;
+
+        /**
+         * Estimated heap of the cache, taken off the budget before it is split, instead of a share
+         */
+        private DataSize maximumWeight;
+
+        /**
+         * Time to live of the L1 entries, the cache's Redis TTL when not set
+         */
+        private Duration expireAfterWrite;
+    }
+
+    @Data
+    public static class OffHeap {
+        /**
+         * Keep the large values of the caches in direct memory between L1 and L2
+         */
+        private boolean enabled = false;
+
+        /**
+         * Direct memory allocated to each off-heap cache, taken at startup
+         */
+        private DataSize capacity = DataSize.ofMegabytes(128);
+
+        /**
+         * Unit of allocation, a value taking as many blocks as its serialized size needs
+         */
+        private DataSize blockSize = DataSize.ofBytes(512);
+
+        /**
+         * Independently locked parts of each cache's memory
+         */
+        private int segments = 16;
+
+        /**
+         * Estimated heap of a value from which it is kept off-heap instead of in L1
+         */
+        private DataSize minValueSize = DataSize.ofKilobytes(4);
+
+        /**
+         * Time to live of the off-heap values
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(30);
+
+        /**
+         * Caches with an off-heap tier, all when empty
+         */
+        private Set<String> caches = new HashSet<>();
+
+        public boolean isOffHeap(String cacheName) {
+            return enabled && (caches.isEmpty() || caches.contains(cacheName));
+        }
+    }
+
+    @Data
+    public static class Ttl {
+        /**
+         * Fraction of the TTL by which each key's TTL is spread either way, 0 for fixed TTLs
+         */
+        private double jitter = 0.1;
+
+        /**
+         * Jitter by cache name
+         */
+        private Map<String, Double> jitters = new HashMap<>();
+
+        /**
+         * Time since the last update of a content after which its entries live longer, none when not set
+         */
+        private Duration stableAfter = Duration.ofDays(7);
+
+        /**
+         * TTL multiplier of the entries of a stable content
+         */
+        private double stableMultiplier = 2;
+
+        public double jitterOf(String cacheName) {
+            return cacheName != null ? jitters.getOrDefault(cacheName, jitter) : jitter;
+        }
+    }
+
+    @Data
+    public static class Invalidation {
+        /**
+         * Transport broadcasting L1 invalidations to the other nodes: redis, in-memory or none
+         */
+        private String transport = "redis";
+
+        /**
+         * Redis pub/sub channel of the invalidation messages
+         */
+        private String channel = "yoda:content:cache:invalidation";
+
+        /**
+         * How long invalidations are buffered before being published as one message
+         */
+        private Duration batchWindow = Duration.ofMillis(5);
+
+        /**
+         * Number of invalidations that triggers an immediate publish
+         */
+        private int maxBatchSize = 256;
+    }
+
+    @Data
+    public static class Generations {
+        /**
+         * Clear an L2 cache by moving its keys to a new generation instead of deleting them
+         */
+        private boolean enabled = true;
+
+        /**
+         * Prefix of the Redis counters holding the generation of each cache
+         */
+        private String keyPrefix = "yoda:cache:generation:";
+
+        /**
+         * Interval at which each node re-reads the generations, in case a clear message was lost
+         */
+        private Duration refreshInterval = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Load {
+        /**
+         * Let only one node in the cluster recompute a missing key while the others wait for it
+         */
+        private boolean leaseEnabled = false;
+
+        /**
+         * Caches using the load lease, all caches when empty
+         */
+        private Set<String> leaseCaches = new HashSet<>();
+
+        /**
+         * How long a lease is held before it expires on its own
+         */
+        private Duration leaseTime = Duration.ofSeconds(5);
+
+        /**
+         * How long a node without the lease waits for the value before loading it itself
+         */
+        private Duration leaseWait = Duration.ofMillis(500);
+
+        /**
+         * Interval at which a waiting node checks L2 for the value
+         */
+        private Duration leasePollInterval = Duration.ofMillis(25);
+    }
+
+    @Data
+    public static class Refresh {
+        /**
+         * Threads refreshing entries in the background
+         */
+        private int threads = 2;
+
+        /**
+         * Refreshes waiting for a thread before new ones are rejected
+         */
+        private int queueCapacity = 100;
+
+        /**
+         * Refresh policy by cache name, caches without one expire hard
+         */
+        private Map<String, RefreshPolicy> policies = new HashMap<>();
+    }
+
+    @Data
+    public static class RefreshPolicy {
+        /**
+         * Age after which an entry is served stale and refreshed in the background
+         */
+        private Duration softTtl = Duration.ofMinutes(5);
+
+        /**
+         * Age after which an entry is gone from L1 and L2, capping the TTL of the cache
+         */
+        private Duration hardTtl = Duration.ofMinutes(10);
+
+        /**
+         * Reads since the last write that make an entry hot, 0 disables refresh-ahead
+         */
+        private int refreshAheadReads = 0;
+
+        /**
+         * Fraction of the soft TTL after which a hot entry is refreshed before going stale
+         */
+        private double refreshAheadRatio = 0.75;
+    }
+
+    @Data
+    public static class WriteBehind {
+        /**
+         * Write L2 puts asynchronously instead of on the request thread
+         */
+        private boolean enabled = false;
+
+        /**
+         * Puts waiting to be written before the overflow policy applies
+         */
+        private int capacity = 10000;
+
+        /**
+         * Puts written to Redis in one pipeline
+         */
+        private int maxBatchSize = 256;
+
+        /**
+         * Interval at which pending puts are written
+         */
+        private Duration flushInterval = Duration.ofMillis(10);
+
+        /**
+         * What a put does when the buffer is full: drop or write-through
+         */
+        private String overflow = CacheWriteBehind.OVERFLOW_DROP;
+    }
+
+    @Data
+    public static class Serialization {
+        public static final String CODEC_JSON = "json";
+        public static final String CODEC_BINARY = "binary";
+
+        /**
+         * Codec of the L2 values of caches without one of their own: json or binary
+         */
+        private String defaultCodec = CODEC_JSON;
+
+        /**
+         * Codec of the L2 values by cache name
+         */
+        private Map<String, String> codecs = new HashMap<>();
+
+        public boolean isBinary(String cacheName) {
+            return CODEC_BINARY.equals(codecs.getOrDefault(cacheName, defaultCodec));
+        }
+    }
+
+    @Data
+    public static class Compression {
+        /**
+         * Compress large L2 values, entries written uncompressed stay readable
+         */
+        private boolean enabled = false;
+
+        /**
+         * Algorithm of the values written from now on: lz4, zstd or deflate
+         */
+        private CacheCompression algorithm = CacheCompression.LZ4;
+
+        /**
+         * Serialized size from which a value is compressed
+         */
+        private DataSize threshold = DataSize.ofKilobytes(1);
+
+        /**
+         * Caches whose values are compressed, all caches when empty
+         */
+        private Set<String> caches = new HashSet<>();
+
+        public boolean isCompressed(String cacheName) {
+            return enabled && (caches.isEmpty() || caches.contains(cacheName));
+        }
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        /**
+         * Bypass L2 while Redis is slow or unavailable
+         */
+        private boolean enabled = true;
+
+        /**
+         * Deadline of each L2 operation, well below the Redis client timeout
+         */
+        private Duration timeout = Duration.ofMillis(100);
+
+        /**
+         * Consecutive failed or timed out operations that open the circuit
+         */
+        private int failureThreshold = 5;
+
+        /**
+         * How long L2 is bypassed before a probe checks whether Redis is back
+         */
+        private Duration openDuration = Duration.ofSeconds(5);
+
+        /**
+         * Interval at which the L2 evictions that failed while the circuit stayed closed are retried
+         */
+        private Duration repairInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Missing {
+        /**
+         * Reject lookups of ids absent from the bloom filter of existing content ids
+         */
+        private boolean bloomFilterEnabled = true;
+
+        /**
+         * Rate at which the filter lets a missing id through to the negative cache
+         */
+        private double falsePositiveRate = 0.01;
+
+        /**
+         * Interval at which the filter is rebuilt from the database, taking in the ids
+         * created on other nodes whose invalidation message was missed
+         */
+        private Duration filterRebuildInterval = Duration.ofHours(1);
+
+        /**
+         * How long a content id found missing is answered without a lookup
+         */
+        private Duration negativeTtl = Duration.ofSeconds(30);
+
+        /**
+         * Missing ids remembered at most
+         */
+        private long negativeMaxSize = 100_000;
+    }
+
+    @Data
+    public static class Warmup {
+        /**
+         * Load the hot pages and contents at startup, before the node reports ready
+         */
+        private boolean enabled = true;
+
+        /**
+         * Pages of featured and published contents loaded, from the first
+         */
+        private int pages = 3;
+
+        /**
+         * Page size of the featured pages loaded, the default of the API
+         */
+        private int featuredPageSize = 10;
+
+        /**
+         * Page size of the published pages loaded, the default of the API
+         */
+        private int publishedPageSize = 20;
+
+        /**
+         * Categories with the most contents whose page is loaded
+         */
+        private int topCategories = 10;
+
+        /**
+         * Page size of the category pages loaded, the default of the API
+         */
+        private int categoryLimit = 20;
+
+        /**
+         * Most hit contents loaded by id
+         */
+        private int topContents = 200;
+
+        /**
+         * Warm-up loads running at once, bounding the queries on the database
+         */
+        private int concurrency = 4;
+
+        /**
+         * How long the warm-up may delay readiness, the remaining loads being abandoned
+         */
+        private Duration timeout = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class HotKeys {
+        /**
+         * Pin the most requested keys of each cache apart from L1, so they are not evicted
+         */
+        private boolean enabled = true;
+
+        /**
+         * Hot keys pinned at most per cache
+         */
+        private int topK = 32;
+
+        /**
+         * Recent lookups of a key before it may be pinned, keeping quiet caches unpinned
+         */
+        private long minFrequency = 32;
+
+        /**
+         * Counters per row of the frequency sketch, whose counts halve every ten lookups per counter
+         */
+        private int sketchWidth = 4096;
+
+        /**
+         * How long a pinned value is served before being re-read from L2 in the background
+         */
+        private Duration refreshInterval = Duration.ofSeconds(30);
+
+        /**
+         * Caches whose hot keys are pinned, all when empty
+         */
+        private Set<String> caches = new HashSet<>();
+
+        public boolean isPinned(String cacheName) {
+            return enabled && (caches.isEmpty() || caches.contains(cacheName));
+        }
+    }
+
+    @Data
+    public static class Logging {
+        /**
+         * Publish a latency histogram of the lookups of each cache and layer
+         */
+        private boolean histogram = true;
+
+        /**
+         * Log a sample of the cache events with their key, off the request thread
+         */
+        private boolean keyEvents = false;
+
+        /**
+         * Fraction of the cache events logged when key events are on
+         */
+        private double sampleRate = 0.01;
+
+        /**
+         * Sampled events waiting to be logged at most, the others being dropped
+         */
+        private int queueCapacity = 1024;
+    }
+}
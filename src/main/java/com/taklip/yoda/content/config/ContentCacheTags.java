@@ -0,0 +1,171 @@
+package com.taklip.yoda.content.config;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import com.taklip.yoda.content.constant.ContentConstants;
+import com.taklip.yoda.content.dto.ContentDTO;
+import com.taklip.yoda.content.dto.ContentIdPage;
+import com.taklip.yoda.content.dto.ContentPageResponse;
+import com.taklip.yoda.content.model.Content;
+
+/**
+ * Invalidation tags for the content caches
+ *
+ * An entry by id depends on its content id. A page depends on the dimension it was
+ * queried by (category, user, featured or published flag). A page caching full records
+ * also depends on the id of every content it contains, while a {@link ContentIdPage}
+ * reads its contents from the entries by id and does not.
+ */
+public class ContentCacheTags implements CacheTagResolver {
+
+    public static final String TAG_CONTENT = "content:";
+    public static final String TAG_CATEGORY = "category:";
+    public static final String TAG_USER = "user:";
+    public static final String TAG_FEATURED = "featured:";
+    public static final String TAG_PUBLISHED = "published:";
+
+    public static String content(Object id) {
+        return TAG_CONTENT + id;
+    }
+
+    public static String category(Object categoryId) {
+        return TAG_CATEGORY + categoryId;
+    }
+
+    public static String user(Object userId) {
+        return TAG_USER + userId;
+    }
+
+    public static String featured(boolean featured) {
+        return TAG_FEATURED + featured;
+    }
+
+    public static String published(boolean published) {
+        return TAG_PUBLISHED + published;
+    }
+
+    /**
+     * Tags to invalidate when a content changes from one state to another.
+     * A null before means created, a null after means deleted.
+     */
+    public static Set<String> affectedBy(ContentState before, ContentState after) {
+        Set<String> tags = new LinkedHashSet<>();
+        if (before != null) {
+            tags.add(content(before.id()));
+        }
+        if (after != null) {
+            tags.add(content(after.id()));
+        }
+
+        Set<String> beforeDimensions = before != null ? before.dimensions() : Set.of();
+        Set<String> afterDimensions = after != null ? after.dimensions() : Set.of();
+
+        if (before != null && after != null && Objects.equals(before.createTime(), after.createTime())) {
+            // Same position in every ordering: only pages it enters or leaves are affected,
+            // pages that already contain it read it by id or are covered by its content tag
+            beforeDimensions.stream().filter(tag -> !afterDimensions.contains(tag)).forEach(tags::add);
+            afterDimensions.stream().filter(tag -> !beforeDimensions.contains(tag)).forEach(tags::add);
+        } else {
+            tags.addAll(beforeDimensions);
+            tags.addAll(afterDimensions);
+        }
+
+        return tags;
+    }
+
+    @Override
+    public Set<String> resolveTags(String cacheName, Object key, Object value) {
+        if (key == null) {
+            return Set.of();
+        }
+
+        Set<String> tags = new HashSet<>();
+        switch (cacheName) {
+            case ContentConstants.CACHE_NAME_CONTENT_BY_ID -> {
+                Object id = contentIdFromKey(key);
+                if (id != null) {
+                    tags.add(content(id));
+                }
+            }
+            case ContentConstants.CACHE_NAME_FEATURED -> tags.add(featured(true));
+            case ContentConstants.CACHE_NAME_NO_FEATURED -> tags.add(featured(false));
+            case ContentConstants.CACHE_NAME_PUBLISHED -> tags.add(published(true));
+            case ContentConstants.CACHE_NAME_BY_CATEGORY -> tags.add(category(leadingSegment(key)));
+            case ContentConstants.CACHE_NAME_BY_USER -> tags.add(user(leadingSegment(key)));
+            default -> {
+                // No query dimension known, rely on the content tags of its records
+            }
+        }
+
+        if (value instanceof ContentPageResponse page && page.getRecords() != null) {
+            for (ContentDTO record : page.getRecords()) {
+                if (record != null && record.getId() != null) {
+                    tags.add(content(record.getId()));
+                }
+            }
+        }
+
+        return tags;
+    }
+
+    /**
+     * Keys are either the id itself or 'id:{id}:{suffix}'
+     */
+    private static Object contentIdFromKey(Object key) {
+        if (key instanceof Number) {
+            return key;
+        }
+        if (key instanceof CacheKey cacheKey) {
+            return cacheKey.size() > 1 ? cacheKey.part(1) : cacheKey.part(0);
+        }
+
+        String keyStr = key.toString();
+        if (keyStr.startsWith("id:")) {
+            int end = keyStr.indexOf(':', 3);
+            return end > 3 ? keyStr.substring(3, end) : keyStr.substring(3);
+        }
+
+        return keyStr;
+    }
+
+    private static Object leadingSegment(Object key) {
+        if (key instanceof CacheKey cacheKey) {
+            return cacheKey.size() > 0 ? cacheKey.part(0) : "";
+        }
+        String keyStr = key.toString();
+        int end = keyStr.indexOf(':');
+        return end >= 0 ? keyStr.substring(0, end) : keyStr;
+    }
+
+    /**
+     * The cache-relevant state of a content, captured before it is mutated
+     */
+    public record ContentState(Long id, Long categoryId, Long createBy, boolean featured, boolean published,
+            LocalDateTime createTime) {
+
+        public static ContentState of(Content content) {
+            return new ContentState(content.getId(), content.getCategoryId(), content.getCreateBy(),
+                    content.isFeatureData(), content.isPublished(), content.getCreateTime());
+        }
+
+        /**
+         * Tags of the list dimensions the content belongs to
+         */
+        public Set<String> dimensions() {
+            Set<String> dimensions = new HashSet<>();
+            dimensions.add(ContentCacheTags.featured(featured));
+            dimensions.add(ContentCacheTags.published(published));
+            if (categoryId != null) {
+                dimensions.add(ContentCacheTags.category(categoryId));
+            }
+            if (createBy != null) {
+                dimensions.add(ContentCacheTags.user(createBy));
+            }
+            return dimensions;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Tuning of the content service outside its caches, bound from yoda.content.*
+ */
+@Data
+@ConfigurationProperties(prefix = "yoda.content")
+public class ContentProperties {
+
+    private HitCounter hitCounter = new HitCounter();
+
+    private Trending trending = new Trending();
+
+    private Count count = new Count();
+
+    @Data
+    public static class HitCounter {
+        public static final String MODE_DATABASE = "database";
+        public static final String MODE_REDIS = "redis";
+        public static final String MODE_IN_MEMORY = "in-memory";
+
+        /**
+         * Where the live counts are kept: database, redis, or in-memory on a single node
+         */
+        private String mode = MODE_DATABASE;
+
+        /**
+         * Interval at which the views counted in memory are written to the database
+         */
+        private Duration flushInterval = Duration.ofSeconds(5);
+
+        /**
+         * Contents with pending views that trigger a write before the interval
+         */
+        private int maxPendingIds = 10_000;
+
+        /**
+         * Contents updated by one statement
+         */
+        private int batchSize = 500;
+
+        /**
+         * Prefix of the Redis hashes holding the live counts
+         */
+        private String keyPrefix = "yoda:content:hits:";
+
+        /**
+         * Redis hashes the live counts are spread over
+         */
+        private int shards = 16;
+
+        /**
+         * Interval at which the live counts changed are written to the database
+         */
+        private Duration reconcileInterval = Duration.ofSeconds(30);
+
+        public boolean isLive() {
+            return !MODE_DATABASE.equals(mode);
+        }
+    }
+
+    @Data
+    public static class Trending {
+        /**
+         * Contents whose recent views are tracked, the least viewed being dropped beyond at
+         * each ranking, and the views of the others estimated until they are admitted
+         */
+        private int maxTracked = 10_000;
+
+        /**
+         * Contents ranked per window, and per category or site within a window
+         */
+        private int topSize = 100;
+
+        /**
+         * Interval at which the rankings are rebuilt
+         */
+        private Duration refreshInterval = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Count {
+        /**
+         * How the total of a list is counted: by a COUNT query for each page, once per filter
+         * and then kept current on writes, or not at all, pages telling only whether another follows.
+         * Without a count the total and pages of a page are -1, so NONE is never a default.
+         */
+        public enum Strategy {
+            EXACT, CACHED, NONE
+        }
+
+        private Strategy defaultStrategy = Strategy.EXACT;
+
+        /**
+         * Strategy of each list: page, featured, no-featured, published, by-user and by-category
+         */
+        private Map<String, Strategy> strategies = new HashMap<>();
+
+        /**
+         * Age at which a cached total is counted again, correcting the writes of other nodes
+         */
+        private Duration recountInterval = Duration.ofMinutes(10);
+
+        /**
+         * Filters whose totals are cached
+         */
+        private long maxCachedCounts = 10_000;
+
+        public Strategy strategyOf(String list) {
+            return strategies.getOrDefault(list, defaultStrategy);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.taklip.yoda.content.config;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+
+/**
+ * Caffeine statistics of an L1 cache, counting its evictions by cause as well
+ *
+ * Caffeine's own statistics only tell how many entries were evicted, not whether they
+ * were pushed out by the weight bound or expired.
+ */
+public class EvictionCauseStatsCounter implements StatsCounter {
+    private final StatsCounter delegate = new ConcurrentStatsCounter();
+    private final Map<RemovalCause, LongAdder> evictions = new EnumMap<>(RemovalCause.class);
+
+    public EvictionCauseStatsCounter() {
+        for (RemovalCause cause : RemovalCause.values()) {
+            if (cause.wasEvicted()) {
+                evictions.put(cause, new LongAdder());
+            }
+        }
+    }
+
+    @Override
+    public void recordHits(int count) {
+        delegate.recordHits(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        delegate.recordMisses(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {
+        delegate.recordLoadSuccess(loadTime);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTime) {
+        delegate.recordLoadFailure(loadTime);
+    }
+
+    @Override
+    public void recordEviction(int weight, RemovalCause cause) {
+        delegate.recordEviction(weight, cause);
+        LongAdder count = evictions.get(cause);
+        if (count != null) {
+            count.increment();
+        }
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return delegate.snapshot();
+    }
+
+    /**
+     * Evictions since the last reset, by cause
+     */
+    public Map<String, Long> evictionsByCause() {
+        Map<String, Long> byCause = new LinkedHashMap<>();
+        evictions.forEach((cause, count) -> byCause.put(cause.name(), count.sum()));
+        return byCause;
+    }
+
+    public void reset() {
+        evictions.values().forEach(LongAdder::reset);
+    }
+}
@@ -0,0 +1,20 @@
+package com.taklip.yoda.content.config;
+
+import java.lang.reflect.Method;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Key of the hit counter of a content, cached next to the content by id as "id:{id}:hit-counter"
+ */
+@Component("hitCounterCacheKeyGenerator")
+public class HitCounterCacheKeyGenerator implements KeyGenerator {
+    private static final String PREFIX = "id";
+    private static final String SUFFIX = "hit-counter";
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return CacheKey.of(PREFIX, params[0], SUFFIX);
+    }
+}
@@ -0,0 +1,132 @@
+package com.taklip.yoda.content.config;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.taklip.yoda.content.util.CountMinSketch;
+
+/**
+ * Streaming detector of the most requested keys of a cache
+ *
+ * Every lookup is counted in a count-min sketch, whose counters are halved after ten
+ * lookups per counter so the frequencies follow recent traffic. A key counted at least
+ * the minimum frequency joins the hot keys, replacing the least frequent one once there
+ * are top-K of them, and leaves them when its frequency decays below the minimum.
+ */
+public class HotKeyDetector {
+    private static final int SAMPLE_SIZE_PER_COUNTER = 10;
+
+    private final CountMinSketch sketch;
+    private final int topK;
+    private final long minFrequency;
+    private final Consumer<Object> onDemoted;
+    private final Set<Object> hotKeys = ConcurrentHashMap.newKeySet();
+    // Lowest frequency among the full set of hot keys, and the aging it was computed at
+    private volatile long floor;
+    private volatile long floorResets;
+
+    /**
+     * @param onDemoted called with each key leaving the hot keys
+     */
+    public HotKeyDetector(int topK, long minFrequency, int sketchWidth, Consumer<Object> onDemoted) {
+        this.sketch = new CountMinSketch(sketchWidth, (long) sketchWidth * SAMPLE_SIZE_PER_COUNTER);
+        this.topK = topK;
+        this.minFrequency = Math.max(1, minFrequency);
+        this.onDemoted = onDemoted;
+    }
+
+    /**
+     * Count a lookup of the key
+     *
+     * @return whether the key is one of the hot keys
+     */
+    public boolean record(Object key) {
+        long frequency = sketch.add(hash(key));
+        if (hotKeys.contains(key)) {
+            if (frequency >= minFrequency) {
+                return true;
+            }
+            if (hotKeys.remove(key)) {
+                onDemoted.accept(key);
+            }
+            return false;
+        }
+        return frequency >= minFrequency && topK > 0 && admit(key, frequency);
+    }
+
+    public boolean isHot(Object key) {
+        return hotKeys.contains(key);
+    }
+
+    /**
+     * The hot keys and their estimated recent frequency, most frequent first
+     */
+    public Map<Object, Long> getHotKeys() {
+        Map<Object, Long> frequencies = new LinkedHashMap<>();
+        hotKeys.stream()
+                .map(key -> Map.entry(key, sketch.estimate(hash(key))))
+                .sorted(Map.Entry.<Object, Long>comparingByValue().reversed())
+                .forEach(entry -> frequencies.put(entry.getKey(), entry.getValue()));
+        return frequencies;
+    }
+
+    private boolean admit(Object key, long frequency) {
+        // Most warm keys are not as frequent as the hot ones, and are rejected without a lock
+        if (hotKeys.size() >= topK && frequency <= floor && floorResets == sketch.getResets()) {
+            return false;
+        }
+
+        Object demoted = null;
+        synchronized (this) {
+            if (hotKeys.contains(key)) {
+                return true;
+            }
+            if (hotKeys.size() >= topK) {
+                List<Object> keys = new ArrayList<>(hotKeys);
+                Object coldest = keys.stream()
+                        .min(Comparator.comparingLong(hotKey -> sketch.estimate(hash(hotKey))))
+                        .orElse(null);
+                long coldestFrequency = coldest != null ? sketch.estimate(hash(coldest)) : 0;
+                floorResets = sketch.getResets();
+                if (coldest != null && coldestFrequency >= frequency) {
+                    floor = coldestFrequency;
+                    return false;
+                }
+                hotKeys.remove(coldest);
+                demoted = coldest;
+                floor = 0;
+            }
+            hotKeys.add(key);
+        }
+        if (demoted != null) {
+            onDemoted.accept(demoted);
+        }
+        return true;
+    }
+
+    /**
+     * Ids and structured keys are hashed as is, other keys with the 64-bit FNV-1a hash of
+     * their string, spreading over the sketch better than a 32-bit hash code
+     */
+    private static long hash(Object key) {
+        if (key instanceof Long id) {
+            return id;
+        }
+        if (key instanceof CacheKey cacheKey) {
+            return cacheKey.hashCode();
+        }
+        String text = key.toString();
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,33 @@
+package com.taklip.yoda.content.config;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidation messages synchronously between buses sharing the same hub,
+ * to run several nodes in one JVM in tests
+ */
+public class InMemoryCacheInvalidationTransport implements CacheInvalidationTransport {
+    private static final List<Consumer<String>> SHARED_HUB = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<String>> hub;
+
+    public InMemoryCacheInvalidationTransport() {
+        this(SHARED_HUB);
+    }
+
+    public InMemoryCacheInvalidationTransport(List<Consumer<String>> hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void send(String payload) {
+        hub.forEach(receiver -> receiver.accept(payload));
+    }
+
+    @Override
+    public void subscribe(Consumer<String> receiver) {
+        hub.add(receiver);
+    }
+}
@@ -0,0 +1,253 @@
+package com.taklip.yoda.content.config;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tier of a {@link TwoLevelCache} between L1 and L2 holding its large values serialized
+ * in direct memory, outside the heap scanned by the garbage collector
+ *
+ * The memory is allocated once and split into segments, each guarded by its own lock and
+ * cut into fixed-size blocks. A value takes as many blocks as its serialized size needs,
+ * not necessarily contiguous, and the least recently read values of a segment are evicted
+ * to free blocks for a new one. Values are serialized with the cache's L2 codec.
+ */
+@Slf4j
+public class OffHeapCacheStore {
+    private final String cacheName;
+    private final SerializationPair<Object> serializer;
+    private final long minValueBytes;
+    private final long expireAfterWriteNanos;
+    private final int blockSize;
+    private final Segment[] segments;
+    private final Counter evictions;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * @param minValueBytes estimated heap of a value from which it is kept here rather than in L1
+     */
+    public OffHeapCacheStore(String cacheName, SerializationPair<Object> serializer, long capacityBytes,
+            int blockSize, int segmentCount, long minValueBytes, Duration expireAfterWrite,
+            MeterRegistry meterRegistry) {
+        this.cacheName = cacheName;
+        this.serializer = serializer;
+        this.minValueBytes = minValueBytes;
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+        this.blockSize = blockSize;
+        int blocksPerSegment = (int) Math.min(Integer.MAX_VALUE / blockSize,
+                Math.max(1, capacityBytes / blockSize / segmentCount));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(blocksPerSegment);
+        }
+
+        Gauge.builder("cache.offheap.used", usedBytes, AtomicLong::get)
+                .description("Direct memory taken by the blocks of the off-heap values")
+                .baseUnit("bytes")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        Gauge.builder("cache.offheap.capacity", this, OffHeapCacheStore::getCapacityBytes)
+                .description("Direct memory allocated to the off-heap values")
+                .baseUnit("bytes")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        Gauge.builder("cache.offheap.entries", this, OffHeapCacheStore::size)
+                .description("Values held off-heap")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        this.evictions = Counter.builder("cache.offheap.evictions")
+                .description("Off-heap values evicted to make room for others")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the value is large enough to be kept off-heap
+     */
+    public boolean accepts(Object value) {
+        return CacheValueWeigher.sizeOf(value) >= minValueBytes;
+    }
+
+    public ValueWrapper get(Object key) {
+        byte[] bytes = segmentOf(key).read(key);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return new SimpleValueWrapper(serializer.read(ByteBuffer.wrap(bytes)));
+        } catch (SerializationException e) {
+            log.warn("Dropping unreadable off-heap value of cache {} for key {}: {}", cacheName, key, e.getMessage());
+            evict(key);
+            return null;
+        }
+    }
+
+    /**
+     * Store the value if it is large enough and fits in its segment
+     *
+     * @return whether the value was stored, any previous value of the key being removed otherwise
+     */
+    public boolean put(Object key, Object value) {
+        Segment segment = segmentOf(key);
+        if (!accepts(value)) {
+            segment.remove(key);
+            return false;
+        }
+
+        byte[] bytes;
+        try {
+            ByteBuffer buffer = serializer.write(value);
+            bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+        } catch (SerializationException e) {
+            log.debug("Value of cache {} for key {} cannot be kept off-heap: {}", cacheName, key, e.getMessage());
+            segment.remove(key);
+            return false;
+        }
+        return segment.write(key, bytes);
+    }
+
+    public void evict(Object key) {
+        segmentOf(key).remove(key);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public long getCapacityBytes() {
+        return (long) segments.length * segments[0].blockCount * blockSize;
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Entries, memory used and allocated, and evictions
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("entries", size());
+        statistics.put("usedBytes", getUsedBytes());
+        statistics.put("capacityBytes", getCapacityBytes());
+        statistics.put("evictions", (long) evictions.count());
+        return statistics;
+    }
+
+    private Segment segmentOf(Object key) {
+        int hash = key.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    /**
+     * Blocks of one off-heap value, in order, with the length of the value
+     */
+    private record Slot(int[] blocks, int length, long expiresAt) {
+    }
+
+    private final class Segment {
+        private final int blockCount;
+        private final ByteBuffer memory;
+        private final int[] freeBlocks;
+        private int freeCount;
+        // Least recently read first
+        private final LinkedHashMap<Object, Slot> slots = new LinkedHashMap<>(16, 0.75f, true);
+
+        Segment(int blockCount) {
+            this.blockCount = blockCount;
+            this.memory = ByteBuffer.allocateDirect(blockCount * blockSize);
+            this.freeBlocks = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                freeBlocks[i] = blockCount - 1 - i;
+            }
+            this.freeCount = blockCount;
+        }
+
+        synchronized byte[] read(Object key) {
+            Slot slot = slots.get(key);
+            if (slot == null) {
+                return null;
+            }
+            if (System.nanoTime() - slot.expiresAt >= 0) {
+                free(slots.remove(key));
+                return null;
+            }
+            byte[] bytes = new byte[slot.length];
+            for (int i = 0, offset = 0; offset < slot.length; i++, offset += blockSize) {
+                memory.get(slot.blocks[i] * blockSize, bytes, offset, Math.min(blockSize, slot.length - offset));
+            }
+            return bytes;
+        }
+
+        synchronized boolean write(Object key, byte[] bytes) {
+            int needed = Math.max(1, (bytes.length + blockSize - 1) / blockSize);
+            free(slots.remove(key));
+            if (needed > blockCount) {
+                return false;
+            }
+            Iterator<Slot> eldest = slots.values().iterator();
+            while (freeCount < needed) {
+                free(eldest.next());
+                eldest.remove();
+                evictions.increment();
+            }
+
+            int[] blocks = new int[needed];
+            for (int i = 0, offset = 0; i < needed; i++, offset += blockSize) {
+                blocks[i] = freeBlocks[--freeCount];
+                memory.put(blocks[i] * blockSize, bytes, offset, Math.min(blockSize, bytes.length - offset));
+            }
+            slots.put(key, new Slot(blocks, bytes.length, System.nanoTime() + expireAfterWriteNanos));
+            usedBytes.addAndGet((long) needed * blockSize);
+            return true;
+        }
+
+        synchronized void remove(Object key) {
+            free(slots.remove(key));
+        }
+
+        synchronized void clear() {
+            slots.values().forEach(this::free);
+            slots.clear();
+        }
+
+        synchronized int size() {
+            return slots.size();
+        }
+
+        private void free(Slot slot) {
+            if (slot == null) {
+                return;
+            }
+            for (int block : slot.blocks) {
+                freeBlocks[freeCount++] = block;
+            }
+            usedBytes.addAndGet(-(long) slot.blocks.length * blockSize);
+        }
+    }
+}
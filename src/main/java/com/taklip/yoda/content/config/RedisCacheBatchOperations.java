@@ -0,0 +1,192 @@
+package com.taklip.yoda.content.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cache.support.NullValue;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+/**
+ * Multi-key reads and writes of {@link RedisCache} entries in one round trip
+ *
+ * Keys and values are encoded with the cache's own configuration, so entries read or
+ * written here are the same as those of {@link RedisCache#get(Object)} and
+ * {@link RedisCache#put(Object, Object)}.
+ */
+public class RedisCacheBatchOperations {
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisCacheBatchOperations(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Read the entries of the keys with a single MGET
+     *
+     * @return the values in the order of the keys, null for a missing entry
+     */
+    public List<Object> getAll(RedisCache redisCache, List<?> keys) {
+        RedisCacheConfiguration configuration = redisCache.getCacheConfiguration();
+        byte[][] cacheKeys = new byte[keys.size()][];
+        for (int i = 0; i < keys.size(); i++) {
+            cacheKeys[i] = cacheKey(redisCache, keys.get(i));
+        }
+
+        List<byte[]> stored = redisTemplate.execute(
+                (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(cacheKeys));
+        List<Object> values = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] bytes = stored != null && i < stored.size() ? stored.get(i) : null;
+            Object value = bytes == null || bytes.length == 0
+                    ? null
+                    : configuration.getValueSerializationPair().read(ByteBuffer.wrap(bytes));
+            values.add(value instanceof NullValue ? null : value);
+        }
+        return values;
+    }
+
+    /**
+     * Write the entries with pipelined SETs, each with the TTL of the cache
+     */
+    public void putAll(RedisCache redisCache, Map<?, ?> entries) {
+        write(entries.entrySet().stream()
+                .map(entry -> new Write(redisCache, entry.getKey(), entry.getValue()))
+                .toList());
+    }
+
+    /**
+     * Write entries of any number of caches with pipelined SETs
+     */
+    void write(List<Write> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Write write : writes) {
+                RedisCacheConfiguration configuration = write.redisCache().getCacheConfiguration();
+                Duration ttl = configuration.getTtlFunction().getTimeToLive(write.key(), write.value());
+                connection.stringCommands().set(cacheKey(write.redisCache(), write.key()),
+                        toBytes(configuration.getValueSerializationPair().write(write.value())),
+                        ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl),
+                        SetOption.upsert());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Time to live left to an entry, from PTTL
+     *
+     * @return null when the entry is missing or does not expire
+     */
+    public Duration timeToLive(RedisCache redisCache, Object key) {
+        Long millis = redisTemplate.execute(
+                (RedisCallback<Long>) connection -> connection.keyCommands().pTtl(cacheKey(redisCache, key)));
+        return millis != null && millis >= 0 ? Duration.ofMillis(millis) : null;
+    }
+
+    /**
+     * Count the keys of a cache with SCAN, and estimate their memory from MEMORY USAGE
+     * of the first keys found
+     *
+     * @param maxKeys       keys scanned at most, the count being a lower bound when reached
+     * @param memorySamples keys whose memory usage is measured
+     */
+    public Map<String, Object> keyStatistics(RedisCache redisCache, int maxKeys, int memorySamples) {
+        RedisCacheConfiguration configuration = redisCache.getCacheConfiguration();
+        String pattern = (configuration.usePrefix() ? configuration.getKeyPrefixFor(redisCache.getName()) : "") + "*";
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            long keys = 0;
+            long sampledBytes = 0;
+            int sampled = 0;
+            ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build();
+            try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                while (cursor.hasNext() && keys < maxKeys) {
+                    byte[] key = cursor.next();
+                    keys++;
+                    if (sampled < memorySamples) {
+                        Object usage = connection.execute("MEMORY", "USAGE".getBytes(StandardCharsets.UTF_8), key);
+                        if (usage instanceof Number bytes) {
+                            sampledBytes += bytes.longValue();
+                            sampled++;
+                        }
+                    }
+                }
+            }
+            statistics.put("keys", keys);
+            statistics.put("truncated", keys >= maxKeys);
+            statistics.put("averageEntryBytes", sampled > 0 ? sampledBytes / sampled : 0);
+            statistics.put("estimatedMemoryBytes", sampled > 0 ? sampledBytes / sampled * keys : 0);
+            return null;
+        });
+        return statistics;
+    }
+
+    /**
+     * Key under which {@link RedisCache} stores the entry
+     */
+    private static byte[] cacheKey(RedisCache redisCache, Object key) {
+        RedisCacheConfiguration configuration = redisCache.getCacheConfiguration();
+        String convertedKey = convertKey(configuration.getConversionService(), key);
+        String cacheKey = configuration.usePrefix()
+                ? configuration.getKeyPrefixFor(redisCache.getName()) + convertedKey
+                : convertedKey;
+        return toBytes(configuration.getKeySerializationPair().write(cacheKey));
+    }
+
+    /**
+     * The key as {@link RedisCache} converts it: with the conversion service when it has a
+     * converter, such as for numbers, else with the key's own toString, as for
+     * {@link CacheKey}
+     */
+    static String convertKey(ConversionService conversionService, Object key) {
+        if (key instanceof String text) {
+            return text;
+        }
+        TypeDescriptor source = TypeDescriptor.forObject(key);
+        if (conversionService.canConvert(source, TypeDescriptor.valueOf(String.class))) {
+            return conversionService.convert(key, String.class);
+        }
+        if (overridesToString(key)) {
+            return key.toString();
+        }
+        throw new IllegalStateException("Cannot convert cache key " + key + " of " + key.getClass().getName()
+                + " to String; register a converter or override toString");
+    }
+
+    private static boolean overridesToString(Object key) {
+        try {
+            return key.getClass().getMethod("toString").getDeclaringClass() != Object.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    record Write(RedisCache redisCache, Object key, Object value) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.taklip.yoda.content.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Broadcasts invalidation messages over a Redis pub/sub channel
+ */
+@Slf4j
+public class RedisCacheInvalidationTransport implements CacheInvalidationTransport {
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ChannelTopic topic;
+
+    public RedisCacheInvalidationTransport(StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.topic = new ChannelTopic(channel);
+    }
+
+    @Override
+    public void send(String payload) {
+        try {
+            redisTemplate.convertAndSend(topic.getTopic(), payload);
+        } catch (Exception e) {
+            log.warn("Failed to publish cache invalidation on {}: {}", topic.getTopic(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> receiver) {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> receiver.accept(new String(message.getBody(), StandardCharsets.UTF_8)), topic);
+    }
+}
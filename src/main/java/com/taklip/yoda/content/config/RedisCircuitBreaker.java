@@ -0,0 +1,224 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker guarding the L2 operations against a slow or unavailable Redis
+ *
+ * Every call runs under a deadline much shorter than the client timeout. After a number
+ * of consecutive failures the circuit opens and calls return their fallback at once, so
+ * the caches serve from L1 only. Once the open duration has elapsed, a single call is let
+ * through as a probe: its success closes the circuit, its failure opens it again.
+ * Repairs of the L2 writes that failed run on a background thread once the circuit
+ * closes, and every repair interval while it stays closed.
+ */
+@Slf4j
+public class RedisCircuitBreaker implements DisposableBean {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Duration timeout;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final List<Runnable> repairListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService repairer;
+    private volatile long openedAtNanos;
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Counter timeoutCounter;
+    private final Counter rejectedCounter;
+
+    public RedisCircuitBreaker(Duration timeout, int failureThreshold, Duration openDuration,
+            Duration repairInterval, MeterRegistry meterRegistry) {
+        this.timeout = timeout;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.successCounter = meterRegistry.counter("cache.l2.calls", "result", "success");
+        this.failureCounter = meterRegistry.counter("cache.l2.calls", "result", "failure");
+        this.timeoutCounter = meterRegistry.counter("cache.l2.calls", "result", "timeout");
+        this.rejectedCounter = meterRegistry.counter("cache.l2.calls", "result", "rejected");
+        meterRegistry.gauge("cache.l2.circuit.state", state, current -> current.get().ordinal());
+
+        this.repairer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-circuit-repair");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = repairInterval.toMillis();
+        this.repairer.scheduleWithFixedDelay(() -> {
+            if (isClosed()) {
+                runRepairs();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run an L2 operation under the deadline, or return the fallback when the circuit is
+     * open or the operation fails
+     */
+    public <T> T call(Callable<T> operation, T fallback) {
+        Boolean probe = tryPermit();
+        if (probe == null) {
+            rejectedCounter.increment();
+            return fallback;
+        }
+
+        Future<T> future = executor.submit(operation);
+        try {
+            T result = future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            onSuccess(probe);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeoutCounter.increment();
+            onFailure(probe, "timed out after " + timeout.toMillis() + "ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SerializationException) {
+                // Redis answered, the entry itself is unreadable
+                onSuccess(probe);
+                log.warn("Ignoring unreadable L2 value: {}", e.getCause().getMessage());
+                return fallback;
+            }
+            failureCounter.increment();
+            onFailure(probe, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            onFailure(probe, "interrupted");
+        }
+        return fallback;
+    }
+
+    /**
+     * Run an L2 operation without result
+     *
+     * @return false when it was not run or failed
+     */
+    public boolean run(Runnable operation) {
+        return call(() -> {
+            operation.run();
+            return Boolean.TRUE;
+        }, Boolean.FALSE);
+    }
+
+    /**
+     * Whether L2 calls are currently let through
+     */
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Called off the caller's thread after the circuit closes again, and every repair
+     * interval while it is closed, to repair the L2 writes that failed meanwhile
+     */
+    public void onRepair(Runnable listener) {
+        repairListeners.add(listener);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        State current = state.get();
+        status.put("state", current.name());
+        status.put("consecutiveFailures", consecutiveFailures.get());
+        if (current != State.CLOSED) {
+            status.put("openForMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedAtNanos));
+        }
+        status.put("timeoutMs", timeout.toMillis());
+        status.put("successes", (long) successCounter.count());
+        status.put("failures", (long) failureCounter.count());
+        status.put("timeouts", (long) timeoutCounter.count());
+        status.put("rejected", (long) rejectedCounter.count());
+        return status;
+    }
+
+    @Override
+    public void destroy() {
+        repairer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return null when the call is not permitted, otherwise whether it is the half-open probe
+     */
+    private Boolean tryPermit() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return Boolean.FALSE;
+        }
+        if (current == State.OPEN && System.nanoTime() - openedAtNanos >= openDuration.toNanos()
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            log.info("Redis circuit half-open, probing L2");
+            return Boolean.TRUE;
+        }
+        return null;
+    }
+
+    private void onSuccess(boolean probe) {
+        successCounter.increment();
+        consecutiveFailures.set(0);
+        if (probe && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            log.info("✅ Redis circuit closed, L2 cache back in use");
+            repairer.execute(this::runRepairs);
+        }
+    }
+
+    private void runRepairs() {
+        for (Runnable listener : repairListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                log.warn("Failed to run Redis circuit repair listener: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void onFailure(boolean probe, String reason) {
+        if (probe) {
+            openedAtNanos = System.nanoTime();
+            state.set(State.OPEN);
+            log.warn("Redis circuit probe failed ({}), L2 cache bypassed for another {}ms", reason,
+                    openDuration.toMillis());
+            return;
+        }
+
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.get() == State.CLOSED) {
+            // Set before opening, so a caller never sees the circuit open since an old instant
+            openedAtNanos = System.nanoTime();
+            if (state.compareAndSet(State.CLOSED, State.OPEN)) {
+                log.warn("⚠️ Redis circuit opened after {} consecutive failures ({}), serving from L1 only",
+                        consecutiveFailures.get(), reason);
+            }
+        }
+    }
+}
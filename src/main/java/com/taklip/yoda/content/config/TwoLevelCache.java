@@ -0,0 +1,982 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.taklip.yoda.content.service.CacheEventRecorder;
+import com.taklip.yoda.content.service.CacheLoggingService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Two-Level Cache implementation
+ *
+ * With an {@link OffHeapCacheStore}, large values are kept serialized off-heap instead
+ * of in L1, which then holds the small ones, the hot keys being pinned on the heap.
+ */
+@Slf4j
+public class TwoLevelCache implements Cache {
+    private static final long MAX_REFRESH_STATES = 10_000;
+    private static final int MAX_MISSED_L2_EVICTIONS = 10_000;
+
+    private final String name;
+    private final Cache l1Cache;
+    private final Cache l2Cache;
+    private final CacheEventRecorder events;
+    private final TwoLevelCacheStats stats = new TwoLevelCacheStats();
+    private EvictionCauseStatsCounter l1StatsCounter;
+    private final CacheTagIndex tagIndex;
+    private final CacheInvalidationBus invalidationBus;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+    private CacheLoadLease loadLease;
+    private ContentCacheProperties.RefreshPolicy refreshPolicy;
+    private CacheRefresher refresher;
+    private com.github.benmanes.caffeine.cache.Cache<Object, RefreshState> refreshStates;
+    private CacheWriteBehind writeBehind;
+    private RedisCircuitBreaker circuitBreaker;
+    private RedisCacheBatchOperations batchOperations;
+    private HotKeyDetector hotKeyDetector;
+    private OffHeapCacheStore offHeap;
+    private CacheGenerations generations;
+    private Duration pinRefreshInterval;
+    // Hot keys held apart from L1, so they are neither evicted nor expired while hot
+    private final ConcurrentMap<Object, PinnedEntry> pinned = new ConcurrentHashMap<>();
+    // L2 evictions that could not be applied, and keys whose L2 put failed or timed out
+    private final Set<Object> missedL2Evictions = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean missedL2Clear = new AtomicBoolean();
+
+    /**
+     * @param invalidationBus broadcasts evictions to the L1 of other nodes, or null on a single node
+     */
+    public TwoLevelCache(String name, Cache l1Cache, Cache l2Cache, CacheLoggingService cacheLoggingService,
+            CacheTagIndex tagIndex, CacheInvalidationBus invalidationBus) {
+        this.name = name;
+        this.l1Cache = l1Cache;
+        this.l2Cache = l2Cache;
+        this.events = cacheLoggingService.forCache(name);
+        this.tagIndex = tagIndex;
+        this.invalidationBus = invalidationBus;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return lookup(key, true);
+    }
+
+    /**
+     * Read the key through the layers, recording the lookup in the statistics, the
+     * events and the hot keys only when counted
+     */
+    private ValueWrapper lookup(Object key, boolean counted) {
+        long start = System.nanoTime();
+        boolean hot = counted && hotKeyDetector != null && hotKeyDetector.record(key);
+
+        // Step 1: Check the pinned hot keys, then L1 (Caffeine)
+        PinnedEntry pinnedEntry = hot ? pinned.get(key) : null;
+        if (pinnedEntry != null) {
+            refreshPinnedIfDue(key, pinnedEntry);
+            stats.recordL1Hit();
+            events.hit(CacheEventRecorder.LAYER_L1, key, System.nanoTime() - start);
+            return pinnedEntry.value;
+        }
+        ValueWrapper l1Value = l1Cache.get(key);
+        if (l1Value != null) {
+            if (hot) {
+                pin(key, l1Value);
+            }
+            if (counted) {
+                stats.recordL1Hit();
+                events.hit(CacheEventRecorder.LAYER_L1, key, System.nanoTime() - start);
+            }
+            return l1Value;
+        }
+
+        ValueWrapper offHeapValue = offHeap != null ? offHeap.get(key) : null;
+        if (offHeapValue != null) {
+            if (hot) {
+                pin(key, offHeapValue);
+            }
+            if (counted) {
+                stats.recordOffHeapHit();
+                events.hit(CacheEventRecorder.LAYER_OFF_HEAP, key, System.nanoTime() - start);
+            }
+            return offHeapValue;
+        }
+
+        // Step 2: Check L2 (Redis)
+        ValueWrapper l2Value = getFromL2(key);
+        if (l2Value != null) {
+            // Store locally for future requests, L2 is already indexed by the node that wrote it
+            putLocal(key, l2Value.get());
+            tagIndex.track(name, key, l2Value.get(), false);
+            if (hot) {
+                pin(key, l2Value);
+            }
+            if (counted) {
+                stats.recordL2Hit();
+                events.hit(CacheEventRecorder.LAYER_L2, key, System.nanoTime() - start);
+            }
+            return l2Value;
+        }
+
+        // Step 3: Cache miss
+        if (counted) {
+            stats.recordMiss();
+            events.miss(key, System.nanoTime() - start);
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        return wrapper != null ? (T) wrapper.get() : null;
+    }
+
+    /**
+     * Look up several keys at once: L1 in bulk, then the L1 misses in L2 with a single
+     * MGET when L2 is Redis
+     *
+     * @return the values found, in the order of the keys
+     */
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        // Each key is timed from the start of the batch to the layer answering it
+        long start = System.nanoTime();
+        Map<Object, Object> found = new LinkedHashMap<>();
+        List<Object> l1Keys = new ArrayList<>();
+        for (Object key : keys) {
+            boolean hot = hotKeyDetector != null && hotKeyDetector.record(key);
+            PinnedEntry pinnedEntry = hot ? pinned.get(key) : null;
+            if (pinnedEntry != null && pinnedEntry.value.get() != null) {
+                refreshPinnedIfDue(key, pinnedEntry);
+                found.put(key, pinnedEntry.value.get());
+                stats.recordL1Hit();
+                events.hit(CacheEventRecorder.LAYER_L1, key, System.nanoTime() - start);
+            } else {
+                l1Keys.add(key);
+            }
+        }
+
+        List<Object> l2Keys = new ArrayList<>();
+        Map<?, ?> l1Values = l1Keys.isEmpty() ? Map.of() : getAllFromL1(l1Keys);
+        for (Object key : l1Keys) {
+            Object value = l1Values.get(key);
+            ValueWrapper offHeapValue = value == null && offHeap != null ? offHeap.get(key) : null;
+            if (value != null) {
+                pinIfHot(key, value);
+                found.put(key, value);
+                stats.recordL1Hit();
+                events.hit(CacheEventRecorder.LAYER_L1, key, System.nanoTime() - start);
+            } else if (offHeapValue != null && offHeapValue.get() != null) {
+                pinIfHot(key, offHeapValue.get());
+                found.put(key, offHeapValue.get());
+                stats.recordOffHeapHit();
+                events.hit(CacheEventRecorder.LAYER_OFF_HEAP, key, System.nanoTime() - start);
+            } else {
+                l2Keys.add(key);
+            }
+        }
+        List<Object> l2Values = l2Keys.isEmpty() ? List.of() : getAllFromL2(l2Keys);
+        for (int i = 0; i < l2Keys.size(); i++) {
+            Object key = l2Keys.get(i);
+            Object value = l2Values.get(i);
+            if (value != null) {
+                putLocal(key, value);
+                tagIndex.track(name, key, value, false);
+                pinIfHot(key, value);
+                found.put(key, value);
+                stats.recordL2Hit();
+                events.hit(CacheEventRecorder.LAYER_L2, key, System.nanoTime() - start);
+            } else {
+                stats.recordMiss();
+                events.miss(key, System.nanoTime() - start);
+            }
+        }
+
+        // Keep the order of the keys for the entries pinned or found in L2
+        Map<Object, Object> ordered = new LinkedHashMap<>();
+        for (Object key : keys) {
+            Object value = found.get(key);
+            if (value != null) {
+                ordered.put(key, value);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Store several entries at once, writing them to L2 with pipelined SETs when L2 is Redis
+     */
+    public void putAll(Map<?, ?> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        entries.forEach(this::putLocal);
+        if (writeBehind != null) {
+            entries.forEach((key, value) -> writeBehind.put(name, l2Cache, key, value));
+        } else if (circuitBreaker != null) {
+            writeL2(entries.keySet(), () -> putAllToL2(entries));
+        } else {
+            putAllToL2(entries);
+        }
+        // The batch write is shared evenly between its entries
+        long perEntryNanos = (System.nanoTime() - start) / entries.size();
+        entries.forEach((key, value) -> {
+            tagIndex.track(name, key, value, true);
+            repin(key, value);
+            if (refreshStates != null) {
+                refreshStates.asMap().computeIfPresent(key, (k, state) -> new RefreshState(state.loader));
+            }
+            events.put(key, perEntryNanos);
+        });
+    }
+
+    /**
+     * Load a missing value at most once per node: concurrent misses on the same key share
+     * the first caller's load, which reads the cache again before loading. With a load
+     * lease, only one node in the cluster loads it while the others wait for it to appear
+     * in L2, the lease calls bounded by the deadline of the circuit breaker.
+     *
+     * With a refresh policy, a hit older than the soft TTL is served stale while the
+     * loader refreshes it in the background, and hot entries are refreshed ahead of that.
+     * The refresh calls the loader of the call that loaded the entry again, on a refresher
+     * thread. Spring's loader proceeds with the intercepted method invocation, which once
+     * complete invokes the cached method of the target directly: the reload skips the
+     * interceptors ordered after the cache interceptor, none for the cached queries.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            if (refreshPolicy != null) {
+                refreshIfDue(key, wrapper.get(), valueLoader);
+            }
+            return (T) wrapper.get();
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightLoads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return (T) awaitLoad(key, valueLoader, inFlight);
+        }
+
+        try {
+            // A load may have completed between the miss and winning the slot
+            ValueWrapper loaded = lookup(key, false);
+            T value = loaded != null ? (T) loaded.get() : loadValue(key, valueLoader);
+            load.complete(value);
+            return value;
+        } catch (Exception e) {
+            load.completeExceptionally(e);
+            log.error("Error loading value for key: {}", key, e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlightLoads.remove(key, load);
+        }
+    }
+
+    /**
+     * Only one node recomputes a key when a load lease is set
+     */
+    void setLoadLease(CacheLoadLease loadLease) {
+        this.loadLease = loadLease;
+    }
+
+    /**
+     * Write L2 puts asynchronously instead of on the caller's thread
+     */
+    void setWriteBehind(CacheWriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Read and write several L2 entries in one round trip
+     */
+    void setBatchOperations(RedisCacheBatchOperations batchOperations) {
+        this.batchOperations = batchOperations;
+    }
+
+    /**
+     * Guard L2 calls with a deadline, and bypass L2 while Redis is unavailable
+     */
+    void setCircuitBreaker(RedisCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Serve stale entries and refresh them asynchronously according to the policy
+     */
+    void setRefreshPolicy(ContentCacheProperties.RefreshPolicy refreshPolicy, CacheRefresher refresher) {
+        this.refreshPolicy = refreshPolicy;
+        this.refresher = refresher;
+        this.refreshStates = Caffeine.newBuilder()
+                .expireAfterWrite(refreshPolicy.getHardTtl())
+                .maximumSize(MAX_REFRESH_STATES)
+                .build();
+    }
+
+    /**
+     * Clear L2 by moving to the next generation of its keys rather than deleting them
+     */
+    void setGenerations(CacheGenerations generations) {
+        this.generations = generations;
+    }
+
+    /**
+     * Keep the large values off-heap rather than in L1
+     */
+    void setOffHeap(OffHeapCacheStore offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Statistics of the L1 cache kept by Caffeine, counting its evictions by cause
+     */
+    void setL1StatsCounter(EvictionCauseStatsCounter l1StatsCounter) {
+        this.l1StatsCounter = l1StatsCounter;
+    }
+
+    /**
+     * Lookups by the layer answering them, loads and L2 round-trip percentiles over the
+     * window, or since the last reset when null, with the current L1 size and evictions
+     */
+    public Map<String, Object> getStatistics(Duration window) {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("name", name);
+        statistics.put("resetAt", Instant.ofEpochMilli(stats.getResetAt()).toString());
+        statistics.putAll(stats.snapshot(window));
+        statistics.put("l1", getL1Statistics());
+        if (offHeap != null) {
+            statistics.put("offHeap", offHeap.getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * Number and estimated memory of the L2 keys of this cache, scanning at most maxKeys
+     * keys, or an empty map when L2 is not Redis or is unavailable
+     */
+    public Map<String, Object> getL2KeyStatistics(int maxKeys, int memorySamples) {
+        if (batchOperations == null || !(l2Cache instanceof RedisCache redisCache)
+                || (circuitBreaker != null && !circuitBreaker.isClosed())) {
+            return Map.of();
+        }
+        try {
+            return batchOperations.keyStatistics(redisCache, maxKeys, memorySamples);
+        } catch (RuntimeException e) {
+            log.warn("Failed to scan the L2 keys of cache {}: {}", name, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    public void resetStatistics() {
+        stats.reset();
+        if (l1StatsCounter != null) {
+            l1StatsCounter.reset();
+        }
+    }
+
+    private Map<String, Object> getL1Statistics() {
+        Map<String, Object> l1 = new LinkedHashMap<>();
+        if (l1Cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            long entries = caffeine.estimatedSize();
+            l1.put("entries", entries);
+            caffeine.policy().eviction().ifPresent(eviction -> eviction.weightedSize().ifPresent(weight -> {
+                l1.put("estimatedBytes", weight);
+                l1.put("averageEntryBytes", entries > 0 ? weight / entries : 0);
+                l1.put("maximumBytes", eviction.getMaximum());
+            }));
+            l1.put("evictions", l1StatsCounter != null
+                    ? l1StatsCounter.evictionsByCause()
+                    : Map.of("total", caffeine.stats().evictionCount()));
+        }
+        l1.put("pinned", pinned.size());
+        return l1;
+    }
+
+    /**
+     * Pin the hot keys found by the detector, re-reading them from L2 in the background
+     * once pinned for the refresh interval
+     */
+    void setHotKeys(ContentCacheProperties.HotKeys hotKeys, CacheRefresher refresher) {
+        this.hotKeyDetector = new HotKeyDetector(hotKeys.getTopK(), hotKeys.getMinFrequency(),
+                hotKeys.getSketchWidth(), pinned::remove);
+        this.pinRefreshInterval = hotKeys.getRefreshInterval();
+        if (this.refresher == null) {
+            this.refresher = refresher;
+        }
+    }
+
+    /**
+     * The hot keys, most frequent first, with their estimated recent frequency and
+     * whether their value is pinned
+     */
+    public List<Map<String, Object>> getHotKeys() {
+        if (hotKeyDetector == null) {
+            return List.of();
+        }
+        List<Map<String, Object>> hotKeys = new ArrayList<>();
+        hotKeyDetector.getHotKeys().forEach((key, frequency) -> {
+            Map<String, Object> hotKey = new LinkedHashMap<>();
+            hotKey.put("key", key.toString());
+            hotKey.put("frequency", frequency);
+            hotKey.put("pinned", pinned.containsKey(key));
+            hotKeys.add(hotKey);
+        });
+        return hotKeys;
+    }
+
+    private void pin(Object key, ValueWrapper value) {
+        pinned.putIfAbsent(key, new PinnedEntry(value));
+        // The key may have been demoted meanwhile, which would leave it pinned for good
+        if (!hotKeyDetector.isHot(key)) {
+            pinned.remove(key);
+        }
+    }
+
+    private void pinIfHot(Object key, Object value) {
+        if (hotKeyDetector != null && hotKeyDetector.isHot(key)) {
+            pin(key, new SimpleValueWrapper(value));
+        }
+    }
+
+    private void repin(Object key, Object value) {
+        pinned.computeIfPresent(key, (k, entry) -> new PinnedEntry(new SimpleValueWrapper(value)));
+    }
+
+    private void refreshPinnedIfDue(Object key, PinnedEntry entry) {
+        if (System.nanoTime() - entry.pinnedAt < pinRefreshInterval.toNanos()
+                || !entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        boolean submitted = refresher.submit(name, CacheRefresher.TRIGGER_PINNED, () -> refreshPinned(key, entry),
+                () -> entry.refreshing.set(false));
+        if (!submitted) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Re-read a pinned value from L2, unpinning it once gone from L2 so the next lookup
+     * loads it. While Redis is unavailable the pinned value keeps being served.
+     */
+    private Object refreshPinned(Object key, PinnedEntry entry) {
+        if (circuitBreaker != null && !circuitBreaker.isClosed()) {
+            return null;
+        }
+        ValueWrapper l2Value = getFromL2(key);
+        if (l2Value == null) {
+            pinned.remove(key, entry);
+            return null;
+        }
+        // Left as is when evicted or written meanwhile
+        pinned.replace(key, entry, new PinnedEntry(l2Value));
+        return l2Value.get();
+    }
+
+    private void refreshIfDue(Object key, Object value, Callable<?> valueLoader) {
+        RefreshState known = refreshStates.getIfPresent(key);
+        if (known == null) {
+            // Read before any write on this node, such as promoted from L2: aged from its L2 write
+            RefreshState created = new RefreshState(valueLoader, writtenAt(key, value));
+            known = refreshStates.asMap().putIfAbsent(key, created);
+            if (known == null) {
+                known = created;
+            }
+        }
+        RefreshState state = known;
+        long reads = state.reads.incrementAndGet();
+        long ageNanos = System.nanoTime() - state.writtenAt;
+        long softTtlNanos = refreshPolicy.getSoftTtl().toNanos();
+
+        String trigger;
+        if (ageNanos >= softTtlNanos) {
+            trigger = CacheRefresher.TRIGGER_STALE;
+        } else if (refreshPolicy.getRefreshAheadReads() > 0 && reads >= refreshPolicy.getRefreshAheadReads()
+                && ageNanos >= softTtlNanos * refreshPolicy.getRefreshAheadRatio()) {
+            trigger = CacheRefresher.TRIGGER_REFRESH_AHEAD;
+        } else {
+            return;
+        }
+
+        if (!state.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        Callable<?> loader = state.loader != null ? state.loader : valueLoader;
+        boolean submitted = refresher.submit(name, trigger, () -> loadAndPut(key, loader),
+                () -> state.refreshing.set(false));
+        if (!submitted) {
+            state.refreshing.set(false);
+        }
+    }
+
+    /**
+     * When the L2 entry of a key was written, in System.nanoTime terms, from the TTL it has
+     * left out of the TTL it was given. Now when L2 cannot tell, the entry then being aged
+     * from its first read on this node.
+     */
+    private long writtenAt(Object key, Object value) {
+        long now = System.nanoTime();
+        if (batchOperations == null || !(l2Cache instanceof RedisCache redisCache)) {
+            return now;
+        }
+        Duration left = circuitBreaker != null
+                ? circuitBreaker.call(() -> batchOperations.timeToLive(redisCache, key), null)
+                : batchOperations.timeToLive(redisCache, key);
+        if (left == null) {
+            return now;
+        }
+        Duration ttl = redisCache.getCacheConfiguration().getTtlFunction().getTimeToLive(key, value);
+        return now - Math.max(0, ttl.minus(left).toNanos());
+    }
+
+    private <T> T loadValue(Object key, Callable<T> valueLoader) throws Exception {
+        if (loadLease == null || (circuitBreaker != null && !circuitBreaker.isClosed())) {
+            return loadAndPut(key, valueLoader);
+        }
+
+        // Past the deadline of the circuit the lease is granted, as when Redis fails
+        boolean acquired = circuitBreaker != null
+                ? circuitBreaker.call(() -> loadLease.tryAcquire(name, key), Boolean.TRUE)
+                : loadLease.tryAcquire(name, key);
+        if (!acquired) {
+            ValueWrapper loaded = awaitLeaseHolder(key);
+            if (loaded != null) {
+                @SuppressWarnings("unchecked")
+                T value = (T) loaded.get();
+                return value;
+            }
+            // The holder is too slow, load on this node rather than failing the request
+            return loadAndPut(key, valueLoader);
+        }
+
+        try {
+            return loadAndPut(key, valueLoader);
+        } finally {
+            // A release that fails leaves the lease to expire
+            if (circuitBreaker != null) {
+                circuitBreaker.run(() -> loadLease.release(name, key));
+            } else {
+                loadLease.release(name, key);
+            }
+        }
+    }
+
+    private <T> T loadAndPut(Object key, Callable<T> valueLoader) throws Exception {
+        long start = System.nanoTime();
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            stats.recordLoad(System.nanoTime() - start, false);
+            throw e;
+        }
+        stats.recordLoad(System.nanoTime() - start, true);
+        if (value != null) {
+            put(key, value);
+            if (refreshStates != null) {
+                refreshStates.put(key, new RefreshState(valueLoader));
+            }
+        }
+        return value;
+    }
+
+    private ValueWrapper getFromL2(Object key) {
+        if (writeBehind != null) {
+            ValueWrapper pending = writeBehind.getPending(name, key);
+            if (pending != null) {
+                return pending;
+            }
+        }
+        return circuitBreaker != null ? circuitBreaker.call(() -> getFromRedis(key), null) : getFromRedis(key);
+    }
+
+    private ValueWrapper getFromRedis(Object key) {
+        long start = System.nanoTime();
+        try {
+            return l2Cache.get(key);
+        } finally {
+            stats.recordL2RoundTrip(System.nanoTime() - start);
+        }
+    }
+
+    private Map<?, ?> getAllFromL1(Collection<?> keys) {
+        if (l1Cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            @SuppressWarnings("unchecked")
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> l1 =
+                    (com.github.benmanes.caffeine.cache.Cache<Object, Object>) caffeine;
+            Map<Object, Object> values = new LinkedHashMap<>(l1.getAllPresent(keys));
+            values.values().removeIf(NullValue.class::isInstance);
+            return values;
+        }
+
+        Map<Object, Object> values = new LinkedHashMap<>();
+        for (Object key : keys) {
+            ValueWrapper wrapper = l1Cache.get(key);
+            if (wrapper != null && wrapper.get() != null) {
+                values.put(key, wrapper.get());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the values in the order of the keys, null for a miss
+     */
+    private List<Object> getAllFromL2(List<Object> keys) {
+        List<Object> values = new ArrayList<>(keys.size());
+        List<Object> redisKeys = new ArrayList<>();
+        for (Object key : keys) {
+            ValueWrapper pending = writeBehind != null ? writeBehind.getPending(name, key) : null;
+            values.add(pending != null ? pending.get() : null);
+            if (pending == null) {
+                redisKeys.add(key);
+            }
+        }
+        if (redisKeys.isEmpty()) {
+            return values;
+        }
+
+        List<Object> redisValues;
+        if (batchOperations != null && l2Cache instanceof RedisCache redisCache) {
+            redisValues = circuitBreaker != null
+                    ? circuitBreaker.call(() -> getAllFromRedis(redisCache, redisKeys), null)
+                    : getAllFromRedis(redisCache, redisKeys);
+        } else {
+            redisValues = new ArrayList<>(redisKeys.size());
+            for (Object key : redisKeys) {
+                ValueWrapper wrapper = getFromL2(key);
+                redisValues.add(wrapper != null ? wrapper.get() : null);
+            }
+        }
+        if (redisValues == null) {
+            return values;
+        }
+
+        int next = 0;
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) == null) {
+                values.set(i, redisValues.get(next++));
+            }
+        }
+        return values;
+    }
+
+    private List<Object> getAllFromRedis(RedisCache redisCache, List<Object> keys) {
+        long start = System.nanoTime();
+        try {
+            return batchOperations.getAll(redisCache, keys);
+        } finally {
+            stats.recordL2RoundTrip(System.nanoTime() - start);
+        }
+    }
+
+    private void putAllToL2(Map<?, ?> entries) {
+        if (batchOperations != null && l2Cache instanceof RedisCache redisCache) {
+            long start = System.nanoTime();
+            try {
+                batchOperations.putAll(redisCache, entries);
+            } finally {
+                stats.recordL2RoundTrip(System.nanoTime() - start);
+            }
+        } else {
+            entries.forEach(this::putToL2);
+        }
+    }
+
+    private void putToL2(Object key, Object value) {
+        long start = System.nanoTime();
+        try {
+            l2Cache.put(key, value);
+        } finally {
+            stats.recordL2RoundTrip(System.nanoTime() - start);
+        }
+    }
+
+    private ValueWrapper awaitLeaseHolder(Object key) throws InterruptedException {
+        long deadline = System.nanoTime() + loadLease.getWaitTime().toNanos();
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(loadLease.getPollInterval().toMillis());
+            ValueWrapper l2Value = getFromL2(key);
+            if (l2Value != null) {
+                putLocal(key, l2Value.get());
+                tagIndex.track(name, key, l2Value.get(), false);
+                return l2Value;
+            }
+        }
+        return null;
+    }
+
+    private Object awaitLoad(Object key, Callable<?> valueLoader, CompletableFuture<Object> inFlight) {
+        try {
+            return inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } catch (ExecutionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        long start = System.nanoTime();
+        // Store in both L1, or off-heap, and L2
+        putLocal(key, value);
+        if (writeBehind != null) {
+            writeBehind.put(name, l2Cache, key, value);
+        } else if (circuitBreaker != null) {
+            writeL2(List.of(key), () -> putToL2(key, value));
+        } else {
+            putToL2(key, value);
+        }
+        tagIndex.track(name, key, value, true);
+        repin(key, value);
+        if (refreshStates != null) {
+            refreshStates.asMap().computeIfPresent(key, (k, state) -> new RefreshState(state.loader));
+        }
+        events.put(key, System.nanoTime() - start);
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictBothLevels(key);
+        if (invalidationBus != null) {
+            invalidationBus.publishEvict(name, key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        // Clear L2 first, so L1 is not filled again from the entries being cleared
+        cancelPendingWrites();
+        clearL2();
+        clearLocalLevels();
+        tagIndex.untrackAll(name);
+        forgetRefreshStates();
+        events.clear();
+        if (invalidationBus != null && generations != null) {
+            invalidationBus.publishClear(name, generations.current(name));
+        } else if (invalidationBus != null) {
+            invalidationBus.publishClear(name);
+        }
+    }
+
+    /**
+     * Evict from both L1 and L2 without notifying the other nodes
+     */
+    void evictBothLevels(Object key) {
+        evictLocalLevels(key);
+        cancelPendingWrite(key);
+        evictL2(key);
+        tagIndex.untrack(name, key);
+        forgetRefreshState(key);
+        events.evict(key);
+    }
+
+    /**
+     * Evict from this node's L1 only, applying an eviction made by another node
+     */
+    void evictLocal(Object key) {
+        evictLocalLevels(key);
+        // A put of this node still pending would bring back the value the other node evicted
+        cancelPendingWrite(key);
+        tagIndex.untrack(name, key);
+        forgetRefreshState(key);
+    }
+
+    /**
+     * Clear this node's L1 only, applying a clear made by another node
+     */
+    void clearLocal() {
+        clearLocalLevels();
+        cancelPendingWrites();
+        tagIndex.untrackAll(name);
+        forgetRefreshStates();
+    }
+
+    /**
+     * Apply the L2 evictions that failed or were skipped while the circuit was open
+     */
+    void replayMissedL2Evictions() {
+        if (missedL2Clear.getAndSet(false)) {
+            missedL2Evictions.clear();
+            clearL2();
+            return;
+        }
+        for (Object key : missedL2Evictions) {
+            missedL2Evictions.remove(key);
+            evictL2(key);
+        }
+    }
+
+    /**
+     * Store a value in L1, or off-heap when large enough, removing it from the other
+     */
+    private void putLocal(Object key, Object value) {
+        if (offHeap == null) {
+            l1Cache.put(key, value);
+        } else if (offHeap.put(key, value)) {
+            l1Cache.evict(key);
+        } else {
+            l1Cache.put(key, value);
+        }
+    }
+
+    private void evictLocalLevels(Object key) {
+        l1Cache.evict(key);
+        if (offHeap != null) {
+            offHeap.evict(key);
+        }
+        pinned.remove(key);
+    }
+
+    private void clearLocalLevels() {
+        l1Cache.clear();
+        if (offHeap != null) {
+            offHeap.clear();
+        }
+        pinned.clear();
+    }
+
+    private void evictL2(Object key) {
+        if (circuitBreaker == null) {
+            evictFromL2(key);
+        } else if (!circuitBreaker.run(() -> evictFromL2(key))) {
+            missedL2Eviction(key);
+        }
+    }
+
+    /**
+     * Write to L2 under the circuit breaker. A write sent to Redis that failed or timed out
+     * may still be applied after a later evict, so its keys are evicted at the next repair.
+     */
+    private void writeL2(Collection<?> keys, Runnable write) {
+        AtomicBoolean sent = new AtomicBoolean();
+        boolean written = circuitBreaker.run(() -> {
+            sent.set(true);
+            write.run();
+        });
+        if (!written && sent.get()) {
+            keys.forEach(this::missedL2Eviction);
+        }
+    }
+
+    /**
+     * Evict the key from L2 at the next repair, so L2 does not serve a stale value again
+     */
+    private void missedL2Eviction(Object key) {
+        if (missedL2Evictions.size() < MAX_MISSED_L2_EVICTIONS) {
+            missedL2Evictions.add(key);
+        } else {
+            missedL2Clear.set(true);
+        }
+    }
+
+    private void evictFromL2(Object key) {
+        long start = System.nanoTime();
+        try {
+            l2Cache.evict(key);
+        } finally {
+            stats.recordL2RoundTrip(System.nanoTime() - start);
+        }
+    }
+
+    private void clearL2() {
+        Runnable clear = generations != null ? () -> generations.advance(name) : l2Cache::clear;
+        if (circuitBreaker == null) {
+            clear.run();
+        } else if (!circuitBreaker.run(clear)) {
+            missedL2Clear.set(true);
+        }
+    }
+
+    private void cancelPendingWrite(Object key) {
+        if (writeBehind != null) {
+            writeBehind.cancel(name, key);
+        }
+    }
+
+    private void cancelPendingWrites() {
+        if (writeBehind != null) {
+            writeBehind.cancelAll(name);
+        }
+    }
+
+    private void forgetRefreshState(Object key) {
+        if (refreshStates != null) {
+            refreshStates.invalidate(key);
+        }
+    }
+
+    private void forgetRefreshStates() {
+        if (refreshStates != null) {
+            refreshStates.invalidateAll();
+        }
+    }
+
+    /**
+     * Value of a hot key, and when it was pinned or last re-read from L2
+     */
+    private static final class PinnedEntry {
+        private final long pinnedAt = System.nanoTime();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private final ValueWrapper value;
+
+        PinnedEntry(ValueWrapper value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * When an entry was written, and the loader to refresh it with
+     */
+    private static final class RefreshState {
+        private final long writtenAt;
+        private final AtomicLong reads = new AtomicLong();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private final Callable<?> loader;
+
+        RefreshState(Callable<?> loader) {
+            this(loader, System.nanoTime());
+        }
+
+        RefreshState(Callable<?> loader, long writtenAt) {
+            this.loader = loader;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
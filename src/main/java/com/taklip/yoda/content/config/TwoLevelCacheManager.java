@@ -1,40 +1,164 @@
 package com.taklip.yoda.content.config;
 
+import java.time.Duration;
 import java.util.Collection;
-import java.util.concurrent.Callable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
 
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheManager;
 
 import com.taklip.yoda.content.service.CacheLoggingService;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Two-Level Cache Manager that coordinates L1 (Caffeine) and L2 (Redis) caches
- * 
+ *
  * Flow:
  * 1. Check L1 (Caffeine) first - if hit, return immediately
  * 2. If L1 miss, check L2 (Redis) - if hit, store in L1 and return
  * 3. If L2 miss, load from database, store in both L1 and L2
+ *
+ * Writes invalidate by tag: every entry records the tags it depends on in the
+ * {@link CacheTagIndex}, and {@link #invalidateTags(Collection)} evicts only the
+ * entries depending on the changed data from both levels.
+ *
+ * With an {@link CacheInvalidationBus}, evictions and clears are broadcast so the
+ * other nodes drop the same entries from their own L1.
+ *
+ * Caches with a refresh policy serve entries past their soft TTL while a
+ * {@link CacheRefresher} reloads them in the background.
+ *
+ * The most requested keys of each cache are pinned apart from L1, so the hottest
+ * articles and pages are neither evicted nor expired from it while they stay hot.
+ *
+ * Caches with an off-heap tier keep their large values serialized in direct memory,
+ * sparing the heap and the garbage collector the bodies of the contents.
  */
 @Slf4j
 public class TwoLevelCacheManager implements CacheManager {
     private final CaffeineCacheManager l1CacheManager;
     private final RedisCacheManager l2CacheManager;
     private final CacheLoggingService cacheLoggingService;
+    private final CacheTagIndex tagIndex;
     private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private CacheInvalidationBus invalidationBus;
+    private CacheLoadLease loadLease;
+    private Set<String> loadLeaseCaches = Set.of();
+    private CacheRefresher refresher;
+    private Map<String, ContentCacheProperties.RefreshPolicy> refreshPolicies = Map.of();
+    private CacheWriteBehind writeBehind;
+    private RedisCircuitBreaker circuitBreaker;
+    private RedisCacheBatchOperations batchOperations;
+    private ContentCacheProperties.HotKeys hotKeys;
+    private Map<String, EvictionCauseStatsCounter> l1StatsCounters = Map.of();
+    private ContentCacheProperties.OffHeap offHeap;
+    private CacheGenerations generations;
+    private MeterRegistry meterRegistry;
+    // Tags whose shared L2 keys could not be evicted while Redis was unavailable
+    private final Set<String> missedSharedTags = ConcurrentHashMap.newKeySet();
 
     public TwoLevelCacheManager(CaffeineCacheManager l1CacheManager,
             RedisCacheManager l2CacheManager,
             CacheLoggingService cacheLoggingService) {
+        this(l1CacheManager, l2CacheManager, cacheLoggingService, new CacheTagIndex(CacheTagResolver.NONE));
+    }
+
+    public TwoLevelCacheManager(CaffeineCacheManager l1CacheManager,
+            RedisCacheManager l2CacheManager,
+            CacheLoggingService cacheLoggingService,
+            CacheTagIndex tagIndex) {
         this.l1CacheManager = l1CacheManager;
         this.l2CacheManager = l2CacheManager;
         this.cacheLoggingService = cacheLoggingService;
+        this.tagIndex = tagIndex;
+    }
+
+    /**
+     * Broadcast invalidations to the other nodes and apply theirs to this node's L1
+     */
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(this::applyRemoteInvalidation);
+    }
+
+    /**
+     * Let only one node recompute a missing key of the given caches, or of all caches when empty
+     */
+    public void setLoadLease(CacheLoadLease loadLease, Set<String> cacheNames) {
+        this.loadLease = loadLease;
+        this.loadLeaseCaches = Set.copyOf(cacheNames);
+    }
+
+    /**
+     * Serve stale entries of the caches with a policy while refreshing them in the background
+     */
+    public void setRefresh(CacheRefresher refresher, Map<String, ContentCacheProperties.RefreshPolicy> policies) {
+        this.refresher = refresher;
+        this.refreshPolicies = Map.copyOf(policies);
+    }
+
+    /**
+     * Write L2 puts behind the request thread
+     */
+    public void setWriteBehind(CacheWriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Read and write L2 entries of the bulk lookups with MGET and pipelined SETs
+     */
+    public void setBatchOperations(RedisCacheBatchOperations batchOperations) {
+        this.batchOperations = batchOperations;
+    }
+
+    /**
+     * Pin the hot keys of the caches in L1, re-reading them from L2 in the background
+     */
+    public void setHotKeys(ContentCacheProperties.HotKeys hotKeys, CacheRefresher refresher) {
+        this.hotKeys = hotKeys;
+        this.refresher = refresher;
+    }
+
+    /**
+     * Caffeine statistics of the L1 caches by name, counting their evictions by cause
+     */
+    public void setL1StatsCounters(Map<String, EvictionCauseStatsCounter> l1StatsCounters) {
+        this.l1StatsCounters = l1StatsCounters;
+    }
+
+    /**
+     * Keep the large values of the caches with an off-heap tier in direct memory
+     */
+    public void setOffHeap(ContentCacheProperties.OffHeap offHeap, MeterRegistry meterRegistry) {
+        this.offHeap = offHeap;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Clear the L2 caches by moving them to their next generation of keys
+     */
+    public void setGenerations(CacheGenerations generations) {
+        this.generations = generations;
+    }
+
+    /**
+     * Bypass L2 while Redis is slow or unavailable, and repair it once back
+     */
+    public void setCircuitBreaker(RedisCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        tagIndex.setCircuitBreaker(circuitBreaker);
+        circuitBreaker.onRepair(this::replayMissedL2Invalidations);
     }
 
     @Override
@@ -47,116 +171,176 @@ public class TwoLevelCacheManager implements CacheManager {
         return caches.keySet();
     }
 
-    private TwoLevelCache createTwoLevelCache(String name) {
-        Cache l1Cache = l1CacheManager.getCache(name);
-        Cache l2Cache = l2CacheManager.getCache(name);
-
-        if (l1Cache == null || l2Cache == null) {
-            log.warn("Cache '{}' not found in one of the cache managers", name);
-            return null;
-        }
-
-        return new TwoLevelCache(name, l1Cache, l2Cache, cacheLoggingService);
+    /**
+     * Statistics of each cache over the window, or since their last reset when null
+     */
+    public Map<String, Map<String, Object>> getStatistics(Duration window) {
+        Map<String, Map<String, Object>> statistics = new TreeMap<>();
+        caches.forEach((name, cache) -> statistics.put(name, cache.getStatistics(window)));
+        return statistics;
     }
 
     /**
-     * Two-Level Cache implementation
+     * Number and estimated memory of the L2 keys of each cache
      */
-    private static class TwoLevelCache implements Cache {
-
-        private final String name;
-        private final Cache l1Cache;
-        private final Cache l2Cache;
-        private final CacheLoggingService cacheLoggingService;
+    public Map<String, Map<String, Object>> getL2KeyStatistics(int maxKeys, int memorySamples) {
+        Map<String, Map<String, Object>> statistics = new TreeMap<>();
+        caches.forEach((name, cache) -> statistics.put(name, cache.getL2KeyStatistics(maxKeys, memorySamples)));
+        return statistics;
+    }
 
-        public TwoLevelCache(String name, Cache l1Cache, Cache l2Cache, CacheLoggingService cacheLoggingService) {
-            this.name = name;
-            this.l1Cache = l1Cache;
-            this.l2Cache = l2Cache;
-            this.cacheLoggingService = cacheLoggingService;
-        }
+    public void resetStatistics() {
+        caches.values().forEach(TwoLevelCache::resetStatistics);
+    }
 
-        @Override
-        public String getName() {
-            return name;
-        }
+    /**
+     * The hot keys of each cache with hot key pinning
+     */
+    public Map<String, List<Map<String, Object>>> getHotKeys() {
+        Map<String, List<Map<String, Object>>> hotKeysByCache = new TreeMap<>();
+        caches.forEach((name, cache) -> {
+            if (hotKeys != null && hotKeys.isPinned(name)) {
+                hotKeysByCache.put(name, cache.getHotKeys());
+            }
+        });
+        return hotKeysByCache;
+    }
 
-        @Override
-        public Object getNativeCache() {
-            return this;
+    /**
+     * Evict every entry depending on any of the tags from both L1 and L2
+     */
+    public void invalidateTags(Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return;
         }
 
-        @Override
-        public ValueWrapper get(Object key) {
-            String keyStr = key.toString();
-
-            // Step 1: Check L1 (Caffeine)
-            ValueWrapper l1Value = l1Cache.get(key);
-            if (l1Value != null) {
-                cacheLoggingService.logCacheHit("L1:" + name, keyStr, 0);
-                return l1Value;
+        Map<String, Set<Object>> localKeys = tagIndex.removeLocal(tags);
+        localKeys.forEach((cacheName, keys) -> {
+            TwoLevelCache cache = caches.get(cacheName);
+            if (cache != null) {
+                keys.forEach(cache::evictBothLevels);
             }
+        });
 
-            // Step 2: Check L2 (Redis)
-            ValueWrapper l2Value = l2Cache.get(key);
-            if (l2Value != null) {
-                // Store in L1 for future requests
-                l1Cache.put(key, l2Value.get());
-                cacheLoggingService.logCacheHit("L2:" + name, keyStr, 0);
-                return l2Value;
+        // Keys put into L2 by other nodes, skipping those already evicted above
+        Map<String, Set<String>> sharedKeys = Map.of();
+        if (circuitBreaker != null && !circuitBreaker.isClosed()) {
+            missedSharedTags.addAll(tags);
+        } else {
+            sharedKeys = tagIndex.removeShared(tags);
+        }
+        sharedKeys.forEach((cacheName, keys) -> {
+            TwoLevelCache cache = (TwoLevelCache) getCache(cacheName);
+            if (cache == null) {
+                return;
             }
+            Set<String> evicted = localKeys.getOrDefault(cacheName, Set.of()).stream()
+                    .map(Object::toString)
+                    .collect(Collectors.toSet());
+            keys.stream().filter(key -> !evicted.contains(key)).forEach(cache::evictBothLevels);
+        });
 
-            // Step 3: Cache miss
-            cacheLoggingService.logCacheMiss("L1+L2:" + name, keyStr, 0, "Not found in either cache");
-            return null;
+        // Other nodes resolve the tags against their own index
+        if (invalidationBus != null) {
+            invalidationBus.publishTags(tags);
         }
 
-        @Override
-        public <T> T get(Object key, Class<T> type) {
-            ValueWrapper wrapper = get(key);
-            return wrapper != null ? (T) wrapper.get() : null;
+        log.debug("Invalidated tags {} - local: {}, shared: {}", tags, localKeys, sharedKeys);
+    }
+
+    /**
+     * Apply to L2 the invalidations missed while the circuit was open
+     */
+    private void replayMissedL2Invalidations() {
+        caches.values().forEach(TwoLevelCache::replayMissedL2Evictions);
+        if (!missedSharedTags.isEmpty()) {
+            Set<String> tags = Set.copyOf(missedSharedTags);
+            missedSharedTags.removeAll(tags);
+            tagIndex.removeShared(tags).forEach((cacheName, keys) -> {
+                TwoLevelCache cache = (TwoLevelCache) getCache(cacheName);
+                if (cache != null) {
+                    keys.forEach(cache::evictBothLevels);
+                }
+            });
         }
+    }
 
-        @Override
-        public <T> T get(Object key, Callable<T> valueLoader) {
-            ValueWrapper wrapper = get(key);
-            if (wrapper != null) {
-                return (T) wrapper.get();
+    /**
+     * Apply the invalidations made by another node to this node's L1
+     */
+    void applyRemoteInvalidation(CacheInvalidationMessage message) {
+        // Before L1 is cleared, so it is filled again from the new generation only
+        if (generations != null) {
+            message.getGenerations().forEach(generations::apply);
+        }
+        for (String cacheName : message.getClears()) {
+            TwoLevelCache cache = caches.get(cacheName);
+            if (cache != null) {
+                cache.clearLocal();
             }
+        }
 
-            // Load from database and store in both caches
-            try {
-                T value = valueLoader.call();
-                put(key, value);
-                return value;
-            } catch (Exception e) {
-                log.error("Error loading value for key: {}", key, e);
-                throw new RuntimeException("Error loading value", e);
+        message.getKeys().forEach((cacheName, keys) -> {
+            TwoLevelCache cache = caches.get(cacheName);
+            if (cache != null) {
+                keys.forEach(key -> cache.evictLocal(CacheInvalidationMessage.decodeKey(key)));
             }
-        }
+        });
 
-        @Override
-        public void put(Object key, Object value) {
-            // Store in both L1 and L2
-            l1Cache.put(key, value);
-            l2Cache.put(key, value);
-            cacheLoggingService.logCachePut("L1+L2:" + name, key.toString(), 0);
+        if (!message.getTags().isEmpty()) {
+            tagIndex.removeLocal(message.getTags()).forEach((cacheName, keys) -> {
+                TwoLevelCache cache = caches.get(cacheName);
+                if (cache != null) {
+                    keys.forEach(cache::evictLocal);
+                }
+            });
         }
+    }
+
+    private TwoLevelCache createTwoLevelCache(String name) {
+        Cache l1Cache = l1CacheManager.getCache(name);
+        Cache l2Cache = l2CacheManager.getCache(name);
 
-        @Override
-        public void evict(Object key) {
-            // Evict from both L1 and L2
-            l1Cache.evict(key);
-            l2Cache.evict(key);
-            cacheLoggingService.logCacheEvict("L1+L2:" + name, key.toString(), 0);
+        if (l1Cache == null || l2Cache == null) {
+            log.warn("Cache '{}' not found in one of the cache managers", name);
+            return null;
         }
 
-        @Override
-        public void clear() {
-            // Clear both L1 and L2
-            l1Cache.clear();
-            l2Cache.clear();
-            cacheLoggingService.logCacheEvict("L1+L2:" + name, "ALL", 0);
+        TwoLevelCache cache = new TwoLevelCache(name, l1Cache, l2Cache, cacheLoggingService, tagIndex,
+                invalidationBus);
+        if (loadLease != null && (loadLeaseCaches.isEmpty() || loadLeaseCaches.contains(name))) {
+            cache.setLoadLease(loadLease);
+        }
+        if (writeBehind != null) {
+            cache.setWriteBehind(writeBehind);
+        }
+        if (circuitBreaker != null) {
+            cache.setCircuitBreaker(circuitBreaker);
+        }
+        if (batchOperations != null) {
+            cache.setBatchOperations(batchOperations);
+        }
+        EvictionCauseStatsCounter l1StatsCounter = l1StatsCounters.get(name);
+        if (l1StatsCounter != null) {
+            cache.setL1StatsCounter(l1StatsCounter);
+        }
+        if (generations != null && l2Cache instanceof RedisCache) {
+            cache.setGenerations(generations);
+        }
+        if (offHeap != null && offHeap.isOffHeap(name) && l2Cache instanceof RedisCache redisCache) {
+            // Serialized with the cache's L2 codec
+            cache.setOffHeap(new OffHeapCacheStore(name, redisCache.getCacheConfiguration().getValueSerializationPair(),
+                    offHeap.getCapacity().toBytes(), (int) offHeap.getBlockSize().toBytes(), offHeap.getSegments(),
+                    offHeap.getMinValueSize().toBytes(), offHeap.getExpireAfterWrite(), meterRegistry));
+            log.info("Off-heap tier of cache '{}' holding up to {}", name, offHeap.getCapacity());
+        }
+        if (refresher != null && hotKeys != null && hotKeys.isPinned(name)) {
+            cache.setHotKeys(hotKeys, refresher);
+        }
+        ContentCacheProperties.RefreshPolicy refreshPolicy = refreshPolicies.get(name);
+        if (refresher != null && refreshPolicy != null) {
+            cache.setRefreshPolicy(refreshPolicy, refresher);
         }
+        return cache;
     }
 }
@@ -0,0 +1,227 @@
+package com.taklip.yoda.content.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lookup, load and L2 round-trip statistics of a {@link TwoLevelCache}
+ *
+ * Events are counted since the last reset, and in one-minute buckets covering the
+ * last hour, so a snapshot may cover any whole number of minutes up to an hour.
+ * Latencies go to log-scale buckets four per doubling, so percentiles are upper
+ * bounds within 19% of the recorded values.
+ */
+public class TwoLevelCacheStats {
+    public static final Duration MAX_WINDOW = Duration.ofHours(1);
+    private static final int WINDOW_BUCKETS = (int) MAX_WINDOW.toMinutes();
+    private static final int LATENCY_BUCKETS = 128;
+    private static final double BUCKETS_PER_DOUBLING = 4;
+
+    private final LongSupplier clockMillis;
+    private final Counters total = new Counters();
+    private final Counters[] minutes = new Counters[WINDOW_BUCKETS];
+    private volatile long resetAt;
+
+    public TwoLevelCacheStats() {
+        this(System::currentTimeMillis);
+    }
+
+    TwoLevelCacheStats(LongSupplier clockMillis) {
+        this.clockMillis = clockMillis;
+        for (int i = 0; i < minutes.length; i++) {
+            minutes[i] = new Counters();
+        }
+        this.resetAt = clockMillis.getAsLong();
+    }
+
+    public void recordL1Hit() {
+        total.l1Hits.increment();
+        current().l1Hits.increment();
+    }
+
+    public void recordOffHeapHit() {
+        total.offHeapHits.increment();
+        current().offHeapHits.increment();
+    }
+
+    public void recordL2Hit() {
+        total.l2Hits.increment();
+        current().l2Hits.increment();
+    }
+
+    public void recordMiss() {
+        total.misses.increment();
+        current().misses.increment();
+    }
+
+    public void recordLoad(long nanos, boolean success) {
+        Counters minute = current();
+        (success ? total.loads : total.loadFailures).increment();
+        (success ? minute.loads : minute.loadFailures).increment();
+        total.loadNanos.add(nanos);
+        minute.loadNanos.add(nanos);
+    }
+
+    /**
+     * Record one call to Redis, a single or a batch operation alike
+     */
+    public void recordL2RoundTrip(long nanos) {
+        int bucket = latencyBucket(nanos);
+        total.l2RoundTrips.incrementAndGet(bucket);
+        current().l2RoundTrips.incrementAndGet(bucket);
+    }
+
+    /**
+     * Statistics over the window, or since the last reset when null
+     */
+    public Map<String, Object> snapshot(Duration window) {
+        Counters counters = window != null ? sumOfLast(window) : total;
+        long l1Hits = counters.l1Hits.sum();
+        long offHeapHits = counters.offHeapHits.sum();
+        long l2Hits = counters.l2Hits.sum();
+        long misses = counters.misses.sum();
+        long requests = l1Hits + offHeapHits + l2Hits + misses;
+        long loads = counters.loads.sum();
+        long loadFailures = counters.loadFailures.sum();
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("window", window != null ? window.toString() : "since-reset");
+        snapshot.put("requests", requests);
+        snapshot.put("l1Hits", l1Hits);
+        snapshot.put("offHeapHits", offHeapHits);
+        snapshot.put("l2Hits", l2Hits);
+        snapshot.put("misses", misses);
+        snapshot.put("l1HitRate", ratio(l1Hits, requests));
+        snapshot.put("l2HitRate", ratio(l2Hits, l2Hits + misses));
+        snapshot.put("hitRate", ratio(l1Hits + offHeapHits + l2Hits, requests));
+        snapshot.put("loads", loads);
+        snapshot.put("loadFailures", loadFailures);
+        snapshot.put("averageLoadMs", loads + loadFailures > 0
+                ? counters.loadNanos.sum() / 1e6 / (loads + loadFailures) : 0.0);
+
+        long[] roundTrips = new long[LATENCY_BUCKETS];
+        long calls = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            roundTrips[i] = counters.l2RoundTrips.get(i);
+            calls += roundTrips[i];
+        }
+        Map<String, Object> l2 = new LinkedHashMap<>();
+        l2.put("calls", calls);
+        l2.put("p50Ms", percentileMillis(roundTrips, calls, 0.5));
+        l2.put("p99Ms", percentileMillis(roundTrips, calls, 0.99));
+        l2.put("p999Ms", percentileMillis(roundTrips, calls, 0.999));
+        snapshot.put("l2RoundTrip", l2);
+        return snapshot;
+    }
+
+    public void reset() {
+        total.clear();
+        for (Counters minute : minutes) {
+            minute.clear();
+        }
+        resetAt = clockMillis.getAsLong();
+    }
+
+    public long getResetAt() {
+        return resetAt;
+    }
+
+    private Counters current() {
+        long minute = clockMillis.getAsLong() / 60_000;
+        Counters counters = minutes[(int) (minute % WINDOW_BUCKETS)];
+        if (counters.minute != minute) {
+            synchronized (counters) {
+                // Events recorded meanwhile in the expired minute are lost with it
+                if (counters.minute != minute) {
+                    counters.clear();
+                    counters.minute = minute;
+                }
+            }
+        }
+        return counters;
+    }
+
+    private Counters sumOfLast(Duration window) {
+        long now = clockMillis.getAsLong() / 60_000;
+        long count = Math.max(1, Math.min(WINDOW_BUCKETS, (window.toMillis() + 59_999) / 60_000));
+        Counters sum = new Counters();
+        for (Counters minute : minutes) {
+            if (minute.minute > now - count && minute.minute <= now) {
+                sum.add(minute);
+            }
+        }
+        return sum;
+    }
+
+    static int latencyBucket(long nanos) {
+        double micros = nanos / 1000.0;
+        if (micros <= 1) {
+            return 0;
+        }
+        return (int) Math.min(LATENCY_BUCKETS - 1, Math.ceil(Math.log(micros) / Math.log(2) * BUCKETS_PER_DOUBLING));
+    }
+
+    /**
+     * Upper bound of the bucket holding the percentile
+     */
+    private static double percentileMillis(long[] buckets, long count, double percentile) {
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.pow(2, i / BUCKETS_PER_DOUBLING) / 1000;
+            }
+        }
+        return Math.pow(2, (buckets.length - 1) / BUCKETS_PER_DOUBLING) / 1000;
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole > 0 ? (double) part / whole : 0.0;
+    }
+
+    private static final class Counters {
+        private volatile long minute = -1;
+        private final LongAdder l1Hits = new LongAdder();
+        private final LongAdder offHeapHits = new LongAdder();
+        private final LongAdder l2Hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder loads = new LongAdder();
+        private final LongAdder loadFailures = new LongAdder();
+        private final LongAdder loadNanos = new LongAdder();
+        private final AtomicLongArray l2RoundTrips = new AtomicLongArray(LATENCY_BUCKETS);
+
+        void clear() {
+            l1Hits.reset();
+            offHeapHits.reset();
+            l2Hits.reset();
+            misses.reset();
+            loads.reset();
+            loadFailures.reset();
+            loadNanos.reset();
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                l2RoundTrips.set(i, 0);
+            }
+        }
+
+        void add(Counters other) {
+            l1Hits.add(other.l1Hits.sum());
+            offHeapHits.add(other.offHeapHits.sum());
+            l2Hits.add(other.l2Hits.sum());
+            misses.add(other.misses.sum());
+            loads.add(other.loads.sum());
+            loadFailures.add(other.loadFailures.sum());
+            loadNanos.add(other.loadNanos.sum());
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                l2RoundTrips.addAndGet(i, other.l2RoundTrips.get(i));
+            }
+        }
+    }
+}
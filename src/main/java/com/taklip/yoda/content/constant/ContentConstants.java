@@ -50,6 +50,15 @@ public class ContentConstants {
     public static final String CACHE_CONTENT_BY_CATEGORY = "content:by:category:";
     public static final String CACHE_FEATURED_CONTENT = "content:featured";
     public static final String CACHE_PUBLISHED_CONTENT = "content:published";
+
+    // Cache Names
+    public static final String CACHE_NAME_CONTENT_BY_ID = "content:by:id";
+    public static final String CACHE_NAME_FEATURED = "content:featured";
+    public static final String CACHE_NAME_NO_FEATURED = "content:no:featured";
+    public static final String CACHE_NAME_PUBLISHED = "content:published";
+    public static final String CACHE_NAME_BY_CATEGORY = "content:by:category";
+    public static final String CACHE_NAME_BY_USER = "content:by:user";
+    public static final String CACHE_NAME_BY_TAGS = "content:by:tags";
     
     // Cache TTL (Time To Live) in seconds
     public static final long CACHE_TTL_CONTENT = 3600; // 1 hour
@@ -1,16 +1,28 @@
 package com.taklip.yoda.content.controller;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.cache.CacheManager;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.taklip.yoda.content.config.CacheInvalidationBus;
+import com.taklip.yoda.content.config.CacheRefresher;
+import com.taklip.yoda.content.config.CacheWriteBehind;
+import com.taklip.yoda.content.config.RedisCircuitBreaker;
+import com.taklip.yoda.content.config.TwoLevelCache;
+import com.taklip.yoda.content.config.TwoLevelCacheManager;
+import com.taklip.yoda.content.config.TwoLevelCacheStats;
+import com.taklip.yoda.content.service.ContentExistenceGuard;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -22,74 +34,91 @@ import lombok.extern.slf4j.Slf4j;
 @RequestMapping("/api/v1/monitor")
 @Tag(name = "Cache Monitoring", description = "Cache monitoring and statistics endpoints")
 public class CacheMonitorController {
+    private static final int L2_SCAN_MAX_KEYS = 100_000;
+    private static final int L2_MEMORY_SAMPLES = 20;
 
     @Autowired
     private CacheManager cacheManager;
 
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private CacheRefresher cacheRefresher;
+
+    @Autowired(required = false)
+    private CacheWriteBehind cacheWriteBehind;
+
+    @Autowired(required = false)
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private ContentExistenceGuard contentExistenceGuard;
+
     @GetMapping("/cache/stats")
-    @Operation(summary = "Get detailed cache statistics", description = "Retrieve comprehensive cache statistics including L1 and L2 cache details")
-    public ResponseEntity<Map<String, Object>> getDetailedCacheStatistics() {
+    @Operation(summary = "Get detailed cache statistics", description = "Lookups by layer, loads, L2 round-trip percentiles and L1 size and evictions of each cache, over a window such as 5m or since the last reset")
+    public ResponseEntity<Map<String, Object>> getDetailedCacheStatistics(
+            @RequestParam(required = false) String window,
+            @RequestParam(defaultValue = "false") boolean l2Keys) {
+        Duration windowDuration;
+        try {
+            windowDuration = window != null ? DurationStyle.detectAndParse(window) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid window: " + window));
+        }
+        if (windowDuration != null && windowDuration.compareTo(TwoLevelCacheStats.MAX_WINDOW) > 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Window is at most " + TwoLevelCacheStats.MAX_WINDOW));
+        }
+
         Map<String, Object> stats = new HashMap<>();
-        
-        // Get cache names
         String[] cacheNames = cacheManager.getCacheNames().toArray(new String[0]);
         stats.put("totalCaches", cacheNames.length);
         stats.put("cacheNames", cacheNames);
-        
-        // Detailed cache information
+
         Map<String, Object> cacheDetails = new HashMap<>();
         long totalHits = 0;
         long totalMisses = 0;
         long totalRequests = 0;
-        
-        for (String cacheName : cacheNames) {
-            Map<String, Object> cacheInfo = new HashMap<>();
-            org.springframework.cache.Cache cache = cacheManager.getCache(cacheName);
-            
-            if (cache != null) {
-                cacheInfo.put("name", cacheName);
-                cacheInfo.put("available", true);
-                cacheInfo.put("nativeCacheType", cache.getNativeCache().getClass().getSimpleName());
-                
-                // Get Caffeine cache statistics for L1 cache
-                if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
-                    com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache = 
-                        (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+
+        if (cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager) {
+            Map<String, Map<String, Object>> l2KeyStatistics = l2Keys
+                    ? twoLevelCacheManager.getL2KeyStatistics(L2_SCAN_MAX_KEYS, L2_MEMORY_SAMPLES)
+                    : Map.of();
+            for (Map.Entry<String, Map<String, Object>> entry : twoLevelCacheManager.getStatistics(windowDuration)
+                    .entrySet()) {
+                Map<String, Object> cacheInfo = new HashMap<>(entry.getValue());
+                if (l2KeyStatistics.containsKey(entry.getKey())) {
+                    cacheInfo.put("l2Keys", l2KeyStatistics.get(entry.getKey()));
+                }
+                cacheDetails.put(entry.getKey(), cacheInfo);
+
+                long hits = (long) cacheInfo.get("l1Hits") + (long) cacheInfo.get("offHeapHits")
+                        + (long) cacheInfo.get("l2Hits");
+                totalHits += hits;
+                totalMisses += (long) cacheInfo.get("misses");
+                totalRequests += (long) cacheInfo.get("requests");
+            }
+        } else {
+            // Caffeine only, when Redis was unavailable at startup
+            for (String cacheName : cacheNames) {
+                org.springframework.cache.Cache cache = cacheManager.getCache(cacheName);
+                if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
                     CacheStats caffeineStats = caffeineCache.stats();
-                    
                     Map<String, Object> l1Stats = new HashMap<>();
                     l1Stats.put("hitCount", caffeineStats.hitCount());
                     l1Stats.put("missCount", caffeineStats.missCount());
                     l1Stats.put("requestCount", caffeineStats.requestCount());
                     l1Stats.put("hitRate", caffeineStats.hitRate());
-                    l1Stats.put("missRate", caffeineStats.missRate());
-                    l1Stats.put("averageLoadPenalty", caffeineStats.averageLoadPenalty());
                     l1Stats.put("evictionCount", caffeineStats.evictionCount());
-                    l1Stats.put("evictionWeight", caffeineStats.evictionWeight());
-                    
-                    cacheInfo.put("l1CacheStats", l1Stats);
-                    
+                    cacheDetails.put(cacheName, Map.of("name", cacheName, "l1", l1Stats));
+
                     totalHits += caffeineStats.hitCount();
                     totalMisses += caffeineStats.missCount();
                     totalRequests += caffeineStats.requestCount();
                 }
-                
-                // For Redis cache (L2), we can't get detailed stats easily, but we can check availability
-                if (cacheName.contains("redis") || cache.getNativeCache().getClass().getName().contains("redis")) {
-                    Map<String, Object> l2Stats = new HashMap<>();
-                    l2Stats.put("type", "Redis");
-                    l2Stats.put("available", cache.getNativeCache() != null);
-                    cacheInfo.put("l2CacheStats", l2Stats);
-                }
-                
-            } else {
-                cacheInfo.put("name", cacheName);
-                cacheInfo.put("available", false);
             }
-            
-            cacheDetails.put(cacheName, cacheInfo);
         }
-        
+
         // Overall statistics
         Map<String, Object> overallStats = new HashMap<>();
         overallStats.put("totalHits", totalHits);
@@ -97,17 +126,24 @@ public class CacheMonitorController {
         overallStats.put("totalRequests", totalRequests);
         overallStats.put("overallHitRate", totalRequests > 0 ? (double) totalHits / totalRequests : 0.0);
         overallStats.put("overallMissRate", totalRequests > 0 ? (double) totalMisses / totalRequests : 0.0);
-        
+
+        stats.put("window", windowDuration != null ? windowDuration.toString() : "since-reset");
         stats.put("cacheDetails", cacheDetails);
         stats.put("overallStats", overallStats);
-        
-        // Log the statistics
-        log.info("📊 Cache Statistics Requested - Total Caches: {}, Total Requests: {}, Hit Rate: {:.2%}", 
-                totalRequests, totalRequests, overallStats.get("overallHitRate"));
-        
         return ResponseEntity.ok(stats);
     }
 
+    @PostMapping("/cache/stats/reset")
+    @Operation(summary = "Reset cache statistics", description = "Restart the counts, latencies and L1 eviction causes of every cache from zero")
+    public ResponseEntity<Map<String, Object>> resetCacheStatistics() {
+        if (!(cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager)) {
+            return ResponseEntity.ok(Map.of("reset", false));
+        }
+        twoLevelCacheManager.resetStatistics();
+        log.info("Cache statistics reset");
+        return ResponseEntity.ok(Map.of("reset", true));
+    }
+
     @GetMapping("/cache/health")
     @Operation(summary = "Check cache health", description = "Check if all caches are available and healthy")
     public ResponseEntity<Map<String, Object>> getCacheHealth() {
@@ -129,8 +165,13 @@ public class CacheMonitorController {
             }
         }
         
-        health.put("status", allCachesAvailable ? "UP" : "DEGRADED");
+        // L1-only while the Redis circuit is not closed
+        boolean l2Available = redisCircuitBreaker == null || redisCircuitBreaker.isClosed();
+        health.put("status", allCachesAvailable && l2Available ? "UP" : "DEGRADED");
         health.put("cacheHealth", cacheHealth);
+        if (redisCircuitBreaker != null) {
+            health.put("l2Circuit", redisCircuitBreaker.getStatus());
+        }
         health.put("totalCaches", cacheManager.getCacheNames().size());
         health.put("availableCaches", availableCount);
         health.put("unavailableCaches", cacheManager.getCacheNames().size() - availableCount);
@@ -159,7 +200,15 @@ public class CacheMonitorController {
         
         for (String cacheName : cacheManager.getCacheNames()) {
             org.springframework.cache.Cache cache = cacheManager.getCache(cacheName);
-            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
+            if (cache instanceof TwoLevelCache twoLevelCache) {
+                Map<String, Object> stats = twoLevelCache.getStatistics(null);
+                totalHits += (long) stats.get("l1Hits") + (long) stats.get("offHeapHits")
+                        + (long) stats.get("l2Hits");
+                totalMisses += (long) stats.get("misses");
+                totalRequests += (long) stats.get("requests");
+                l1CacheCount++;
+                l2CacheCount++;
+            } else if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
                 com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache = 
                     (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
                 CacheStats stats = caffeineCache.stats();
@@ -204,4 +253,48 @@ public class CacheMonitorController {
         
         return ResponseEntity.ok(summary);
     }
+
+    @GetMapping("/cache/invalidation")
+    @Operation(summary = "Get cache invalidation lag", description = "Propagation lag of the L1 invalidations received from each node")
+    public ResponseEntity<Map<String, Object>> getInvalidationStatistics() {
+        Map<String, Object> invalidation = new HashMap<>();
+        invalidation.put("nodeId", cacheInvalidationBus.getNodeId());
+        invalidation.put("sourceNodes", cacheInvalidationBus.getLagStatistics());
+        return ResponseEntity.ok(invalidation);
+    }
+
+    @GetMapping("/cache/refresh")
+    @Operation(summary = "Get cache refresh statistics", description = "Background refreshes of stale and hot entries by cache, trigger and result")
+    public ResponseEntity<Map<String, Map<String, Object>>> getRefreshStatistics() {
+        return ResponseEntity.ok(cacheRefresher.getStatistics());
+    }
+
+    @GetMapping("/cache/write-behind")
+    @Operation(summary = "Get cache write-behind statistics", description = "Pending, flushed and dropped asynchronous L2 writes")
+    public ResponseEntity<Map<String, Object>> getWriteBehindStatistics() {
+        if (cacheWriteBehind == null) {
+            return ResponseEntity.ok(Map.of("enabled", false));
+        }
+        Map<String, Object> statistics = new HashMap<>(cacheWriteBehind.getStatistics());
+        statistics.put("enabled", true);
+        return ResponseEntity.ok(statistics);
+    }
+
+    @GetMapping("/cache/missing")
+    @Operation(summary = "Get missing content statistics", description = "Lookups of nonexistent content ids rejected by the id filter or the negative cache")
+    public ResponseEntity<Map<String, Object>> getMissingContentStatistics() {
+        return ResponseEntity.ok(contentExistenceGuard.getStatistics());
+    }
+
+    @GetMapping("/cache/hot-keys")
+    @Operation(summary = "Get hot cache keys", description = "Most requested keys of each cache, their recent frequency and whether they are pinned in L1")
+    public ResponseEntity<Map<String, Object>> getHotKeys() {
+        Map<String, Object> hotKeys = new HashMap<>();
+        if (cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager) {
+            hotKeys.put("caches", twoLevelCacheManager.getHotKeys());
+        } else {
+            hotKeys.put("caches", Map.of());
+        }
+        return ResponseEntity.ok(hotKeys);
+    }
 }
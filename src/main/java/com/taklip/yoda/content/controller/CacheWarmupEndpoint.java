@@ -0,0 +1,26 @@
+package com.taklip.yoda.content.controller;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.taklip.yoda.content.service.CacheWarmer;
+
+/**
+ * Progress and timing of the startup cache warm-up, at /actuator/cachewarmup
+ */
+@Component
+@Endpoint(id = "cachewarmup")
+public class CacheWarmupEndpoint {
+
+    @Autowired
+    private CacheWarmer cacheWarmer;
+
+    @ReadOperation
+    public Map<String, Object> warmup() {
+        return cacheWarmer.getStatus();
+    }
+}
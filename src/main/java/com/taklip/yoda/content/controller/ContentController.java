@@ -1,5 +1,7 @@
 package com.taklip.yoda.content.controller;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,8 +16,11 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.taklip.yoda.content.constant.ContentConstants;
 import com.taklip.yoda.content.dto.ContentDTO;
 import com.taklip.yoda.content.dto.ContentPageResponse;
+import com.taklip.yoda.content.dto.TrendingContentDTO;
+import com.taklip.yoda.content.exception.ContentServiceException;
 import com.taklip.yoda.content.service.ContentService;
 import com.taklip.yoda.content.vo.ContentSearchVO;
 
@@ -60,12 +65,28 @@ public class ContentController {
         return ResponseEntity.ok(content);
     }
 
+    @GetMapping("/batch")
+    @Operation(summary = "Get contents by IDs", description = "Retrieve several contents in one call, in the requested order")
+    public ResponseEntity<List<ContentDTO>> getContentsByIds(
+            @Parameter(description = "Content IDs (comma-separated)") @RequestParam List<Long> ids) {
+        if (ids.size() > ContentConstants.MAX_PAGE_SIZE) {
+            throw new ContentServiceException(ContentConstants.ERROR_INVALID_CONTENT_DATA,
+                    "At most " + ContentConstants.MAX_PAGE_SIZE + " ids can be requested at once");
+        }
+        List<ContentDTO> contents = contentService.getContentsByIds(ids);
+        return ResponseEntity.ok(contents);
+    }
+
     @GetMapping("/page")
-    @Operation(summary = "Get content by page offset and limit", description = "Retrieve content by its page offset and limit")
+    @Operation(summary = "Get content by page offset and limit", description = "Retrieve content by its page offset and limit, or after the nextCursor of the previous page")
     public ResponseEntity<ContentPageResponse> getContentByPage(
             @Parameter(description = "Offset") @RequestParam(defaultValue = "0") Integer offset,
-            @Parameter(description = "Limit") @RequestParam(defaultValue = "10") Integer limit) {
-        ContentPageResponse content = contentService.getContentByPage(offset, limit);
+            @Parameter(description = "Limit") @RequestParam(defaultValue = "10") Integer limit,
+            @Parameter(description = "Cursor of the page, replacing the offset") @RequestParam(required = false) String cursor) {
+        checkPage(offset, limit);
+        ContentPageResponse content = cursor != null
+                ? contentService.getContentPageAfter(cursor, limit)
+                : contentService.getContentByPage(offset, limit);
         return ResponseEntity.ok(content);
     }
 
@@ -89,6 +110,7 @@ public class ContentController {
     public ResponseEntity<ContentPageResponse> getContentsByCategory(
             @Parameter(description = "Category ID") @PathVariable Long categoryId,
             @Parameter(description = "Limit number of results") @RequestParam(defaultValue = "20") Integer limit) {
+        checkPage(0, limit);
         ContentPageResponse contents = contentService.getContentsByCategory(categoryId, limit);
         return ResponseEntity.ok(contents);
     }
@@ -98,8 +120,12 @@ public class ContentController {
     public ResponseEntity<ContentPageResponse> getContentsByUser(
             @Parameter(description = "User ID") @PathVariable Long userId,
             @Parameter(description = "Offset") @RequestParam(defaultValue = "0") Integer offset,
-            @Parameter(description = "Limit") @RequestParam(defaultValue = "10") Integer limit) {
-        ContentPageResponse contents = contentService.getContentsByUser(userId, offset, limit);
+            @Parameter(description = "Limit") @RequestParam(defaultValue = "10") Integer limit,
+            @Parameter(description = "Cursor of the page, replacing the offset") @RequestParam(required = false) String cursor) {
+        checkPage(offset, limit);
+        ContentPageResponse contents = cursor != null
+                ? contentService.getContentsByUserAfter(userId, cursor, limit)
+                : contentService.getContentsByUser(userId, offset, limit);
         return ResponseEntity.ok(contents);
     }
 
@@ -108,10 +134,16 @@ public class ContentController {
     public ResponseEntity<ContentPageResponse> getFeaturedContents(
             @Parameter(description = "Feature data") @RequestParam(defaultValue = "true") Boolean featureData,
             @Parameter(description = "Limit number of results") @RequestParam(defaultValue = "10") Integer limit,
-            @Parameter(description = "Offset") @RequestParam(defaultValue = "0") Integer offset) {
+            @Parameter(description = "Offset") @RequestParam(defaultValue = "0") Integer offset,
+            @Parameter(description = "Cursor of the page, replacing the offset") @RequestParam(required = false) String cursor) {
+        checkPage(offset, limit);
         log.info("🔍 Getting {} contents for limit: {} and offset: {}", featureData ? "featured" : "no featured", limit, offset);
         ContentPageResponse contents = null;
-        if (featureData) {
+        if (cursor != null) {
+            contents = featureData
+                    ? contentService.getFeaturedContentsAfter(cursor, limit)
+                    : contentService.getNoFeaturedContentsAfter(cursor, limit);
+        } else if (featureData) {
             contents = contentService.getFeaturedContents(offset, limit);
         } else {
             contents = contentService.getNoFeaturedContents(offset, limit);
@@ -126,8 +158,23 @@ public class ContentController {
     @Operation(summary = "Get published contents", description = "Retrieve published contents")
     public ResponseEntity<ContentPageResponse> getPublishedContents(
             @Parameter(description = "Limit number of results") @RequestParam(defaultValue = "20") Integer limit,
-            @Parameter(description = "Offset") @RequestParam(defaultValue = "0") Integer offset) {
-        return ResponseEntity.ok(contentService.getPublishedContents(offset, limit));
+            @Parameter(description = "Offset") @RequestParam(defaultValue = "0") Integer offset,
+            @Parameter(description = "Cursor of the page, replacing the offset") @RequestParam(required = false) String cursor) {
+        checkPage(offset, limit);
+        return ResponseEntity.ok(cursor != null
+                ? contentService.getPublishedContentsAfter(cursor, limit)
+                : contentService.getPublishedContents(offset, limit));
+    }
+
+    @GetMapping("/trending")
+    @Operation(summary = "Get trending contents", description = "Retrieve the contents viewed the most over the last"
+            + " hour or day. Rankings are per node: each node ranks only the views it served.")
+    public ResponseEntity<List<TrendingContentDTO>> getTrendingContents(
+            @Parameter(description = "Window: hour or day") @RequestParam(defaultValue = "hour") String window,
+            @Parameter(description = "Category ID") @RequestParam(required = false) Long categoryId,
+            @Parameter(description = "Site ID") @RequestParam(required = false) Integer siteId,
+            @Parameter(description = "Limit number of results") @RequestParam(defaultValue = "10") Integer limit) {
+        return ResponseEntity.ok(contentService.getTrendingContents(window, categoryId, siteId, limit));
     }
 
     @GetMapping("/tags")
@@ -135,6 +182,7 @@ public class ContentController {
     public ResponseEntity<ContentPageResponse> getContentsByTags(
             @Parameter(description = "Tags (comma-separated)") @RequestParam String tags,
             @Parameter(description = "Limit number of results") @RequestParam(defaultValue = "20") Integer limit) {
+        checkPage(0, limit);
         ContentPageResponse contents = contentService.getContentsByTags(tags, limit);
         return ResponseEntity.ok(contents);
     }
@@ -201,4 +249,18 @@ public class ContentController {
         contentService.unfeatureContent(id);
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * Reject a negative offset or a limit outside 1..MAX_PAGE_SIZE before any query is built
+     */
+    private static void checkPage(Integer offset, Integer limit) {
+        if (limit == null || limit < 1 || limit > ContentConstants.MAX_PAGE_SIZE) {
+            throw new ContentServiceException(ContentConstants.ERROR_INVALID_CONTENT_DATA,
+                    "Limit must be between 1 and " + ContentConstants.MAX_PAGE_SIZE);
+        }
+        if (offset == null || offset < 0) {
+            throw new ContentServiceException(ContentConstants.ERROR_INVALID_CONTENT_DATA,
+                    "Offset must not be negative");
+        }
+    }
 }
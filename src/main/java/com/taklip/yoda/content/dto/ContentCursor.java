@@ -0,0 +1,46 @@
+package com.taklip.yoda.content.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.taklip.yoda.content.constant.ContentConstants;
+import com.taklip.yoda.content.exception.ContentServiceException;
+
+/**
+ * Position after the last content of a page in the (create_time DESC, id DESC) order
+ * of the content lists, handed to clients as an opaque token
+ *
+ * The next page seeks past this position through the index instead of skipping the
+ * rows of the previous pages, so its cost does not grow with its depth.
+ */
+public record ContentCursor(LocalDateTime createTime, Long id) {
+    private static final char SEPARATOR = '|';
+
+    /**
+     * Cursor after the given content, or null if its position is unknown
+     */
+    public static String after(LocalDateTime createTime, Long id) {
+        return createTime != null && id != null ? new ContentCursor(createTime, id).encode() : null;
+    }
+
+    public String encode() {
+        String position = createTime.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws ContentServiceException if the token is not a cursor
+     */
+    public static ContentCursor decode(String token) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = position.indexOf(SEPARATOR);
+            return new ContentCursor(LocalDateTime.parse(position.substring(0, separator)),
+                    Long.valueOf(position.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ContentServiceException(ContentConstants.ERROR_INVALID_CONTENT_DATA, "Invalid cursor: " + token);
+        }
+    }
+}
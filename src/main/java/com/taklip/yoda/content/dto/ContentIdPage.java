@@ -0,0 +1,108 @@
+package com.taklip.yoda.content.dto;
+
+import java.util.List;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.taklip.yoda.content.model.Content;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cached form of a content page: the ordered content ids and the page totals, the
+ * contents themselves being cached once by id
+ *
+ * Pages read after a cursor, or of a list whose total is not counted, have a total
+ * and pages of -1 and only tell whether another page follows.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentIdPage {
+
+    private List<Long> ids;
+    private long total;
+    private long current;
+    private long size;
+    private long pages;
+    private String nextCursor;
+    private boolean hasNext;
+
+    /**
+     * Create from a counted page of contents
+     */
+    public static ContentIdPage fromPage(IPage<Content> page) {
+        return ContentIdPage.builder()
+                .ids(page.getRecords().stream().map(Content::getId).toList())
+                .total(page.getTotal())
+                .current(page.getCurrent())
+                .size(page.getSize())
+                .pages(page.getPages())
+                // MyBatis-Plus reads page 0 as page 1
+                .hasNext(Math.max(1, page.getCurrent()) < page.getPages())
+                .build();
+    }
+
+    /**
+     * Create from a counted page of contents in the cursor order, selected with their
+     * create time, with the cursor of the next page if there is one
+     */
+    public static ContentIdPage fromPageWithCursor(IPage<Content> page) {
+        ContentIdPage idPage = fromPage(page);
+        List<Content> records = page.getRecords();
+        if (idPage.isHasNext() && !records.isEmpty()) {
+            idPage.setNextCursor(cursorAfter(records));
+        }
+        return idPage;
+    }
+
+    /**
+     * Create from the contents of an uncounted page, fetched with one more than the
+     * limit to tell whether another page follows
+     *
+     * @param withCursor whether the contents are in the cursor order, the next cursor being set
+     */
+    public static ContentIdPage uncounted(List<Content> records, long current, int limit, boolean withCursor) {
+        List<Content> page = records.subList(0, Math.min(limit, records.size()));
+        boolean hasNext = records.size() > limit;
+        return ContentIdPage.builder()
+                .ids(page.stream().map(Content::getId).toList())
+                .total(-1)
+                .current(current)
+                .size(limit)
+                .pages(-1)
+                .nextCursor(withCursor && hasNext && !page.isEmpty() ? cursorAfter(page) : null)
+                .hasNext(hasNext)
+                .build();
+    }
+
+    /**
+     * Create from the contents following a cursor, fetched with one more than the limit
+     */
+    public static ContentIdPage afterCursor(List<Content> records, int limit) {
+        return uncounted(records, 0, limit, true);
+    }
+
+    /**
+     * Page response with the given contents, in the order of the ids
+     */
+    public ContentPageResponse toResponse(List<ContentDTO> records) {
+        return ContentPageResponse.builder()
+                .records(records)
+                .total(total)
+                .current(current)
+                .size(size)
+                .pages(pages)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
+
+    private static String cursorAfter(List<Content> records) {
+        Content last = records.get(records.size() - 1);
+        return ContentCursor.after(last.getCreateTime(), last.getId());
+    }
+}
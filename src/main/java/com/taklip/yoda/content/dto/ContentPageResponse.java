@@ -23,6 +23,10 @@ public class ContentPageResponse {
     private long current;
     private long size;
     private long pages;
+    // Token of the next page for the cursor variant of the list, null on the last page
+    private String nextCursor;
+    // Whether another page follows, the total being -1 when the list is not counted
+    private boolean hasNext;
     
     /**
      * Convert to MyBatis Plus Page
@@ -46,6 +50,7 @@ public class ContentPageResponse {
                 .current(page.getCurrent())
                 .size(page.getSize())
                 .pages(page.getPages())
+                .hasNext(Math.max(1, page.getCurrent()) < page.getPages())
                 .build();
     }
 }
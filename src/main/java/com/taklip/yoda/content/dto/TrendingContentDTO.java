@@ -0,0 +1,19 @@
+package com.taklip.yoda.content.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A trending content with its views over the requested window
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingContentDTO {
+
+    private ContentDTO content;
+    private long views;
+}
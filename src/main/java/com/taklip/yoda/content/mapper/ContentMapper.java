@@ -10,6 +10,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface ContentMapper extends BaseMapper<Content> {
@@ -46,9 +47,14 @@ public interface ContentMapper extends BaseMapper<Content> {
     int updateHitCounter(@Param("id") Long id);
 
     /**
-     * Increase hit counter
+     * Add to the hit counter of each content its views, in one statement
      */
-    void increaseHitCounter(@Param("id") Long id);
+    int increaseHitCounters(@Param("deltas") Map<Long, Long> deltas);
+
+    /**
+     * Set the hit counter of each content to its live count, in one statement
+     */
+    int setHitCounters(@Param("counts") Map<Long, Long> counts);
 
     /**
      * Reset hit counter
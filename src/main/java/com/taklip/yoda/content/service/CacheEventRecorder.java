@@ -0,0 +1,93 @@
+package com.taklip.yoda.content.service;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters of one cache's lookups, puts and evictions
+ *
+ * Lookups are timed by the layer that answered them: L1, the off-heap tier, L2, or
+ * none for a miss of every level, each timer counting its lookups as well.
+ */
+public class CacheEventRecorder {
+    public static final String LAYER_L1 = "l1";
+    public static final String LAYER_OFF_HEAP = "offheap";
+    public static final String LAYER_L2 = "l2";
+    public static final String LAYER_NONE = "none";
+
+    private final String cacheName;
+    private final CacheLoggingService loggingService;
+    private final Timer l1Hits;
+    private final Timer offHeapHits;
+    private final Timer l2Hits;
+    private final Timer misses;
+    private final Timer puts;
+    private final Counter evictions;
+    private final Counter clears;
+
+    CacheEventRecorder(String cacheName, MeterRegistry meterRegistry, boolean histogram,
+            CacheLoggingService loggingService) {
+        this.cacheName = cacheName;
+        this.loggingService = loggingService;
+        this.l1Hits = lookupTimer(meterRegistry, cacheName, LAYER_L1, "hit", histogram);
+        this.offHeapHits = lookupTimer(meterRegistry, cacheName, LAYER_OFF_HEAP, "hit", histogram);
+        this.l2Hits = lookupTimer(meterRegistry, cacheName, LAYER_L2, "hit", histogram);
+        this.misses = lookupTimer(meterRegistry, cacheName, LAYER_NONE, "miss", histogram);
+        this.puts = Timer.builder("cache.put.latency")
+                .description("Time to store an entry in both cache levels")
+                .tag("cache", cacheName)
+                .publishPercentileHistogram(histogram)
+                .register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions.explicit")
+                .description("Entries evicted from both levels by invalidation")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        this.clears = Counter.builder("cache.clears")
+                .description("Clears of both levels")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    public void hit(String layer, Object key, long durationNanos) {
+        Timer hits = switch (layer) {
+            case LAYER_L1 -> l1Hits;
+            case LAYER_OFF_HEAP -> offHeapHits;
+            default -> l2Hits;
+        };
+        hits.record(durationNanos, TimeUnit.NANOSECONDS);
+        loggingService.logKeyEvent("hit", cacheName, layer, key, durationNanos);
+    }
+
+    public void miss(Object key, long durationNanos) {
+        misses.record(durationNanos, TimeUnit.NANOSECONDS);
+        loggingService.logKeyEvent("miss", cacheName, LAYER_NONE, key, durationNanos);
+    }
+
+    public void put(Object key, long durationNanos) {
+        puts.record(durationNanos, TimeUnit.NANOSECONDS);
+        loggingService.logKeyEvent("put", cacheName, LAYER_NONE, key, durationNanos);
+    }
+
+    public void evict(Object key) {
+        evictions.increment();
+        loggingService.logKeyEvent("evict", cacheName, LAYER_NONE, key, 0);
+    }
+
+    public void clear() {
+        clears.increment();
+    }
+
+    private static Timer lookupTimer(MeterRegistry meterRegistry, String cacheName, String layer, String result,
+            boolean histogram) {
+        return Timer.builder("cache.lookup")
+                .description("Cache lookups and their latency, by the layer answering them")
+                .tag("cache", cacheName)
+                .tag("layer", layer)
+                .tag("result", result)
+                .publishPercentileHistogram(histogram)
+                .register(meterRegistry);
+    }
+}
@@ -1,98 +1,82 @@
 package com.taklip.yoda.content.service;
 
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Service;
 
+import com.taklip.yoda.content.config.ContentCacheProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Records the cache events as Micrometer meters, and optionally logs a sample of them
+ *
+ * Each cache gets a {@link CacheEventRecorder} whose counters and latency timers are
+ * registered once, so recording an event only updates lock-free meters. Per-key log
+ * lines are off by default; when enabled, a sampled fraction of the events is handed
+ * to a single logging thread, and dropped when its queue is full.
+ */
 @Service
 @Slf4j
-public class CacheLoggingService {
-
-    /**
-     * Log cache hit
-     */
-    public void logCacheHit(String cacheName, String key, long durationMs) {
-        log.info("🟢 CACHE HIT  - Cache: {} | Key: {} | Duration: {}ms | Layer: L1/L2", 
-                cacheName, key, durationMs);
-    }
+public class CacheLoggingService implements DisposableBean {
+    private final MeterRegistry meterRegistry;
+    private final ContentCacheProperties.Logging logging;
+    private final Map<String, CacheEventRecorder> recorders = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor keyLogger;
+    private final Counter droppedKeyEvents;
 
-    /**
-     * Log cache miss
-     */
-    public void logCacheMiss(String cacheName, String key, long durationMs, String reason) {
-        log.info("🔴 CACHE MISS - Cache: {} | Key: {} | Duration: {}ms | Layer: L1/L2 | Reason: {}", 
-                cacheName, key, durationMs, reason);
+    public CacheLoggingService(MeterRegistry meterRegistry, ContentCacheProperties cacheProperties) {
+        this.meterRegistry = meterRegistry;
+        this.logging = cacheProperties.getLogging();
+        this.droppedKeyEvents = Counter.builder("cache.key.events.dropped")
+                .description("Sampled cache key events not logged because the logging queue was full")
+                .register(meterRegistry);
+        this.keyLogger = logging.isKeyEvents()
+                ? new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(logging.getQueueCapacity()), runnable -> {
+                            Thread thread = new Thread(runnable, "cache-key-events");
+                            thread.setDaemon(true);
+                            return thread;
+                        })
+                : null;
     }
 
     /**
-     * Log cache put
+     * The recorder of a cache's events, created once per cache
      */
-    public void logCachePut(String cacheName, String key, long durationMs) {
-        log.info("🟡 CACHE PUT  - Cache: {} | Key: {} | Duration: {}ms | Layer: L1/L2", 
-                cacheName, key, durationMs);
+    public CacheEventRecorder forCache(String cacheName) {
+        return recorders.computeIfAbsent(cacheName,
+                name -> new CacheEventRecorder(name, meterRegistry, logging.isHistogram(), this));
     }
 
-    /**
-     * Log cache evict
-     */
-    public void logCacheEvict(String cacheName, String key, long durationMs) {
-        log.info("🟠 CACHE EVICT - Cache: {} | Key: {} | Duration: {}ms | Layer: L1/L2", 
-                cacheName, key, durationMs);
-    }
-
-    /**
-     * Log cache error
-     */
-    public void logCacheError(String cacheName, String key, long durationMs, String error) {
-        log.error("❌ CACHE ERROR - Cache: {} | Key: {} | Duration: {}ms | Error: {}", 
-                cacheName, key, durationMs, error);
+    @Override
+    public void destroy() {
+        if (keyLogger != null) {
+            keyLogger.shutdown();
+        }
     }
 
     /**
-     * Log cache operation with timing
+     * Log one event in the background, if key logging is on and the event is sampled
      */
-    public <T> T logCacheOperation(String cacheName, String key, String operation, 
-                                  CacheOperation<T> cacheOp) {
-        long startTime = System.nanoTime();
-        
+    void logKeyEvent(String event, String cacheName, String layer, Object key, long durationNanos) {
+        if (keyLogger == null || ThreadLocalRandom.current().nextDouble() >= logging.getSampleRate()) {
+            return;
+        }
         try {
-            T result = cacheOp.execute();
-            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
-            
-            switch (operation.toLowerCase()) {
-                case "hit":
-                    logCacheHit(cacheName, key, duration);
-                    break;
-                case "miss":
-                    logCacheMiss(cacheName, key, duration, "Not found");
-                    break;
-                case "put":
-                    logCachePut(cacheName, key, duration);
-                    break;
-                case "evict":
-                    logCacheEvict(cacheName, key, duration);
-                    break;
-                default:
-                    log.info("🔍 CACHE OP - Cache: {} | Key: {} | Operation: {} | Duration: {}ms", 
-                            cacheName, key, operation, duration);
-            }
-            
-            return result;
-            
-        } catch (RuntimeException e) {
-            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
-            logCacheError(cacheName, key, duration, e.getMessage());
-            throw e;
+            keyLogger.execute(() -> log.info("Cache {} - cache: {} | key: {} | layer: {} | duration: {}µs",
+                    event, cacheName, key, layer, TimeUnit.NANOSECONDS.toMicros(durationNanos)));
+        } catch (RejectedExecutionException e) {
+            droppedKeyEvents.increment();
         }
     }
-
-    /**
-     * Functional interface for cache operations
-     */
-    @FunctionalInterface
-    public interface CacheOperation<T> {
-        T execute();
-    }
 }
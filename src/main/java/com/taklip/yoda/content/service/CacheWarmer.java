@@ -0,0 +1,237 @@
+package com.taklip.yoda.content.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.taklip.yoda.content.config.ContentCacheProperties;
+import com.taklip.yoda.content.constant.ContentConstants;
+import com.taklip.yoda.content.mapper.ContentMapper;
+import com.taklip.yoda.content.model.Content;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads the hot pages and contents into both cache levels at startup
+ *
+ * Runs as the last application runner, so the node reports ready to the readiness probe
+ * only once the warm-up is done or its timeout has elapsed. Featured and published
+ * pages, the pages of the largest categories and the most hit contents are loaded
+ * through the content service, a bounded number at a time.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@Slf4j
+public class CacheWarmer implements ApplicationRunner {
+    public static final String STATE_PENDING = "PENDING";
+    public static final String STATE_RUNNING = "RUNNING";
+    public static final String STATE_DONE = "DONE";
+    public static final String STATE_TIMED_OUT = "TIMED_OUT";
+    public static final String STATE_DISABLED = "DISABLED";
+
+    private static final String GROUP_FEATURED = "featured";
+    private static final String GROUP_PUBLISHED = "published";
+    private static final String GROUP_CATEGORY = "category";
+    private static final String GROUP_CONTENT = "content";
+
+    @Autowired
+    private ContentService contentService;
+
+    @Autowired
+    private ContentMapper contentMapper;
+
+    @Autowired
+    private ContentCacheProperties cacheProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile String state = STATE_PENDING;
+    private volatile Instant startedAt;
+    private volatile Duration duration;
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final ConcurrentMap<String, AtomicInteger> loadedByGroup = new ConcurrentHashMap<>();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!cacheProperties.getWarmup().isEnabled()) {
+            state = STATE_DISABLED;
+            return;
+        }
+        warmUp();
+    }
+
+    /**
+     * Load the hot keys, returning once all are loaded or the timeout has elapsed
+     */
+    public void warmUp() {
+        ContentCacheProperties.Warmup warmup = cacheProperties.getWarmup();
+        long startNanos = System.nanoTime();
+        startedAt = Instant.now();
+        state = STATE_RUNNING;
+        completed.set(0);
+        failed.set(0);
+        loadedByGroup.clear();
+
+        List<WarmupLoad> loads = plan(warmup);
+        total.set(loads.size());
+        log.info("Warming up the content caches with {} loads, {} at a time", loads.size(), warmup.getConcurrency());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, warmup.getConcurrency()), runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            loads.forEach(load -> executor.execute(() -> execute(load)));
+            executor.shutdown();
+            boolean finished = executor.awaitTermination(
+                    Math.max(0, warmup.getTimeout().toNanos() - (System.nanoTime() - startNanos)), TimeUnit.NANOSECONDS);
+            state = finished ? STATE_DONE : STATE_TIMED_OUT;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = STATE_TIMED_OUT;
+        } finally {
+            executor.shutdownNow();
+            duration = Duration.ofNanos(System.nanoTime() - startNanos);
+        }
+
+        if (STATE_DONE.equals(state)) {
+            log.info("✅ Content caches warmed up in {}ms: {} loads, {} failed", duration.toMillis(),
+                    completed.get(), failed.get());
+        } else {
+            log.warn("⚠️ Content cache warm-up stopped after {}ms with {} of {} loads done", duration.toMillis(),
+                    completed.get() + failed.get(), total.get());
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("total", total.get());
+        status.put("completed", completed.get());
+        status.put("failed", failed.get());
+        int loads = total.get();
+        status.put("progress", loads > 0 ? (double) (completed.get() + failed.get()) / loads : 0.0);
+        if (startedAt != null) {
+            status.put("startedAt", startedAt.toString());
+        }
+        if (duration != null) {
+            status.put("durationMs", duration.toMillis());
+        }
+        Map<String, Integer> groups = new LinkedHashMap<>();
+        loadedByGroup.forEach((group, count) -> groups.put(group, count.get()));
+        status.put("loadedByGroup", groups);
+        return status;
+    }
+
+    /**
+     * The API's default offset 0 is the first page, then pages 2 to N
+     */
+    private List<WarmupLoad> plan(ContentCacheProperties.Warmup warmup) {
+        List<WarmupLoad> loads = new ArrayList<>();
+        for (int page = 0; page <= warmup.getPages(); page++) {
+            if (page == 1) {
+                continue;
+            }
+            int offset = page;
+            loads.add(new WarmupLoad(GROUP_FEATURED,
+                    () -> contentService.getFeaturedContents(offset, warmup.getFeaturedPageSize())));
+            loads.add(new WarmupLoad(GROUP_PUBLISHED,
+                    () -> contentService.getPublishedContents(offset, warmup.getPublishedPageSize())));
+        }
+
+        for (Long categoryId : topCategories(warmup.getTopCategories())) {
+            loads.add(new WarmupLoad(GROUP_CATEGORY,
+                    () -> contentService.getContentsByCategory(categoryId, warmup.getCategoryLimit())));
+        }
+
+        // Loaded in batches, each one IN query at most
+        List<Long> contentIds = topContents(warmup.getTopContents());
+        int batchSize = ContentConstants.MAX_PAGE_SIZE;
+        for (int from = 0; from < contentIds.size(); from += batchSize) {
+            List<Long> batch = contentIds.subList(from, Math.min(from + batchSize, contentIds.size()));
+            loads.add(new WarmupLoad(GROUP_CONTENT, () -> contentService.getContentsByIds(batch)));
+        }
+        return loads;
+    }
+
+    private List<Long> topCategories(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        try {
+            return toIds(contentMapper.selectObjs(new QueryWrapper<Content>()
+                    .select("category_id")
+                    .isNotNull("category_id")
+                    .groupBy("category_id")
+                    .orderByDesc("COUNT(*)")
+                    .last("LIMIT " + limit)));
+        } catch (Exception e) {
+            log.warn("Failed to find the top categories to warm up: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<Long> topContents(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        try {
+            return toIds(contentMapper.selectObjs(new QueryWrapper<Content>()
+                    .select("id")
+                    .orderByDesc("hit_counter")
+                    .last("LIMIT " + limit)));
+        } catch (Exception e) {
+            log.warn("Failed to find the most hit contents to warm up: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void execute(WarmupLoad load) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String result = "success";
+        try {
+            load.loader().run();
+            completed.incrementAndGet();
+            loadedByGroup.computeIfAbsent(load.group(), group -> new AtomicInteger()).incrementAndGet();
+        } catch (Exception e) {
+            result = "failure";
+            failed.incrementAndGet();
+            log.debug("Cache warm-up load of {} failed: {}", load.group(), e.getMessage());
+        } finally {
+            sample.stop(meterRegistry.timer("cache.warmup", "group", load.group(), "result", result));
+        }
+    }
+
+    private static List<Long> toIds(List<Object> values) {
+        return values.stream()
+                .filter(Number.class::isInstance)
+                .map(value -> ((Number) value).longValue())
+                .toList();
+    }
+
+    private record WarmupLoad(String group, Runnable loader) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.taklip.yoda.content.service;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.taklip.yoda.content.config.ContentCacheTags;
+import com.taklip.yoda.content.config.ContentCacheTags.ContentState;
+import com.taklip.yoda.content.config.TwoLevelCacheManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Evicts the cache entries affected by a content write
+ */
+@Service
+@Slf4j
+public class ContentCacheInvalidator {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ContentExistenceGuard contentExistenceGuard;
+
+    @Autowired
+    private TrendingContents trendingContents;
+
+    @Autowired
+    private ContentCounts contentCounts;
+
+    /**
+     * Invalidate the entries depending on a content that changed from one state to another,
+     * once the surrounding transaction commits. A null before means created, a null after means deleted.
+     */
+    public void contentChanged(ContentState before, ContentState after) {
+        Set<String> tags = ContentCacheTags.affectedBy(before, after);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(tags);
+                    updateExistence(before, after);
+                    contentCounts.contentChanged(before, after);
+                }
+            });
+        } else {
+            invalidate(tags);
+            updateExistence(before, after);
+            contentCounts.contentChanged(before, after);
+        }
+    }
+
+    private void updateExistence(ContentState before, ContentState after) {
+        if (after != null) {
+            if (before == null) {
+                contentExistenceGuard.contentCreated(after.id());
+            }
+            trendingContents.contentChanged(after.id());
+        } else if (before != null) {
+            contentExistenceGuard.contentDeleted(before.id());
+            trendingContents.contentDeleted(before.id());
+        }
+    }
+
+    private void invalidate(Set<String> tags) {
+        if (cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager) {
+            twoLevelCacheManager.invalidateTags(tags);
+            return;
+        }
+
+        // Caffeine-only fallback keeps no tag index
+        log.debug("No tag index available, clearing all caches for tags {}", tags);
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.taklip.yoda.content.service;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.taklip.yoda.content.config.ContentCacheTags.ContentState;
+import com.taklip.yoda.content.config.ContentProperties;
+import com.taklip.yoda.content.config.ContentProperties.Count.Strategy;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Totals of the content lists, counted with the strategy configured for each list
+ *
+ * A cached total is counted once per filter, such as the contents of a user, then kept
+ * current as the contents written on this node enter or leave the filter. It is
+ * counted again once it reaches the recount interval, which also takes in the writes
+ * of the other nodes. The filters are the cache tags of the list dimensions.
+ */
+@Component
+public class ContentCounts {
+    public static final String LIST_PAGE = "page";
+    public static final String LIST_FEATURED = "featured";
+    public static final String LIST_NO_FEATURED = "no-featured";
+    public static final String LIST_PUBLISHED = "published";
+    public static final String LIST_BY_USER = "by-user";
+    public static final String LIST_BY_CATEGORY = "by-category";
+
+    /**
+     * Filter of the list of all contents
+     */
+    public static final String ALL = "all";
+
+    @Autowired
+    private ContentProperties contentProperties;
+
+    private Cache<String, Long> counts;
+
+    @PostConstruct
+    void init() {
+        ContentProperties.Count count = contentProperties.getCount();
+        // Adjusting a total does not postpone its recount
+        counts = Caffeine.newBuilder()
+                .maximumSize(count.getMaxCachedCounts())
+                .expireAfter(Expiry.<String, Long>creating((filter, total) -> count.getRecountInterval()))
+                .build();
+    }
+
+    public Strategy strategyOf(String list) {
+        return contentProperties.getCount().strategyOf(list);
+    }
+
+    /**
+     * The cached total of the filter, counted if not cached yet
+     */
+    public long count(String filter, Supplier<Long> counter) {
+        return counts.get(filter, key -> counter.get());
+    }
+
+    /**
+     * Adjust the cached totals of the filters a content entered or left.
+     * A null before means created, a null after means deleted.
+     */
+    public void contentChanged(ContentState before, ContentState after) {
+        Set<String> beforeFilters = filtersOf(before);
+        Set<String> afterFilters = filtersOf(after);
+        Set<String> filters = new HashSet<>(beforeFilters);
+        filters.addAll(afterFilters);
+        for (String filter : filters) {
+            long delta = (afterFilters.contains(filter) ? 1 : 0) - (beforeFilters.contains(filter) ? 1 : 0);
+            if (delta != 0) {
+                counts.asMap().computeIfPresent(filter, (key, total) -> Math.max(0, total + delta));
+            }
+        }
+    }
+
+    private static Set<String> filtersOf(ContentState state) {
+        if (state == null) {
+            return Set.of();
+        }
+        Set<String> filters = state.dimensions();
+        filters.add(ALL);
+        return filters;
+    }
+}
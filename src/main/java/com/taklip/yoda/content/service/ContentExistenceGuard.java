@@ -0,0 +1,276 @@
+package com.taklip.yoda.content.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.taklip.yoda.content.config.CacheInvalidationBus;
+import com.taklip.yoda.content.config.CacheInvalidationMessage;
+import com.taklip.yoda.content.config.ContentCacheProperties;
+import com.taklip.yoda.content.constant.ContentConstants;
+import com.taklip.yoda.content.exception.ContentServiceException;
+import com.taklip.yoda.content.mapper.ContentMapper;
+import com.taklip.yoda.content.model.Content;
+import com.taklip.yoda.content.util.BloomFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rejects lookups of content ids that do not exist before they reach L1, L2 or the database
+ *
+ * A bloom filter of the existing ids, built at startup and rebuilt periodically, rejects
+ * ids that were never created. It only answers for ids up to the highest one loaded:
+ * ids created since, on this node or on others whose message may have been missed, are
+ * looked up. Ids that pass it but are not found, such as deleted ones, are remembered in
+ * a short-lived negative cache. Runs ahead of the caching and transaction interceptors.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class ContentExistenceGuard implements ApplicationRunner, DisposableBean {
+    private static final int LOAD_BATCH_SIZE = 10_000;
+    private static final long MIN_EXPECTED_IDS = 10_000;
+
+    @Autowired
+    private ContentMapper contentMapper;
+
+    @Autowired
+    private ContentCacheProperties cacheProperties;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile IdFilter idFilter;
+    private Cache<Long, Boolean> missingIds;
+    // Bumped on every content change, so a lookup racing a create does not cache a stale miss
+    private final AtomicLong changeSequence = new AtomicLong();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final Set<Long> idsAddedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private Counter filterRejections;
+    private Counter negativeHits;
+    private Counter negativeStores;
+    private ScheduledExecutorService rebuilder;
+
+    /**
+     * Filter of the ids loaded, the highest of them bounding the ids it answers for
+     */
+    private record IdFilter(BloomFilter ids, long maxLoadedId) {
+    }
+
+    @PostConstruct
+    void init() {
+        ContentCacheProperties.Missing missing = cacheProperties.getMissing();
+        missingIds = Caffeine.newBuilder()
+                .expireAfterWrite(missing.getNegativeTtl())
+                .maximumSize(missing.getNegativeMaxSize())
+                .build();
+        filterRejections = meterRegistry.counter("cache.missing", "result", "filter-rejected");
+        negativeHits = meterRegistry.counter("cache.missing", "result", "negative-hit");
+        negativeStores = meterRegistry.counter("cache.missing", "result", "negative-stored");
+        cacheInvalidationBus.subscribe(this::applyRemoteChanges);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ContentCacheProperties.Missing missing = cacheProperties.getMissing();
+        if (!missing.isBloomFilterEnabled()) {
+            return;
+        }
+        rebuild();
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-id-filter-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = missing.getFilterRebuildInterval().toMillis();
+        rebuilder.scheduleWithFixedDelay(this::rebuild, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuilder != null) {
+            rebuilder.shutdown();
+        }
+    }
+
+    @Around("execution(* com.taklip.yoda.content.service.ContentService.getContentById(Long))"
+            + " || execution(* com.taklip.yoda.content.service.ContentService.getHitCounter(Long))")
+    public Object guardLookup(ProceedingJoinPoint joinPoint) throws Throwable {
+        Long id = (Long) joinPoint.getArgs()[0];
+        if (id == null) {
+            return joinPoint.proceed();
+        }
+
+        if (!mightExist(id)) {
+            throw notFound(id);
+        }
+
+        long sequence = changeSequence.get();
+        try {
+            return joinPoint.proceed();
+        } catch (ContentServiceException e) {
+            if (ContentConstants.ERROR_CONTENT_NOT_FOUND.equals(e.getErrorCode())
+                    && changeSequence.get() == sequence) {
+                missingIds.put(id, Boolean.TRUE);
+                negativeStores.increment();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Whether an id may exist, false when the filter or the negative cache rules it out
+     */
+    public boolean mightExist(Long id) {
+        IdFilter filter = idFilter;
+        if (filter != null && id <= filter.maxLoadedId() && !filter.ids().mightContain(id)) {
+            filterRejections.increment();
+            return false;
+        }
+        if (missingIds.getIfPresent(id) != null) {
+            negativeHits.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * A content was created on this node: it exists from now on, here and on the other nodes
+     */
+    public void contentCreated(Long id) {
+        created(id);
+        cacheInvalidationBus.publishCreated(id);
+    }
+
+    /**
+     * A content was deleted on this node: lookups of it are answered from the negative cache
+     */
+    public void contentDeleted(Long id) {
+        deleted(id);
+        cacheInvalidationBus.publishDeleted(id);
+    }
+
+    /**
+     * Rebuild the id filter from the database, sized for twice the current number of contents
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        idsAddedDuringRebuild.clear();
+        try {
+            long count = contentMapper.selectCount(null);
+            ContentCacheProperties.Missing missing = cacheProperties.getMissing();
+            BloomFilter filter = new BloomFilter(Math.max(MIN_EXPECTED_IDS, count * 2),
+                    missing.getFalsePositiveRate());
+
+            long lastId = Long.MIN_VALUE;
+            List<Content> batch;
+            do {
+                batch = contentMapper.selectList(new LambdaQueryWrapper<Content>()
+                        .select(Content::getId)
+                        .gt(Content::getId, lastId)
+                        .orderByAsc(Content::getId)
+                        .last("LIMIT " + LOAD_BATCH_SIZE));
+                for (Content content : batch) {
+                    filter.add(content.getId());
+                    lastId = content.getId();
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+
+            idsAddedDuringRebuild.forEach(filter::add);
+            idFilter = new IdFilter(filter, lastId);
+            idsAddedDuringRebuild.forEach(filter::add);
+            log.info("Content id filter built with {} ids, {} bits and {} hashes", filter.getInsertions(),
+                    filter.getBitCount(), filter.getHashCount());
+        } catch (Exception e) {
+            // Without a filter every id is looked up, as before
+            log.warn("Failed to build the content id filter: {}", e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        IdFilter filter = idFilter;
+        statistics.put("filterReady", filter != null);
+        if (filter != null) {
+            statistics.put("filterIds", filter.ids().getInsertions());
+            statistics.put("filterCapacity", filter.ids().getExpectedInsertions());
+            statistics.put("filterMaxId", filter.maxLoadedId());
+        }
+        statistics.put("negativeEntries", missingIds.estimatedSize());
+        statistics.put("filterRejected", (long) filterRejections.count());
+        statistics.put("negativeHits", (long) negativeHits.count());
+        statistics.put("negativeStored", (long) negativeStores.count());
+        return statistics;
+    }
+
+    private void created(Long id) {
+        changeSequence.incrementAndGet();
+        addId(id);
+        missingIds.invalidate(id);
+    }
+
+    private void deleted(Long id) {
+        changeSequence.incrementAndGet();
+        missingIds.put(id, Boolean.TRUE);
+    }
+
+    private void addId(Long id) {
+        if (rebuilding.get()) {
+            idsAddedDuringRebuild.add(id);
+        }
+        IdFilter filter = idFilter;
+        if (filter == null) {
+            return;
+        }
+        if (filter.ids().add(id) && filter.ids().isSaturated() && !rebuilding.get() && rebuilder != null) {
+            log.info("Content id filter holds more than {} ids, rebuilding it", filter.ids().getExpectedInsertions());
+            rebuilder.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Contents created and deleted on other nodes, missed messages being caught up by the
+     * lookups above the highest id loaded and by the periodic rebuild
+     */
+    private void applyRemoteChanges(CacheInvalidationMessage message) {
+        message.getCreated().forEach(this::created);
+        message.getDeleted().forEach(this::deleted);
+    }
+
+    private static ContentServiceException notFound(Long id) {
+        return new ContentServiceException(ContentConstants.ERROR_CONTENT_NOT_FOUND,
+                "Content not found with id: " + id);
+    }
+}
@@ -0,0 +1,162 @@
+package com.taklip.yoda.content.service;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.taklip.yoda.content.config.ContentCacheTags;
+import com.taklip.yoda.content.dto.ContentCursor;
+import com.taklip.yoda.content.dto.ContentIdPage;
+import com.taklip.yoda.content.mapper.ContentMapper;
+import com.taklip.yoda.content.model.Content;
+
+/**
+ * Cached content list queries, selecting only the ids of each page
+ *
+ * The list caches hold {@link ContentIdPage} entries, which the content service
+ * hydrates from the content by id cache. An article is then cached once whatever the
+ * number of pages it appears in, and editing it does not stale those pages.
+ *
+ * The lists are ordered by (create_time DESC, id DESC), and each can be read by offset
+ * or after a {@link ContentCursor}. Cursor pages seek through the index from the last
+ * content of the previous page rather than skipping the rows before it.
+ *
+ * The total of an offset page is counted with the strategy of its list, see
+ * {@link ContentCounts}. Cursor pages are never counted.
+ */
+@Service
+public class ContentListQueries {
+
+    @Autowired
+    private ContentMapper contentMapper;
+
+    @Autowired
+    private ContentCounts contentCounts;
+
+    @Cacheable(value = "content:by:category", keyGenerator = "customCacheKeyGenerator", sync = true)
+    public ContentIdPage getContentsByCategory(Long categoryId, Integer limit) {
+        return page(ContentCounts.LIST_BY_CATEGORY, ContentCacheTags.category(categoryId),
+                () -> new LambdaQueryWrapper<Content>().eq(Content::getCategoryId, categoryId), false, 0, limit);
+    }
+
+    @Cacheable(value = "content:featured", keyGenerator = "customCacheKeyGenerator", sync = true)
+    public ContentIdPage getFeaturedContents(Integer offset, Integer limit) {
+        return page(ContentCounts.LIST_FEATURED, ContentCacheTags.featured(true),
+                () -> new LambdaQueryWrapper<Content>().eq(Content::isFeatureData, true), true, offset, limit);
+    }
+
+    @Cacheable(value = "content:featured", keyGenerator = "customCacheKeyGenerator", sync = true)
+    public ContentIdPage getFeaturedContentsAfter(String cursor, Integer limit) {
+        return seek(idsOf().eq(Content::isFeatureData, true), cursor, limit);
+    }
+
+    @Cacheable(value = "content:no:featured", keyGenerator = "customCacheKeyGenerator", sync = true)
+    public ContentIdPage getNoFeaturedContents(Integer offset, Integer limit) {
+        return page(ContentCounts.LIST_NO_FEATURED, ContentCacheTags.featured(false),
+                () -> new LambdaQueryWrapper<Content>().eq(Content::isFeatureData, false), true, offset, limit);
+    }
+
+    @Cacheable(value = "content:no:featured", keyGenerator = "customCacheKeyGenerator", sync = true)
+    public ContentIdPage getNoFeaturedContentsAfter(String cursor, Integer limit) {
+        return seek(idsOf().eq(Content::isFeatureData, false), cursor, limit);
+    }
+
+    @Cacheable(value = "content:published", keyGenerator = "customCacheKeyGenerator", sync = true)
+    public ContentIdPage getPublishedContents(Integer offset, Integer limit) {
+        return page(ContentCounts.LIST_PUBLISHED, ContentCacheTags.published(true),
+                () -> new LambdaQueryWrapper<Content>().eq(Content::isPublished, true), true, offset, limit);
+    }
+
+    @Cacheable(value = "content:published", keyGenerator = "customCacheKeyGenerator", sync = true)
+    public ContentIdPage getPublishedContentsAfter(String cursor, Integer limit) {
+        return seek(idsOf().eq(Content::isPublished, true), cursor, limit);
+    }
+
+    @Cacheable(value = "content:by:user", keyGenerator = "customCacheKeyGenerator", sync = true)
+    public ContentIdPage getContentsByUser(Long userId, Integer offset, Integer limit) {
+        return page(ContentCounts.LIST_BY_USER, ContentCacheTags.user(userId),
+                () -> new LambdaQueryWrapper<Content>().eq(Content::getCreateBy, userId), true, offset, limit);
+    }
+
+    /**
+     * The user id leads the key, the entry being tagged by user like the offset pages
+     */
+    @Cacheable(value = "content:by:user", keyGenerator = "customCacheKeyGenerator", sync = true)
+    public ContentIdPage getContentsByUserAfter(Long userId, String cursor, Integer limit) {
+        return seek(idsOf().eq(Content::getCreateBy, userId), cursor, limit);
+    }
+
+    /**
+     * Contents of all kinds, not cached as any write changes them
+     */
+    public ContentIdPage getContents(Integer offset, Integer limit) {
+        return page(ContentCounts.LIST_PAGE, ContentCounts.ALL, LambdaQueryWrapper::new, true, offset, limit);
+    }
+
+    /**
+     * Contents of all kinds after the cursor, not cached like their offset pages
+     */
+    public ContentIdPage getContentsAfter(String cursor, Integer limit) {
+        return seek(idsOf(), cursor, limit);
+    }
+
+    /**
+     * Page of the contents matching the filter, with the total counted by the strategy of the list
+     *
+     * @param filter new query with the conditions of the list, for the page and its count
+     * @param newestFirst whether the page is in the cursor order, with the next cursor
+     */
+    private ContentIdPage page(String list, String countFilter, Supplier<LambdaQueryWrapper<Content>> filter,
+            boolean newestFirst, long current, int limit) {
+        LambdaQueryWrapper<Content> query = filter.get().select(Content::getId, Content::getCreateTime);
+        if (newestFirst) {
+            newestFirst(query);
+        }
+
+        switch (contentCounts.strategyOf(list)) {
+            case NONE -> {
+                // Skips the rows of the previous pages like MyBatis-Plus, which reads page 0 as page 1
+                long skip = (Math.max(1, current) - 1) * limit;
+                List<Content> records = contentMapper.selectList(query.last("LIMIT " + (limit + 1) + " OFFSET " + skip));
+                return ContentIdPage.uncounted(records, current, limit, newestFirst);
+            }
+            case CACHED -> {
+                Page<Content> page = contentMapper.selectPage(new Page<>(current, limit, false), query);
+                page.setTotal(contentCounts.count(countFilter, () -> contentMapper.selectCount(filter.get())));
+                return newestFirst ? ContentIdPage.fromPageWithCursor(page) : ContentIdPage.fromPage(page);
+            }
+            default -> {
+                Page<Content> page = contentMapper.selectPage(new Page<>(current, limit), query);
+                return newestFirst ? ContentIdPage.fromPageWithCursor(page) : ContentIdPage.fromPage(page);
+            }
+        }
+    }
+
+    private ContentIdPage seek(LambdaQueryWrapper<Content> query, String cursor, int limit) {
+        ContentCursor after = ContentCursor.decode(cursor);
+        // The bound on the create time alone lets the index range start at the cursor
+        List<Content> records = contentMapper.selectList(newestFirst(query
+                .le(Content::getCreateTime, after.createTime())
+                .and(position -> position.lt(Content::getCreateTime, after.createTime())
+                        .or().lt(Content::getId, after.id())))
+                .last("LIMIT " + (limit + 1)));
+        return ContentIdPage.afterCursor(records, limit);
+    }
+
+    private static LambdaQueryWrapper<Content> idsOf() {
+        // The create time positions the cursor after the last content of a page
+        return new LambdaQueryWrapper<Content>().select(Content::getId, Content::getCreateTime);
+    }
+
+    /**
+     * The order of the cursors, the id breaking the ties between contents created together
+     */
+    private static LambdaQueryWrapper<Content> newestFirst(LambdaQueryWrapper<Content> query) {
+        return query.orderByDesc(Content::getCreateTime).orderByDesc(Content::getId);
+    }
+}
@@ -6,6 +6,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.taklip.yoda.content.dto.ContentDTO;
 import com.taklip.yoda.content.dto.ContentPageResponse;
+import com.taklip.yoda.content.dto.TrendingContentDTO;
 import com.taklip.yoda.content.model.Content;
 import com.taklip.yoda.content.vo.ContentSearchVO;
 
@@ -26,6 +27,11 @@ public interface ContentService extends IService<Content> {
      */
     ContentDTO getContentById(Long id);
 
+    /**
+     * Get contents by IDs in the requested order, skipping the IDs not found
+     */
+    List<ContentDTO> getContentsByIds(List<Long> ids);
+
     /**
      * Delete content
      */
@@ -51,16 +57,31 @@ public interface ContentService extends IService<Content> {
      */
     ContentPageResponse getFeaturedContents(Integer offset, Integer limit);
 
+    /**
+     * Get featured contents after a cursor
+     */
+    ContentPageResponse getFeaturedContentsAfter(String cursor, Integer limit);
+
     /**
      * Get no featured contents
      */
     ContentPageResponse getNoFeaturedContents(Integer offset, Integer limit);
 
+    /**
+     * Get no featured contents after a cursor
+     */
+    ContentPageResponse getNoFeaturedContentsAfter(String cursor, Integer limit);
+
     /**
      * Get published contents
      */
     ContentPageResponse getPublishedContents(Integer offset, Integer limit);
 
+    /**
+     * Get published contents after a cursor
+     */
+    ContentPageResponse getPublishedContentsAfter(String cursor, Integer limit);
+
     /**
      * Get contents by tags
      */
@@ -106,8 +127,23 @@ public interface ContentService extends IService<Content> {
      */
     ContentPageResponse getContentByPage(Integer offset, Integer limit);
 
+    /**
+     * Get content after a cursor
+     */
+    ContentPageResponse getContentPageAfter(String cursor, Integer limit);
+
     /**
      * Get contents by user
      */
     ContentPageResponse getContentsByUser(Long userId, Integer offset, Integer limit);
+
+    /**
+     * Get contents by user after a cursor
+     */
+    ContentPageResponse getContentsByUserAfter(Long userId, String cursor, Integer limit);
+
+    /**
+     * Get the contents viewed the most over the last hour or day, most viewed first
+     */
+    List<TrendingContentDTO> getTrendingContents(String window, Long categoryId, Integer siteId, Integer limit);
 }
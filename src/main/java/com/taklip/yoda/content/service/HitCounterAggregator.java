@@ -0,0 +1,198 @@
+package com.taklip.yoda.content.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.taklip.yoda.content.config.ContentProperties;
+import com.taklip.yoda.content.mapper.ContentMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Counts the content views in memory and adds them to the hit counters in batches
+ *
+ * Each content has its own {@link LongAdder}, so concurrent views of a popular content
+ * update different cells instead of locking its row. The views are written on an
+ * interval, or sooner once many contents have pending views, as one UPDATE per batch of
+ * contents, and once more on shutdown. Views that fail to be written stay pending for
+ * the next flush. Discarding the views of a content waits for a flush in progress, so
+ * none of its views counted before are written after its counter is reset.
+ */
+@Component
+@Slf4j
+public class HitCounterAggregator implements DisposableBean {
+    @Autowired
+    private ContentMapper contentMapper;
+
+    @Autowired
+    private ContentProperties contentProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    // Adders of the contents dropped at the last flush, whose late views are taken by the next
+    private List<Map.Entry<Long, LongAdder>> retired = new ArrayList<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ScheduledExecutorService flusher;
+    private Timer flushTimer;
+    private Counter flushFailures;
+
+    @PostConstruct
+    void init() {
+        ContentProperties.HitCounter hitCounter = contentProperties.getHitCounter();
+        Gauge.builder("content.hits.pending", this, HitCounterAggregator::getPendingViews)
+                .description("Content views counted in memory and not yet written")
+                .register(meterRegistry);
+        Gauge.builder("content.hits.pending.contents", pending, Map::size)
+                .description("Contents with views not yet written")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("content.hits.flush")
+                .description("Time to write the pending content views")
+                .register(meterRegistry);
+        flushFailures = Counter.builder("content.hits.flush.failures")
+                .description("Flushes of the content views that failed and were retried")
+                .register(meterRegistry);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hit-counter-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = hitCounter.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Count one view of the content
+     */
+    public void record(Long id) {
+        pending.computeIfAbsent(id, key -> new LongAdder()).increment();
+        if (pending.size() >= contentProperties.getHitCounter().getMaxPendingIds()
+                && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down, the views are written by the last flush
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Drop the pending views of the content, before its counter is reset in the database
+     */
+    public synchronized void discard(Long id) {
+        pending.remove(id);
+        retired.removeIf(entry -> entry.getKey().equals(id));
+    }
+
+    public long getPendingViews() {
+        long views = 0;
+        for (LongAdder adder : pending.values()) {
+            views += adder.sum();
+        }
+        return views;
+    }
+
+    /**
+     * Write the pending views to the database
+     */
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushTimer.record(this::writePending);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        long lost = getPendingViews();
+        if (lost > 0) {
+            log.error("{} content views could not be written on shutdown", lost);
+        }
+    }
+
+    private synchronized void writePending() {
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : retired) {
+            long late = entry.getValue().sumThenReset();
+            if (late != 0) {
+                pending.computeIfAbsent(entry.getKey(), key -> new LongAdder()).add(late);
+            }
+        }
+        List<Map.Entry<Long, LongAdder>> idle = new ArrayList<>();
+        pending.forEach((id, adder) -> {
+            long views = adder.sum();
+            if (views > 0) {
+                deltas.put(id, views);
+            } else {
+                idle.add(Map.entry(id, adder));
+            }
+        });
+        // Views recorded on a dropped adder meanwhile are taken at the next flush
+        idle.removeIf(entry -> !pending.remove(entry.getKey(), entry.getValue()));
+        retired = idle;
+
+        int batchSize = contentProperties.getHitCounter().getBatchSize();
+        Map<Long, Long> batch = new LinkedHashMap<>();
+        for (Map.Entry<Long, Long> delta : deltas.entrySet()) {
+            batch.put(delta.getKey(), delta.getValue());
+            if (batch.size() >= batchSize) {
+                writeBatch(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(Map<Long, Long> batch) {
+        try {
+            contentMapper.increaseHitCounters(batch);
+        } catch (RuntimeException e) {
+            // Left pending, and retried at the next flush
+            flushFailures.increment();
+            log.warn("Failed to write the views of {} contents: {}", batch.size(), e.getMessage());
+            return;
+        }
+        batch.forEach((id, views) -> pending.get(id).add(-views));
+    }
+}
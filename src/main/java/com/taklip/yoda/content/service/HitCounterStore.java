@@ -0,0 +1,57 @@
+package com.taklip.yoda.content.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Live hit counters of the contents, sharded, with the contents changed since their last
+ * write to the database marked dirty
+ */
+public interface HitCounterStore {
+
+    /**
+     * Add one view to the counter of the content and mark it dirty
+     *
+     * @return the new count, or null when the counter is not initialized
+     */
+    Long increment(long id);
+
+    /**
+     * @return the count, or null when the counter is not initialized
+     */
+    Long get(long id);
+
+    /**
+     * Initialize the counter from the database, unless another node did it first
+     */
+    void initialize(long id, long value);
+
+    /**
+     * Set the counter to zero and mark it dirty in one step, so that a write of an older
+     * count racing with the reset is followed by a write of the zero
+     */
+    void reset(long id);
+
+    /**
+     * Pass the dirty contents of the shard to the visitor in batches of up to batchSize,
+     * their marks left until cleared once written, a content possibly passed twice
+     *
+     * @return false when the visitor stopped the scan by rejecting a batch
+     */
+    boolean scanDirty(int shard, int batchSize, Predicate<List<Long>> visitor);
+
+    /**
+     * Clear the dirty marks of the contents whose counters still hold the counts written,
+     * or no longer exist, a content viewed since its write staying dirty
+     */
+    void clearDirty(Collection<Long> ids, Map<Long, Long> written);
+
+    /**
+     * The counts of the initialized counters among the contents
+     */
+    Map<Long, Long> getAll(Collection<Long> ids);
+
+    int getShards();
+}
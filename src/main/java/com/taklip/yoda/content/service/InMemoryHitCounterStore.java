@@ -0,0 +1,92 @@
+package com.taklip.yoda.content.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Hit counters held in this JVM, for a single node and to stand in for Redis in tests
+ *
+ * A dirty mark is changed along with the count, within the lock of the counter.
+ */
+public class InMemoryHitCounterStore implements HitCounterStore {
+    private final ConcurrentMap<Long, Long> counters = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Long increment(long id) {
+        return counters.computeIfPresent(id, (key, count) -> {
+            dirty.add(id);
+            return count + 1;
+        });
+    }
+
+    @Override
+    public Long get(long id) {
+        return counters.get(id);
+    }
+
+    @Override
+    public void initialize(long id, long value) {
+        counters.putIfAbsent(id, value);
+    }
+
+    @Override
+    public void reset(long id) {
+        counters.compute(id, (key, count) -> {
+            dirty.add(id);
+            return 0L;
+        });
+    }
+
+    @Override
+    public boolean scanDirty(int shard, int batchSize, Predicate<List<Long>> visitor) {
+        List<Long> batch = new ArrayList<>(batchSize);
+        for (Long id : dirty) {
+            batch.add(id);
+            if (batch.size() == batchSize) {
+                if (!visitor.test(batch)) {
+                    return false;
+                }
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        return batch.isEmpty() || visitor.test(batch);
+    }
+
+    @Override
+    public void clearDirty(Collection<Long> ids, Map<Long, Long> written) {
+        for (Long id : ids) {
+            Long count = written.get(id);
+            counters.compute(id, (key, value) -> {
+                if (value == null || value.equals(count)) {
+                    dirty.remove(id);
+                }
+                return value;
+            });
+        }
+    }
+
+    @Override
+    public Map<Long, Long> getAll(Collection<Long> ids) {
+        Map<Long, Long> values = new LinkedHashMap<>();
+        for (Long id : ids) {
+            Long value = counters.get(id);
+            if (value != null) {
+                values.put(id, value);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public int getShards() {
+        return 1;
+    }
+}
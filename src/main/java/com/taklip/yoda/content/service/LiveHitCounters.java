@@ -0,0 +1,182 @@
+package com.taklip.yoda.content.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.taklip.yoda.content.config.ContentProperties;
+import com.taklip.yoda.content.mapper.ContentMapper;
+import com.taklip.yoda.content.model.Content;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hit counters counted in Redis, or in memory on a single node, and read live
+ *
+ * A counter is initialized from the database on its first read or view, then counted
+ * in the {@link HitCounterStore} only. A reconciler writes the counts of the contents
+ * viewed since its last run back to the database, scanning the dirty sets and clearing
+ * a mark only once its count is written, so a failed write or a node stopping mid-write
+ * leaves it to the next run. The counts being absolute, a write repeated by another
+ * node is safe. Active unless the hit counter mode is database.
+ */
+@Component
+@Slf4j
+public class LiveHitCounters implements DisposableBean {
+    @Autowired
+    private ContentMapper contentMapper;
+
+    @Autowired
+    private ContentProperties contentProperties;
+
+    @Autowired
+    private ObjectProvider<StringRedisTemplate> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private HitCounterStore store;
+    private ScheduledExecutorService reconciler;
+    private Timer reconcileTimer;
+    private Counter droppedViews;
+
+    @PostConstruct
+    void init() {
+        ContentProperties.HitCounter hitCounter = contentProperties.getHitCounter();
+        if (!hitCounter.isLive()) {
+            return;
+        }
+        store = ContentProperties.HitCounter.MODE_REDIS.equals(hitCounter.getMode())
+                ? new RedisHitCounterStore(redisTemplate.getObject(), hitCounter.getKeyPrefix(), hitCounter.getShards())
+                : new InMemoryHitCounterStore();
+        reconcileTimer = Timer.builder("content.hits.reconcile")
+                .description("Time to write the live hit counts changed to the database")
+                .register(meterRegistry);
+        droppedViews = Counter.builder("content.hits.dropped")
+                .description("Content views not counted because the live counters were unavailable")
+                .register(meterRegistry);
+
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hit-counter-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = hitCounter.getReconcileInterval().toMillis();
+        reconciler.scheduleWithFixedDelay(this::reconcile, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Live hit counters kept in {}", hitCounter.getMode());
+    }
+
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    /**
+     * Count one view of the content, initializing its counter on the first one
+     */
+    public void increment(Long id) {
+        try {
+            if (store.increment(id) == null && initialize(id)) {
+                store.increment(id);
+            }
+        } catch (RuntimeException e) {
+            droppedViews.increment();
+            log.debug("Dropped a view of content {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * The live count of the content, or null when it does not exist
+     */
+    public Integer get(Long id) {
+        try {
+            Long count = store.get(id);
+            if (count == null && initialize(id)) {
+                count = store.get(id);
+            }
+            return count != null ? Math.toIntExact(count) : null;
+        } catch (RuntimeException e) {
+            log.warn("Live hit counter of content {} unavailable, reading the database: {}", id, e.getMessage());
+            Content content = contentMapper.selectById(id);
+            return content != null ? content.getHitCounter() : null;
+        }
+    }
+
+    /**
+     * Reset the live count, before its counter is reset in the database, so that a
+     * reconciler writing the count it read before meanwhile writes the zero next
+     */
+    public void reset(Long id) {
+        store.reset(id);
+    }
+
+    /**
+     * Write the counts changed since the last run to the database
+     */
+    public void reconcile() {
+        if (store == null) {
+            return;
+        }
+        reconcileTimer.record(() -> {
+            int batchSize = contentProperties.getHitCounter().getBatchSize();
+            try {
+                for (int shard = 0; shard < store.getShards(); shard++) {
+                    if (!store.scanDirty(shard, batchSize, this::write)) {
+                        // Retried at the next run
+                        return;
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to scan the hit counts to write: {}", e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (reconciler != null) {
+            reconciler.shutdown();
+            try {
+                reconciler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        reconcile();
+    }
+
+    private boolean write(List<Long> ids) {
+        try {
+            Map<Long, Long> counts = store.getAll(ids);
+            if (!counts.isEmpty()) {
+                contentMapper.setHitCounters(counts);
+            }
+            store.clearDirty(ids, counts);
+            return true;
+        } catch (RuntimeException e) {
+            // The contents stay dirty
+            log.warn("Failed to write the hit counts of {} contents: {}", ids.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean initialize(Long id) {
+        Content content = contentMapper.selectById(id);
+        if (content == null) {
+            return false;
+        }
+        store.initialize(id, content.getHitCounter() != null ? content.getHitCounter() : 0);
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+package com.taklip.yoda.content.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * Hit counters in Redis hashes, one per shard, with a set of the dirty contents per shard
+ *
+ * The hash and the dirty set of a shard share a hash tag, such as "{3}", so a Redis
+ * Cluster keeps them in the same slot for the scripts changing a count along with its
+ * dirty mark. The dirty sets are scanned rather than popped, a mark being cleared only
+ * after its count was written, so the marks outlive a node failing mid-write.
+ */
+public class RedisHitCounterStore implements HitCounterStore {
+    // Counts only initialized counters, so a view never starts a counter at zero
+    static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then return false end "
+                    + "local count = redis.call('hincrby', KEYS[1], ARGV[1], 1) "
+                    + "redis.call('sadd', KEYS[2], ARGV[1]) "
+                    + "return count",
+            Long.class);
+    // Zeroes the counter and marks it dirty in one step
+    static final RedisScript<Long> RESET_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('hset', KEYS[1], ARGV[1], 0) "
+                    + "redis.call('sadd', KEYS[2], ARGV[1]) "
+                    + "return 0",
+            Long.class);
+    // Clears the marks of the counters holding the count written, given as id and count pairs
+    static final RedisScript<Long> CLEAR_DIRTY_SCRIPT = new DefaultRedisScript<>(
+            "local cleared = 0 "
+                    + "for i = 1, #ARGV, 2 do "
+                    + "local count = redis.call('hget', KEYS[1], ARGV[i]) "
+                    + "if not count or count == ARGV[i + 1] then "
+                    + "cleared = cleared + redis.call('srem', KEYS[2], ARGV[i]) "
+                    + "end "
+                    + "end "
+                    + "return cleared",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final int shards;
+
+    public RedisHitCounterStore(StringRedisTemplate redisTemplate, String keyPrefix, int shards) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.shards = shards;
+    }
+
+    @Override
+    public Long increment(long id) {
+        int shard = shardOf(id);
+        return redisTemplate.execute(INCREMENT_SCRIPT, List.of(countersKey(shard), dirtyKey(shard)),
+                String.valueOf(id));
+    }
+
+    @Override
+    public Long get(long id) {
+        Object value = hashes().get(countersKey(shardOf(id)), String.valueOf(id));
+        return value != null ? Long.valueOf(value.toString()) : null;
+    }
+
+    @Override
+    public void initialize(long id, long value) {
+        hashes().putIfAbsent(countersKey(shardOf(id)), String.valueOf(id), String.valueOf(value));
+    }
+
+    @Override
+    public void reset(long id) {
+        int shard = shardOf(id);
+        redisTemplate.execute(RESET_SCRIPT, List.of(countersKey(shard), dirtyKey(shard)), String.valueOf(id));
+    }
+
+    @Override
+    public boolean scanDirty(int shard, int batchSize, Predicate<List<Long>> visitor) {
+        ScanOptions options = ScanOptions.scanOptions().count(batchSize).build();
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(dirtyKey(shard), options)) {
+            List<Long> batch = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                batch.add(Long.valueOf(cursor.next()));
+                if (batch.size() == batchSize) {
+                    if (!visitor.test(batch)) {
+                        return false;
+                    }
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            return batch.isEmpty() || visitor.test(batch);
+        }
+    }
+
+    @Override
+    public void clearDirty(Collection<Long> ids, Map<Long, Long> written) {
+        byShard(ids).forEach((shard, fields) -> {
+            List<String> args = new ArrayList<>(fields.size() * 2);
+            for (String field : fields) {
+                Long count = written.get(Long.valueOf(field));
+                args.add(field);
+                // Never equal to a count, so the mark stays on a counter created since
+                args.add(count != null ? count.toString() : "");
+            }
+            redisTemplate.execute(CLEAR_DIRTY_SCRIPT, List.of(countersKey(shard), dirtyKey(shard)),
+                    args.toArray());
+        });
+    }
+
+    @Override
+    public Map<Long, Long> getAll(Collection<Long> ids) {
+        Map<Long, Long> values = new LinkedHashMap<>();
+        byShard(ids).forEach((shard, fields) -> {
+            List<Object> counts = hashes().multiGet(countersKey(shard), new ArrayList<>(fields));
+            for (int i = 0; i < fields.size(); i++) {
+                if (counts.get(i) != null) {
+                    values.put(Long.valueOf(fields.get(i)), Long.valueOf(counts.get(i).toString()));
+                }
+            }
+        });
+        return values;
+    }
+
+    @Override
+    public int getShards() {
+        return shards;
+    }
+
+    private HashOperations<String, Object, Object> hashes() {
+        return redisTemplate.opsForHash();
+    }
+
+    private Map<Integer, List<String>> byShard(Collection<Long> ids) {
+        Map<Integer, List<String>> fieldsByShard = new TreeMap<>();
+        for (Long id : ids) {
+            fieldsByShard.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(String.valueOf(id));
+        }
+        return fieldsByShard;
+    }
+
+    private int shardOf(long id) {
+        return (int) Math.floorMod(id, (long) shards);
+    }
+
+    private String countersKey(int shard) {
+        return keyPrefix + "{" + shard + "}";
+    }
+
+    private String dirtyKey(int shard) {
+        return keyPrefix + "dirty:{" + shard + "}";
+    }
+}
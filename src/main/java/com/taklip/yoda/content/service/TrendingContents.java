@@ -0,0 +1,354 @@
+package com.taklip.yoda.content.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.taklip.yoda.content.config.ContentProperties;
+import com.taklip.yoda.content.mapper.ContentMapper;
+import com.taklip.yoda.content.model.Content;
+import com.taklip.yoda.content.util.CountMinSketch;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Contents viewed the most over the last hour or day, on this node
+ *
+ * Each viewed content keeps a ring of per-minute and a ring of per-hour view counts,
+ * a bucket being reset when reused for a later minute or hour. Only the heavy hitters
+ * are tracked. Once the limit is reached, a content not tracked yet is counted in a
+ * count-min sketch instead, and admitted with those views once they exceed the fewest
+ * views of the day among the tracked contents, within a tenth of the limit more. Each
+ * ranking drops the contents with the fewest views of the day back to the limit, so the
+ * memory stays bounded between rankings. A background task ranks the tracked contents
+ * per window, and per category and site within a window, so that reading a ranking is
+ * a lookup.
+ */
+@Component
+@Slf4j
+public class TrendingContents implements DisposableBean {
+    private static final int LOAD_BATCH_SIZE = 500;
+    private static final int SKETCH_WIDTH_PER_TRACKED = 4;
+    private static final int SAMPLE_SIZE_PER_COUNTER = 10;
+
+    public enum Window {
+        HOUR(Duration.ofMinutes(1), 60),
+        DAY(Duration.ofHours(1), 24);
+
+        private final long bucketMillis;
+        private final int buckets;
+
+        Window(Duration bucket, int buckets) {
+            this.bucketMillis = bucket.toMillis();
+            this.buckets = buckets;
+        }
+
+        /**
+         * The window of the given name, such as "hour"
+         *
+         * @throws IllegalArgumentException if no window has this name
+         */
+        public static Window of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * A ranked content with its views in the window
+     */
+    public record Entry(Long id, long views, Long categoryId, Integer siteId) {
+    }
+
+    /**
+     * Category and site of a tracked content, only published contents being ranked
+     */
+    private record Attributes(Long categoryId, Integer siteId, boolean published) {
+        static final Attributes MISSING = new Attributes(null, null, false);
+    }
+
+    private record Ranking(List<Entry> top, Map<Long, List<Entry>> byCategory, Map<Integer, List<Entry>> bySite) {
+        static final Ranking EMPTY = new Ranking(List.of(), Map.of(), Map.of());
+    }
+
+    @Autowired
+    private ContentMapper contentMapper;
+
+    @Autowired
+    private ContentProperties contentProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Long, ViewCounts> views = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Attributes> attributes = new ConcurrentHashMap<>();
+    private volatile Map<Window, Ranking> rankings = emptyRankings();
+    // Views of the contents not tracked, and the fewest views of the day of a tracked one
+    private CountMinSketch candidates;
+    private volatile long floor;
+    private Clock clock = Clock.systemUTC();
+    private ScheduledExecutorService ranker;
+    private Timer rankTimer;
+
+    @PostConstruct
+    void init() {
+        int sketchWidth = contentProperties.getTrending().getMaxTracked() * SKETCH_WIDTH_PER_TRACKED;
+        candidates = new CountMinSketch(sketchWidth, (long) sketchWidth * SAMPLE_SIZE_PER_COUNTER);
+        Gauge.builder("content.trending.tracked", views, Map::size)
+                .description("Contents whose recent views are tracked for the trending rankings")
+                .register(meterRegistry);
+        rankTimer = Timer.builder("content.trending.rank")
+                .description("Time to rank the trending contents")
+                .register(meterRegistry);
+
+        ranker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trending-ranker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = contentProperties.getTrending().getRefreshInterval().toMillis();
+        ranker.scheduleWithFixedDelay(this::rank, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Count one view of the content
+     */
+    public void record(Long id) {
+        ViewCounts counts = views.get(id);
+        if (counts != null) {
+            counts.record(clock.millis(), 1);
+            return;
+        }
+        long estimate = candidates.add(id);
+        if (admit(estimate)) {
+            // Starts with the views estimated before the admission, this one included
+            views.computeIfAbsent(id, key -> new ViewCounts()).record(clock.millis(), estimate);
+        }
+    }
+
+    /**
+     * The most viewed contents of the window as of the last ranking, optionally of a
+     * category and/or a site, most viewed first
+     */
+    public List<Entry> getTrending(Window window, Long categoryId, Integer siteId, int limit) {
+        Ranking ranking = rankings.get(window);
+        List<Entry> entries;
+        if (categoryId != null) {
+            entries = ranking.byCategory().getOrDefault(categoryId, List.of());
+            if (siteId != null) {
+                entries = entries.stream().filter(entry -> siteId.equals(entry.siteId())).toList();
+            }
+        } else if (siteId != null) {
+            entries = ranking.bySite().getOrDefault(siteId, List.of());
+        } else {
+            entries = ranking.top();
+        }
+        return entries.subList(0, Math.min(limit, entries.size()));
+    }
+
+    /**
+     * Read the category, site and status of the content again at the next ranking
+     */
+    public void contentChanged(Long id) {
+        attributes.remove(id);
+    }
+
+    public void contentDeleted(Long id) {
+        views.remove(id);
+        attributes.remove(id);
+    }
+
+    /**
+     * Rebuild the rankings from the views tracked
+     */
+    public void rank() {
+        rankTimer.record(() -> {
+            try {
+                rankings = buildRankings(clock.millis());
+            } catch (RuntimeException e) {
+                // The previous rankings are served until the next run
+                log.warn("Failed to rank the trending contents: {}", e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (ranker != null) {
+            ranker.shutdown();
+        }
+    }
+
+    private Map<Window, Ranking> buildRankings(long now) {
+        Map<Long, long[]> totals = new HashMap<>();
+        views.forEach((id, counts) -> {
+            long[] windowTotals = counts.totals(now);
+            if (windowTotals[Window.DAY.ordinal()] == 0) {
+                // A view recorded meanwhile on the dropped counts is lost
+                views.remove(id, counts);
+                attributes.remove(id);
+            } else {
+                totals.put(id, windowTotals);
+            }
+        });
+        dropLeastViewed(totals);
+        int maxTracked = contentProperties.getTrending().getMaxTracked();
+        floor = totals.size() < maxTracked ? 0 : totals.values().stream()
+                .mapToLong(windowTotals -> windowTotals[Window.DAY.ordinal()])
+                .min()
+                .orElse(0);
+        loadAttributes(totals.keySet());
+
+        Map<Window, Ranking> built = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            built.put(window, rankingOf(window, totals));
+        }
+        return built;
+    }
+
+    private boolean admit(long estimate) {
+        int maxTracked = contentProperties.getTrending().getMaxTracked();
+        int tracked = views.size();
+        return tracked < maxTracked
+                || tracked < maxTracked + Math.max(1, maxTracked / 10) && estimate > floor;
+    }
+
+    private void dropLeastViewed(Map<Long, long[]> totals) {
+        int excess = totals.size() - contentProperties.getTrending().getMaxTracked();
+        if (excess <= 0) {
+            return;
+        }
+        List<Long> leastViewed = totals.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue()[Window.DAY.ordinal()]))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList();
+        for (Long id : leastViewed) {
+            contentDeleted(id);
+            totals.remove(id);
+        }
+    }
+
+    private void loadAttributes(Set<Long> ids) {
+        List<Long> missing = ids.stream().filter(id -> !attributes.containsKey(id)).toList();
+        for (int from = 0; from < missing.size(); from += LOAD_BATCH_SIZE) {
+            List<Long> batch = missing.subList(from, Math.min(from + LOAD_BATCH_SIZE, missing.size()));
+            Map<Long, Attributes> loaded = new HashMap<>();
+            for (Content content : contentMapper.selectList(new LambdaQueryWrapper<Content>()
+                    .select(Content::getId, Content::getCategoryId, Content::getSiteId, Content::isPublished)
+                    .in(Content::getId, batch))) {
+                loaded.put(content.getId(),
+                        new Attributes(content.getCategoryId(), content.getSiteId(), content.isPublished()));
+            }
+            // Deleted contents stay unranked until their views fall out of the day
+            batch.forEach(id -> attributes.put(id, loaded.getOrDefault(id, Attributes.MISSING)));
+        }
+    }
+
+    private Ranking rankingOf(Window window, Map<Long, long[]> totals) {
+        int topSize = contentProperties.getTrending().getTopSize();
+        List<Entry> ranked = new ArrayList<>();
+        totals.forEach((id, windowTotals) -> {
+            long count = windowTotals[window.ordinal()];
+            Attributes content = attributes.get(id);
+            if (count > 0 && content != null && content.published()) {
+                ranked.add(new Entry(id, count, content.categoryId(), content.siteId()));
+            }
+        });
+        ranked.sort(Comparator.comparingLong(Entry::views).reversed().thenComparing(Entry::id));
+
+        Map<Long, List<Entry>> byCategory = new HashMap<>();
+        Map<Integer, List<Entry>> bySite = new HashMap<>();
+        for (Entry entry : ranked) {
+            if (entry.categoryId() != null) {
+                addWithin(byCategory.computeIfAbsent(entry.categoryId(), key -> new ArrayList<>()), entry, topSize);
+            }
+            if (entry.siteId() != null) {
+                addWithin(bySite.computeIfAbsent(entry.siteId(), key -> new ArrayList<>()), entry, topSize);
+            }
+        }
+        return new Ranking(List.copyOf(ranked.subList(0, Math.min(topSize, ranked.size()))), byCategory, bySite);
+    }
+
+    private static void addWithin(List<Entry> entries, Entry entry, int topSize) {
+        if (entries.size() < topSize) {
+            entries.add(entry);
+        }
+    }
+
+    private static Map<Window, Ranking> emptyRankings() {
+        Map<Window, Ranking> empty = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            empty.put(window, Ranking.EMPTY);
+        }
+        return empty;
+    }
+
+    /**
+     * Ring buffers of the views of one content, one per window
+     */
+    private static final class ViewCounts {
+        private final long[][] counts = new long[Window.values().length][];
+        // Minute or hour counted by each bucket
+        private final long[][] buckets = new long[Window.values().length][];
+
+        ViewCounts() {
+            for (Window window : Window.values()) {
+                counts[window.ordinal()] = new long[window.buckets];
+                buckets[window.ordinal()] = new long[window.buckets];
+            }
+        }
+
+        synchronized void record(long now, long views) {
+            for (Window window : Window.values()) {
+                long bucket = now / window.bucketMillis;
+                int slot = (int) (bucket % window.buckets);
+                if (buckets[window.ordinal()][slot] != bucket) {
+                    buckets[window.ordinal()][slot] = bucket;
+                    counts[window.ordinal()][slot] = 0;
+                }
+                counts[window.ordinal()][slot] += views;
+            }
+        }
+
+        /**
+         * Views of each window, indexed by window ordinal
+         */
+        synchronized long[] totals(long now) {
+            long[] totals = new long[Window.values().length];
+            for (Window window : Window.values()) {
+                long oldest = now / window.bucketMillis - window.buckets + 1;
+                for (int slot = 0; slot < window.buckets; slot++) {
+                    if (buckets[window.ordinal()][slot] >= oldest) {
+                        totals[window.ordinal()] += counts[window.ordinal()][slot];
+                    }
+                }
+            }
+            return totals;
+        }
+    }
+}
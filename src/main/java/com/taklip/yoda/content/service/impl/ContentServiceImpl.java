@@ -1,24 +1,40 @@
 package com.taklip.yoda.content.service.impl;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.taklip.yoda.content.config.ContentCacheTags.ContentState;
+import com.taklip.yoda.content.config.TwoLevelCache;
+import com.taklip.yoda.content.constant.ContentConstants;
 import com.taklip.yoda.content.convertor.ContentConvertor;
 import com.taklip.yoda.content.dto.ContentDTO;
+import com.taklip.yoda.content.dto.ContentIdPage;
 import com.taklip.yoda.content.dto.ContentPageResponse;
+import com.taklip.yoda.content.dto.TrendingContentDTO;
+import com.taklip.yoda.content.exception.ContentServiceException;
 import com.taklip.yoda.content.mapper.ContentMapper;
 import com.taklip.yoda.content.model.Content;
-import com.taklip.yoda.content.service.CacheLoggingService;
+import com.taklip.yoda.content.service.ContentCacheInvalidator;
+import com.taklip.yoda.content.service.ContentExistenceGuard;
+import com.taklip.yoda.content.service.ContentListQueries;
 import com.taklip.yoda.content.service.ContentService;
+import com.taklip.yoda.content.service.HitCounterAggregator;
+import com.taklip.yoda.content.service.LiveHitCounters;
+import com.taklip.yoda.content.service.TrendingContents;
 import com.taklip.yoda.content.vo.ContentSearchVO;
 
 import lombok.extern.slf4j.Slf4j;
@@ -32,14 +48,31 @@ public class ContentServiceImpl extends ServiceImpl<ContentMapper, Content> impl
     private ContentConvertor contentConvertor;
 
     @Autowired
-    private CacheLoggingService cacheLoggingService;
+    private ContentCacheInvalidator contentCacheInvalidator;
+
+    @Autowired
+    private ContentExistenceGuard contentExistenceGuard;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ContentListQueries contentListQueries;
+
+    @Autowired
+    private HitCounterAggregator hitCounterAggregator;
+
+    @Autowired
+    private LiveHitCounters liveHitCounters;
+
+    @Autowired
+    private TrendingContents trendingContents;
 
     @Override
-    @CacheEvict(value = { "content:by:id", "content:featured", "content:published", "content:by:category",
-            "content:by:tags" }, allEntries = true)
     public ContentDTO createContent(ContentDTO contentDTO) {
         Content content = contentConvertor.toEntity(contentDTO);
         this.save(content);
+        contentCacheInvalidator.contentChanged(null, ContentState.of(content));
 
         ContentDTO createdContent = contentConvertor.toDTO(content);
 
@@ -47,8 +80,6 @@ public class ContentServiceImpl extends ServiceImpl<ContentMapper, Content> impl
     }
 
     @Override
-    @CacheEvict(value = { "content:by:id", "content:featured", "content:published", "content:by:category",
-            "content:by:tags" }, allEntries = true)
     public ContentDTO updateContent(Long id, ContentDTO contentDTO) {
         Content existingContent = this.getById(id);
 
@@ -56,9 +87,11 @@ public class ContentServiceImpl extends ServiceImpl<ContentMapper, Content> impl
             throw new RuntimeException("Content not found with id: " + id);
         }
 
+        ContentState before = ContentState.of(existingContent);
         contentConvertor.updateEntity(existingContent, contentDTO);
 
         this.updateById(existingContent);
+        contentCacheInvalidator.contentChanged(before, ContentState.of(existingContent));
 
         ContentDTO updatedContent = contentConvertor.toDTO(existingContent);
 
@@ -66,20 +99,93 @@ public class ContentServiceImpl extends ServiceImpl<ContentMapper, Content> impl
     }
 
     @Override
-    @Cacheable(value = "content:by:id", key = "#id")
+    @Cacheable(value = "content:by:id", sync = true)
     public ContentDTO getContentById(Long id) {
         Content content = this.getById(id);
         if (content == null) {
-            throw new RuntimeException("Content not found with id: " + id);
+            throw new ContentServiceException(ContentConstants.ERROR_CONTENT_NOT_FOUND,
+                    "Content not found with id: " + id);
         }
         return contentConvertor.toDTO(content);
     }
 
+    /**
+     * Same entries as {@link #getContentById(Long)}, resolved in bulk
+     */
+    @Override
+    public List<ContentDTO> getContentsByIds(List<Long> ids) {
+        Set<Long> lookupIds = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id != null && contentExistenceGuard.mightExist(id)) {
+                lookupIds.add(id);
+            }
+        }
+        if (lookupIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, ContentDTO> contents = getCachedContents(lookupIds);
+        return ids.stream()
+                .filter(Objects::nonNull)
+                .map(contents::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Resolve the contents of a cached id page, in the order of its ids
+     */
+    private ContentPageResponse hydrate(ContentIdPage idPage) {
+        List<Long> ids = idPage.getIds() != null ? idPage.getIds() : List.of();
+        Map<Long, ContentDTO> contents = getCachedContents(ids);
+        // Contents deleted since the page was cached are skipped until it is evicted
+        return idPage.toResponse(ids.stream().map(contents::get).filter(Objects::nonNull).toList());
+    }
+
+    /**
+     * Contents from the content by id cache: L1 hits are resolved in bulk, the rest with one
+     * MGET, and the remaining misses with one IN query, then stored in both levels
+     */
+    private Map<Long, ContentDTO> getCachedContents(Collection<Long> ids) {
+        Map<Long, ContentDTO> contents = new HashMap<>();
+        if (ids.isEmpty()) {
+            return contents;
+        }
+
+        Cache cache = cacheManager.getCache(ContentConstants.CACHE_NAME_CONTENT_BY_ID);
+        if (cache instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.getAll(ids).forEach((id, content) -> contents.put((Long) id, (ContentDTO) content));
+        } else if (cache != null) {
+            for (Long id : ids) {
+                ContentDTO content = cache.get(id, ContentDTO.class);
+                if (content != null) {
+                    contents.put(id, content);
+                }
+            }
+        }
+
+        List<Long> missingIds = ids.stream().filter(id -> !contents.containsKey(id)).distinct().toList();
+        if (!missingIds.isEmpty()) {
+            Map<Long, ContentDTO> loaded = new HashMap<>();
+            for (Content content : this.listByIds(missingIds)) {
+                loaded.put(content.getId(), contentConvertor.toDTO(content));
+            }
+            if (cache instanceof TwoLevelCache twoLevelCache) {
+                twoLevelCache.putAll(loaded);
+            } else if (cache != null) {
+                loaded.forEach(cache::put);
+            }
+            contents.putAll(loaded);
+        }
+        return contents;
+    }
+
     @Override
-    @CacheEvict(value = { "content:by:id", "content:featured", "content:published", "content:by:category",
-            "content:by:tags" }, allEntries = true)
     public void deleteContent(Long id) {
-        this.removeById(id);
+        Content content = this.getById(id);
+        if (this.removeById(id) && content != null) {
+            contentCacheInvalidator.contentChanged(ContentState.of(content), null);
+        }
     }
 
     @Override
@@ -97,58 +203,42 @@ public class ContentServiceImpl extends ServiceImpl<ContentMapper, Content> impl
     }
 
     @Override
-    @Cacheable(value = "content:by:category", key = "#categoryId + ':' + #limit")
     public ContentPageResponse getContentsByCategory(Long categoryId, Integer limit) {
-        IPage<Content> contentPage = page(new Page<>(0, limit),
-                new LambdaQueryWrapper<Content>().eq(Content::getCategoryId, categoryId));
-        Page<ContentDTO> dtoPage = new Page<>(0, limit);
-        dtoPage.setRecords(contentConvertor.toDTOList(contentPage.getRecords()));
-        dtoPage.setTotal(contentPage.getTotal());
-        return ContentPageResponse.fromPage(dtoPage);
+        return hydrate(contentListQueries.getContentsByCategory(categoryId, limit));
     }
 
     @Override
-    @Cacheable(value = "content:featured", keyGenerator = "customCacheKeyGenerator")
     public ContentPageResponse getFeaturedContents(Integer offset, Integer limit) {
-        IPage<Content> contentPage = page(new Page<>(offset, limit),
-                new LambdaQueryWrapper<Content>().eq(Content::isFeatureData, true).orderByDesc(Content::getCreateTime));
-        Page<ContentDTO> dtoPage = new Page<>(offset, limit);
-        dtoPage.setRecords(contentConvertor.toDTOList(contentPage.getRecords()));
-        dtoPage.setTotal(contentPage.getTotal());
-        return ContentPageResponse.fromPage(dtoPage);
+        return hydrate(contentListQueries.getFeaturedContents(offset, limit));
+    }
+
+    @Override
+    public ContentPageResponse getFeaturedContentsAfter(String cursor, Integer limit) {
+        return hydrate(contentListQueries.getFeaturedContentsAfter(cursor, limit));
     }
 
     @Override
-    @Cacheable(value = "content:no:featured", keyGenerator = "customCacheKeyGenerator")
     public ContentPageResponse getNoFeaturedContents(Integer offset, Integer limit) {
-        IPage<Content> contentPage = null;
-        try {
-            contentPage = page(new Page<>(offset, limit),
-                new LambdaQueryWrapper<Content>().eq(Content::isFeatureData, false)
-                        .orderByDesc(Content::getCreateTime));
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        return hydrate(contentListQueries.getNoFeaturedContents(offset, limit));
+    }
 
-        Page<ContentDTO> dtoPage = new Page<>(offset, limit);
-        dtoPage.setRecords(contentConvertor.toDTOList(contentPage.getRecords()));
-        dtoPage.setTotal(contentPage.getTotal());
-        return ContentPageResponse.fromPage(dtoPage);
+    @Override
+    public ContentPageResponse getNoFeaturedContentsAfter(String cursor, Integer limit) {
+        return hydrate(contentListQueries.getNoFeaturedContentsAfter(cursor, limit));
     }
 
     @Override
-    @Cacheable(value = "content:published", keyGenerator = "customCacheKeyGenerator")
     public ContentPageResponse getPublishedContents(Integer offset, Integer limit) {
-        IPage<Content> contentPage = page(new Page<>(offset, limit),
-                new LambdaQueryWrapper<Content>().eq(Content::isPublished, true));
-        Page<ContentDTO> dtoPage = new Page<>(offset, limit);
-        dtoPage.setRecords(contentConvertor.toDTOList(contentPage.getRecords()));
-        dtoPage.setTotal(contentPage.getTotal());
-        return ContentPageResponse.fromPage(dtoPage);
+        return hydrate(contentListQueries.getPublishedContents(offset, limit));
     }
 
     @Override
-    @Cacheable(value = "content:by:tags", key = "'tags:' + #tags.hashCode() + ':limit:' + #limit")
+    public ContentPageResponse getPublishedContentsAfter(String cursor, Integer limit) {
+        return hydrate(contentListQueries.getPublishedContentsAfter(cursor, limit));
+    }
+
+    @Override
+    @Cacheable(value = "content:by:tags", keyGenerator = "customCacheKeyGenerator")
     public ContentPageResponse getContentsByTags(String tags, Integer limit) {
         // IPage<Content> contentPage = page(new Page<>(0, limit),
         // new LambdaQueryWrapper<Content>().like(Content::getTags, tags));
@@ -161,119 +251,152 @@ public class ContentServiceImpl extends ServiceImpl<ContentMapper, Content> impl
 
     @Override
     public void increaseHitCounter(Long id) {
-        baseMapper.increaseHitCounter(id);
+        if (!contentExistenceGuard.mightExist(id)) {
+            return;
+        }
+        if (liveHitCounters.isEnabled()) {
+            liveHitCounters.increment(id);
+        } else {
+            hitCounterAggregator.record(id);
+        }
+        trendingContents.record(id);
     }
 
     @Override
     public void resetHitCounter(Long id) {
+        // Views counted before the reset are dropped first, so none is written after it
+        if (liveHitCounters.isEnabled()) {
+            liveHitCounters.reset(id);
+        } else {
+            hitCounterAggregator.discard(id);
+        }
         baseMapper.resetHitCounter(id);
     }
 
     @Override
-    @Cacheable(value = "content:by:id", key = "'id:' + #id + ':hit-counter'")
+    @Cacheable(value = "content:by:id", keyGenerator = "hitCounterCacheKeyGenerator", sync = true,
+            condition = "!@liveHitCounters.isEnabled()")
     public Integer getHitCounter(Long id) {
+        if (liveHitCounters.isEnabled()) {
+            Integer hitCounter = liveHitCounters.get(id);
+            if (hitCounter == null) {
+                throw new ContentServiceException(ContentConstants.ERROR_CONTENT_NOT_FOUND,
+                        "Content not found with id: " + id);
+            }
+            return hitCounter;
+        }
+
         Content content = this.getById(id);
         if (content == null) {
-            throw new RuntimeException("Content not found with id: " + id);
+            throw new ContentServiceException(ContentConstants.ERROR_CONTENT_NOT_FOUND,
+                    "Content not found with id: " + id);
         }
         return content.getHitCounter();
     }
 
     @Override
-    @CacheEvict(value = { "content:by:id", "content:published", "content:featured" }, allEntries = true)
     public void publishContent(Long id) {
         Content content = this.getById(id);
         if (content == null) {
             throw new RuntimeException("Content not found with id: " + id);
         }
 
+        ContentState before = ContentState.of(content);
         content.setPublished(true);
         this.updateById(content);
+        contentCacheInvalidator.contentChanged(before, ContentState.of(content));
     }
 
     @Override
-    @CacheEvict(value = { "content:by:id", "content:published", "content:featured" }, allEntries = true)
     public void unpublishContent(Long id) {
         Content content = this.getById(id);
         if (content == null) {
             throw new RuntimeException("Content not found with id: " + id);
         }
 
+        ContentState before = ContentState.of(content);
         content.setPublished(false);
         this.updateById(content);
+        contentCacheInvalidator.contentChanged(before, ContentState.of(content));
     }
 
     @Override
-    @CacheEvict(value = { "content:by:id", "content:featured" }, allEntries = true)
     public void featureContent(Long id) {
         Content content = this.getById(id);
         if (content == null) {
             throw new RuntimeException("Content not found with id: " + id);
         }
 
+        ContentState before = ContentState.of(content);
         content.setFeatureData(true);
         this.updateById(content);
+        contentCacheInvalidator.contentChanged(before, ContentState.of(content));
     }
 
     @Override
-    @CacheEvict(value = { "content:by:id", "content:featured" }, allEntries = true)
     public void unfeatureContent(Long id) {
         Content content = this.getById(id);
         if (content == null) {
             throw new RuntimeException("Content not found with id: " + id);
         }
 
+        ContentState before = ContentState.of(content);
         content.setFeatureData(false);
         this.updateById(content);
+        contentCacheInvalidator.contentChanged(before, ContentState.of(content));
     }
 
     @Override
     public void deleteContents(List<Long> ids) {
+        List<Content> contents = this.listByIds(ids);
         this.removeBatchByIds(ids);
+        contents.forEach(content -> contentCacheInvalidator.contentChanged(ContentState.of(content), null));
     }
 
     @Override
     public ContentPageResponse getContentByPage(Integer offset, Integer limit) {
-        IPage<Content> contentPage = page(new Page<>(offset, limit),
-                new LambdaQueryWrapper<Content>().orderByDesc(Content::getCreateTime));
+        return hydrate(contentListQueries.getContents(offset, limit));
+    }
 
-        Page<ContentDTO> dtoPage = new Page<>(offset, limit);
-        dtoPage.setRecords(contentConvertor.toDTOList(contentPage.getRecords()));
-        dtoPage.setTotal(contentPage.getTotal());
-        return ContentPageResponse.fromPage(dtoPage);
+    @Override
+    public ContentPageResponse getContentPageAfter(String cursor, Integer limit) {
+        return hydrate(contentListQueries.getContentsAfter(cursor, limit));
     }
 
     @Override
-    @Cacheable(value = "content:by:user", key = "#userId + ':' + #offset + ':' + #limit")
     public ContentPageResponse getContentsByUser(Long userId, Integer offset, Integer limit) {
-        IPage<Content> contentPage = page(new Page<>(offset, limit),
-                new LambdaQueryWrapper<Content>().eq(Content::getCreateBy, userId).orderByDesc(Content::getCreateTime));
+        return hydrate(contentListQueries.getContentsByUser(userId, offset, limit));
+    }
 
-        Page<ContentDTO> dtoPage = new Page<>(offset, limit);
-        dtoPage.setRecords(contentConvertor.toDTOList(contentPage.getRecords()));
-        dtoPage.setTotal(contentPage.getTotal());
-        return ContentPageResponse.fromPage(dtoPage);
+    @Override
+    public ContentPageResponse getContentsByUserAfter(Long userId, String cursor, Integer limit) {
+        return hydrate(contentListQueries.getContentsByUserAfter(userId, cursor, limit));
     }
 
-    // Example: Manual cache operation with custom logic
-    public ContentDTO getContentWithCustomLogging(Long id) {
-        // return cacheLoggingService.logCacheOperation("content:by:id",
-        // String.valueOf(id), "custom", () -> {
-        // Custom business logic here
-        Content content = this.getById(id);
-        if (content == null) {
-            cacheLoggingService.logCacheMiss("content:by:id", String.valueOf(id), 0, "Custom logic - not found");
-            return null;
+    @Override
+    public List<TrendingContentDTO> getTrendingContents(String window, Long categoryId, Integer siteId,
+            Integer limit) {
+        TrendingContents.Window trendingWindow;
+        try {
+            trendingWindow = TrendingContents.Window.of(window);
+        } catch (IllegalArgumentException e) {
+            throw new ContentServiceException(ContentConstants.ERROR_INVALID_CONTENT_DATA,
+                    "Unknown trending window: " + window);
         }
-
-        // Additional custom logging
-        if (content.isPublished()) {
-            cacheLoggingService.logCacheHit("content:by:id", String.valueOf(id), 0);
-        } else {
-            cacheLoggingService.logCacheMiss("content:by:id", String.valueOf(id), 0, "Content not published");
+        if (limit == null || limit < 1 || limit > ContentConstants.MAX_PAGE_SIZE) {
+            throw new ContentServiceException(ContentConstants.ERROR_INVALID_CONTENT_DATA,
+                    "Limit must be between 1 and " + ContentConstants.MAX_PAGE_SIZE);
         }
 
-        return contentConvertor.toDTO(content);
-        // });
+        List<TrendingContents.Entry> entries = trendingContents.getTrending(trendingWindow, categoryId, siteId, limit);
+        Map<Long, ContentDTO> contents = getCachedContents(entries.stream().map(TrendingContents.Entry::id).toList());
+        // Contents deleted since the last ranking are skipped
+        return entries.stream()
+                .filter(entry -> contents.containsKey(entry.id()))
+                .map(entry -> TrendingContentDTO.builder()
+                        .content(contents.get(entry.id()))
+                        .views(entry.views())
+                        .build())
+                .toList();
     }
 }
@@ -0,0 +1,93 @@
+package com.taklip.yoda.content.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe count-min sketch of long values, with periodic aging
+ *
+ * Estimates how often a value was added: never less than the true count, and more by
+ * at most a small fraction of all additions. Once the sample size is reached every
+ * counter is halved, so the estimates follow recent traffic rather than all-time totals.
+ */
+public class CountMinSketch {
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final AtomicLongArray counters;
+    private final int width;
+    private final long sampleSize;
+    private final AtomicLong additions = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+
+    /**
+     * @param width      counters per row, rounded up to a power of two
+     * @param sampleSize additions after which all counters are halved
+     */
+    public CountMinSketch(int width, long sampleSize) {
+        this.width = Integer.highestOneBit(Math.max(16, width - 1)) << 1;
+        this.counters = new AtomicLongArray(DEPTH * this.width);
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Count one occurrence of the value
+     *
+     * @return the estimated count of the value, this occurrence included
+     */
+    public long add(long value) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, value)));
+        }
+        if (additions.incrementAndGet() % sampleSize == 0) {
+            age();
+        }
+        return estimate;
+    }
+
+    public long estimate(long value) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, value)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Times the counters were halved
+     */
+    public long getResets() {
+        return resets.get();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    private void age() {
+        for (int i = 0; i < counters.length(); i++) {
+            long current = counters.get(i);
+            while (current > 0 && !counters.compareAndSet(i, current, current >>> 1)) {
+                current = counters.get(i);
+            }
+        }
+        resets.incrementAndGet();
+    }
+
+    private int index(int row, long value) {
+        return row * width + (int) (mix(value ^ SEEDS[row]) & (width - 1));
+    }
+
+    /**
+     * Stafford variant 13 of the MurmurHash3 finalizer
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,78 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+class CacheGenerationsTest {
+    private ValueOperations<String, String> valueOperations;
+    private CacheGenerations generations;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        generations = new CacheGenerations(redisTemplate, "gen:", Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        generations.destroy();
+    }
+
+    @Test
+    void testAdvanceMovesKeysToNewPrefix() {
+        // Given
+        when(valueOperations.get("gen:content:by:id")).thenReturn("3");
+        when(valueOperations.increment("gen:content:by:id")).thenReturn(4L);
+        String before = generations.keyPrefix().compute("content:by:id");
+
+        // When
+        long generation = generations.advance("content:by:id");
+
+        // Then
+        assertEquals("content:by:id:g3::", before);
+        assertEquals(4L, generation);
+        assertEquals("content:by:id:g4::", generations.keyPrefix().compute("content:by:id"));
+        verify(valueOperations, times(1)).get(anyString());
+    }
+
+    @Test
+    void testPublishedGenerationNeverGoesBack() {
+        // Given
+        when(valueOperations.get("gen:cache")).thenReturn(null);
+
+        // When
+        generations.apply("cache", 5);
+        generations.apply("cache", 2);
+
+        // Then
+        assertEquals(5L, generations.current("cache"));
+        verify(valueOperations, never()).get(anyString());
+    }
+
+    @Test
+    void testRefreshCatchesUpWithMissedClears() {
+        // Given
+        when(valueOperations.get("gen:cache")).thenReturn("1");
+        generations.current("cache");
+        when(valueOperations.multiGet(List.of("gen:cache"))).thenReturn(List.of("7"));
+
+        // When
+        generations.refresh();
+
+        // Then
+        assertEquals(7L, generations.current("cache"));
+    }
+}
@@ -0,0 +1,163 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taklip.yoda.content.service.CacheLoggingService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CacheInvalidationBusTest {
+
+    private final List<Consumer<String>> hub = new CopyOnWriteArrayList<>();
+
+    private Cache l1CacheA;
+    private Cache l1CacheB;
+    private TwoLevelCacheManager nodeA;
+    private TwoLevelCacheManager nodeB;
+    private CacheInvalidationBus busA;
+    private CacheInvalidationBus busB;
+
+    @BeforeEach
+    void setUp() {
+        l1CacheA = mock(Cache.class);
+        l1CacheB = mock(Cache.class);
+        busA = newBus("node-a");
+        nodeA = newNode(busA, l1CacheA);
+        busB = newBus("node-b");
+        nodeB = newNode(busB, l1CacheB);
+    }
+
+    @Test
+    void testEvictIsAppliedToOtherNodeL1() {
+        // Given
+        nodeB.getCache("test-cache");
+
+        // When
+        nodeA.getCache("test-cache").evict(42L);
+
+        // Then
+        verify(l1CacheB).evict(42L);
+        assertTrue(busB.getLagStatistics().containsKey("node-a"));
+    }
+
+    @Test
+    void testStructuredKeyEvictIsAppliedToOtherNodeL1() {
+        // Given
+        nodeB.getCache("test-cache");
+
+        // When
+        nodeA.getCache("test-cache").evict(CacheKey.of(10L, "java", 20));
+
+        // Then
+        verify(l1CacheB).evict(CacheKey.of(10L, "java", 20));
+        verify(l1CacheB, never()).clear();
+    }
+
+    @Test
+    void testClearIsAppliedToOtherNodeL1() {
+        // Given
+        nodeB.getCache("test-cache");
+
+        // When
+        nodeA.getCache("test-cache").clear();
+
+        // Then
+        verify(l1CacheB).clear();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testClearMovesOtherNodeToPublishedGeneration() {
+        // Given
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(mock(ValueOperations.class));
+        CacheGenerations generationsB = new CacheGenerations(redisTemplate, "gen:", Duration.ofHours(1));
+        nodeB.setGenerations(generationsB);
+        nodeB.getCache("test-cache");
+
+        // When
+        busA.publishClear("test-cache", 3);
+
+        // Then
+        assertEquals(3L, generationsB.current("test-cache"));
+        verify(l1CacheB).clear();
+        generationsB.destroy();
+    }
+
+    @Test
+    void testTagsAreResolvedAgainstOtherNodeIndex() {
+        // Given
+        nodeB.getCache("test-cache").put("key-b", "b");
+        nodeA.getCache("test-cache");
+
+        // When
+        nodeA.invalidateTags(List.of("tag:b"));
+
+        // Then
+        verify(l1CacheB).evict("key-b");
+    }
+
+    @Test
+    void testBatchedMessageCarriesAllInvalidations() throws Exception {
+        // Given
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<String> payloads = new CopyOnWriteArrayList<>();
+        List<Consumer<String>> recordingHub = new CopyOnWriteArrayList<>(List.of(payloads::add));
+        CacheInvalidationBus bus = new CacheInvalidationBus("node-c",
+                new InMemoryCacheInvalidationTransport(recordingHub), objectMapper,
+                new SimpleMeterRegistry(), Duration.ofHours(1), 100);
+
+        // When
+        bus.publishEvict("cache-1", 1L);
+        bus.publishEvict("cache-1", "key");
+        bus.publishEvict("cache-2", 2);
+        bus.publishClear("cache-2");
+        bus.publishCreated(7L);
+        bus.publishDeleted(8L);
+        bus.flush();
+
+        // Then
+        assertEquals(1, payloads.size());
+        CacheInvalidationMessage message = objectMapper.readValue(payloads.get(0), CacheInvalidationMessage.class);
+        assertEquals(Map.of("cache-1", List.of("L1", "Skey")), message.getKeys());
+        assertEquals(List.of("cache-2"), message.getClears());
+        assertEquals(List.of(7L), message.getCreated());
+        assertEquals(List.of(8L), message.getDeleted());
+        bus.destroy();
+    }
+
+    private CacheInvalidationBus newBus(String nodeId) {
+        return new CacheInvalidationBus(nodeId, new InMemoryCacheInvalidationTransport(hub), new ObjectMapper(),
+                new SimpleMeterRegistry(), Duration.ZERO, 100);
+    }
+
+    private TwoLevelCacheManager newNode(CacheInvalidationBus bus, Cache l1Cache) {
+        CaffeineCacheManager l1CacheManager = mock(CaffeineCacheManager.class);
+        RedisCacheManager l2CacheManager = mock(RedisCacheManager.class);
+        when(l1CacheManager.getCache("test-cache")).thenReturn(l1Cache);
+        when(l2CacheManager.getCache("test-cache")).thenReturn(mock(Cache.class));
+
+        CacheTagIndex tagIndex = new CacheTagIndex((name, key, value) -> Set.of("tag:" + value));
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(l1CacheManager, l2CacheManager,
+                new CacheLoggingService(new SimpleMeterRegistry(), new ContentCacheProperties()), tagIndex);
+        cacheManager.setInvalidationBus(bus);
+        return cacheManager;
+    }
+}
@@ -0,0 +1,53 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.taklip.yoda.content.constant.ContentConstants;
+import com.taklip.yoda.content.dto.ContentDTO;
+
+class CacheTagIndexTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void testRetentionCoversTheLongestStableJitteredTtl() {
+        // Given
+        ContentCacheProperties cacheProperties = new ContentCacheProperties();
+
+        // When
+        Duration retention = CacheConfig.tagRetention(cacheProperties);
+
+        // Then
+        Duration baseTtl = Duration.ofSeconds(ContentConstants.CACHE_TTL_CONTENT);
+        assertEquals(baseTtl.multipliedBy(22).dividedBy(10), retention);
+    }
+
+    @Test
+    void testEntryOlderThanTheBaseTtlIsStillEvictedByItsTags() {
+        // Given
+        CacheTagIndex tagIndex = new CacheTagIndex((name, key, value) -> Set.of("content:" + key), null,
+                CacheConfig.tagRetention(new ContentCacheProperties()), nanos::get);
+        ContentDTO stable = new ContentDTO();
+        stable.setId(7L);
+        stable.setUpdateTime(LocalDateTime.now().minusDays(30));
+        tagIndex.track(ContentConstants.CACHE_NAME_CONTENT_BY_ID, 7L, stable, false);
+
+        // When
+        nanos.addAndGet(Duration.ofMinutes(90).toNanos());
+        // A later write runs the expiration of the index
+        tagIndex.track(ContentConstants.CACHE_NAME_CONTENT_BY_ID, 8L, new ContentDTO(), false);
+        Map<String, Set<Object>> evicted = tagIndex.removeLocal(List.of("content:7"));
+
+        // Then
+        assertEquals(Map.of(ContentConstants.CACHE_NAME_CONTENT_BY_ID, Set.of(7L)), evicted);
+    }
+}
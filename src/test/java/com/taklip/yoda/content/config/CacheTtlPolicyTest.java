@@ -0,0 +1,65 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.taklip.yoda.content.dto.ContentDTO;
+
+class CacheTtlPolicyTest {
+
+    private final CacheTtlPolicy policy = new CacheTtlPolicy("content:featured", Duration.ofMinutes(30), 0.2,
+            Duration.ofDays(7), 2);
+
+    @Test
+    void testJitterSpreadsKeysWithinBounds() {
+        // Given
+        Set<Long> ttlSeconds = new HashSet<>();
+
+        // When
+        for (int page = 0; page < 100; page++) {
+            Duration ttl = policy.getTimeToLive("ContentListQueries.getFeaturedContents(" + page + ",10)", null);
+            assertTrue(ttl.compareTo(Duration.ofMinutes(24)) >= 0 && ttl.compareTo(Duration.ofMinutes(36)) <= 0);
+            ttlSeconds.add(ttl.toSeconds());
+        }
+
+        // Then
+        assertTrue(ttlSeconds.size() > 90);
+        assertEquals(policy.getTimeToLive(42L, null), policy.getTimeToLive(42L, null));
+    }
+
+    @Test
+    void testStableContentLivesLonger() {
+        // Given
+        CacheTtlPolicy fixed = new CacheTtlPolicy("content:by:id", Duration.ofHours(1), 0, Duration.ofDays(7), 2);
+        ContentDTO stable = new ContentDTO();
+        stable.setUpdateTime(LocalDateTime.now().minusDays(30));
+        ContentDTO recent = new ContentDTO();
+        recent.setUpdateTime(LocalDateTime.now().minusHours(1));
+
+        // Then
+        assertEquals(Duration.ofHours(2), fixed.getTimeToLive(1L, stable));
+        assertEquals(Duration.ofHours(1), fixed.getTimeToLive(2L, recent));
+        assertEquals(Duration.ofHours(1).toNanos(), fixed.toExpiry().expireAfterCreate(2L, recent, 0));
+    }
+
+    @Test
+    void testMaximumCapsJitteredAndStableTtl() {
+        // Given
+        CacheTtlPolicy capped = new CacheTtlPolicy("content:featured", Duration.ofMinutes(30), 0.2,
+                Duration.ofDays(7), 2, Duration.ofMinutes(10));
+        ContentDTO stable = new ContentDTO();
+        stable.setUpdateTime(LocalDateTime.now().minusDays(30));
+
+        // Then
+        for (int page = 0; page < 100; page++) {
+            assertEquals(Duration.ofMinutes(10), capped.getTimeToLive(page, null));
+        }
+        assertEquals(Duration.ofMinutes(10), capped.getTimeToLive(1L, stable));
+    }
+}
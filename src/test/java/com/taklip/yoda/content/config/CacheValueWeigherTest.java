@@ -0,0 +1,80 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.taklip.yoda.content.dto.ContentDTO;
+import com.taklip.yoda.content.dto.ContentIdPage;
+import com.taklip.yoda.content.dto.ContentPageResponse;
+
+class CacheValueWeigherTest {
+
+    private final CacheValueWeigher weigher = new CacheValueWeigher();
+
+    @Test
+    void testContentWeightGrowsWithItsText() {
+        // Given
+        ContentDTO small = newContent(1L, "x".repeat(100));
+        ContentDTO large = newContent(2L, "x".repeat(10_000));
+
+        // When
+        int smallWeight = weigher.weigh(1L, small);
+        int largeWeight = weigher.weigh(2L, large);
+
+        // Then
+        assertTrue(largeWeight - smallWeight >= 9_800);
+        assertTrue(weigher.weigh(3L, newContent(3L, "é€".repeat(5_000))) > largeWeight);
+    }
+
+    @Test
+    void testIdPageWeighsFarLessThanFullPage() {
+        // Given
+        List<ContentDTO> records = LongStream.range(0, 20).mapToObj(id -> newContent(id, "x".repeat(2_000))).toList();
+        ContentPageResponse page = new ContentPageResponse(records, 100, 1, 20, 5, null, false);
+        ContentIdPage idPage = new ContentIdPage(records.stream().map(ContentDTO::getId).toList(), 100, 1, 20, 5, null, false);
+
+        // When
+        int pageWeight = weigher.weigh("key", page);
+        int idPageWeight = weigher.weigh("key", idPage);
+
+        // Then
+        assertTrue(pageWeight > 20 * 2_000);
+        assertTrue(idPageWeight < 1_000);
+    }
+
+    @Test
+    void testHeapBudgetIsSplitByShareAfterFixedWeights() {
+        // Given
+        ContentCacheProperties.Local local = new ContentCacheProperties.Local();
+        local.setHeapBudget(DataSize.ofMegabytes(10));
+        ContentCacheProperties.LocalPolicy fixed = new ContentCacheProperties.LocalPolicy();
+        fixed.setMaximumWeight(DataSize.ofMegabytes(2));
+        ContentCacheProperties.LocalPolicy large = new ContentCacheProperties.LocalPolicy();
+        large.setShare(3);
+        local.getCaches().put("fixed", fixed);
+        local.getCaches().put("large", large);
+
+        // When
+        double bytesPerShare = CacheConfig.bytesPerShare(local, Set.of("fixed", "large"));
+
+        // Then: 8MB left for the large cache and the caches created on demand
+        assertEquals(DataSize.ofMegabytes(2).toBytes(), CacheConfig.maximumWeight(fixed, bytesPerShare));
+        assertEquals(DataSize.ofMegabytes(6).toBytes(), CacheConfig.maximumWeight(large, bytesPerShare));
+        assertEquals(DataSize.ofMegabytes(2).toBytes(),
+                CacheConfig.maximumWeight(local.getDefaultPolicy(), bytesPerShare));
+    }
+
+    private static ContentDTO newContent(Long id, String description) {
+        ContentDTO content = new ContentDTO();
+        content.setId(id);
+        content.setTitle("Title " + id);
+        content.setDescription(description);
+        return content;
+    }
+}
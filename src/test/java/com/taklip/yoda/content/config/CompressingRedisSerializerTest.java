@@ -0,0 +1,63 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CompressingRedisSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+
+    @ParameterizedTest
+    @EnumSource(CacheCompression.class)
+    void testLargeValueIsCompressedAndRestored(CacheCompression compression) {
+        // Given
+        CompressingRedisSerializer serializer = newSerializer(compression);
+        String value = "The full body of the article. ".repeat(200);
+
+        // When
+        byte[] bytes = serializer.serialize(value);
+
+        // Then
+        assertEquals(CompressingRedisSerializer.MAGIC, bytes[0]);
+        assertTrue(bytes.length < jsonSerializer.serialize(value).length / 4);
+        assertEquals(value, serializer.deserialize(bytes));
+        assertTrue(serializer.getCompressionRatio() > 4);
+    }
+
+    @Test
+    void testSmallValueIsStoredUncompressed() {
+        // Given
+        CompressingRedisSerializer serializer = newSerializer(CacheCompression.LZ4);
+
+        // When
+        byte[] bytes = serializer.serialize("short");
+
+        // Then
+        assertArrayEquals(jsonSerializer.serialize("short"), bytes);
+        assertEquals("short", serializer.deserialize(bytes));
+    }
+
+    @Test
+    void testValueCompressedWithAnotherAlgorithmIsRestored() {
+        // Given
+        String value = "The full body of the article. ".repeat(200);
+        byte[] bytes = newSerializer(CacheCompression.ZSTD).serialize(value);
+
+        // When
+        Object restored = newSerializer(CacheCompression.LZ4).deserialize(bytes);
+
+        // Then
+        assertEquals(value, restored);
+    }
+
+    private CompressingRedisSerializer newSerializer(CacheCompression compression) {
+        return new CompressingRedisSerializer(jsonSerializer, compression, 256, "test-cache",
+                new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,132 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.taklip.yoda.content.dto.ContentCursor;
+import com.taklip.yoda.content.dto.ContentDTO;
+import com.taklip.yoda.content.dto.ContentIdPage;
+import com.taklip.yoda.content.dto.ContentPageResponse;
+
+class ContentBinaryRedisSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(
+            redisObjectMapper());
+    private final ContentBinaryRedisSerializer serializer = new ContentBinaryRedisSerializer(jsonSerializer);
+
+    @Test
+    void testContentRoundTrip() {
+        // Given
+        ContentDTO content = newContent(42L);
+        content.setDescription(null);
+        content.setScore(-3);
+
+        // When
+        Object decoded = serializer.deserialize(serializer.serialize(content));
+
+        // Then
+        assertEquals(content, decoded);
+    }
+
+    @Test
+    void testPageRoundTripIsSmallerThanJson() {
+        // Given
+        ContentPageResponse page = new ContentPageResponse(List.of(newContent(1L), newContent(2L)), 20, 1, 2, 10, null, true);
+
+        // When
+        byte[] binary = serializer.serialize(page);
+
+        // Then
+        assertEquals(page, serializer.deserialize(binary));
+        assertTrue(binary.length < jsonSerializer.serialize(page).length);
+    }
+
+    @Test
+    void testIdPageRoundTrip() {
+        // Given
+        ContentIdPage page = new ContentIdPage(List.of(3L, 1L, 2L), 30, 1, 3, 10,
+                ContentCursor.after(LocalDateTime.of(2025, 1, 1, 0, 0), 2L), true);
+
+        // When
+        Object decoded = serializer.deserialize(serializer.serialize(page));
+
+        // Then
+        assertEquals(page, decoded);
+    }
+
+    @Test
+    void testHitCounterRoundTrip() {
+        assertEquals(12345, serializer.deserialize(serializer.serialize(12345)));
+    }
+
+    @Test
+    void testJsonValueIsReadThroughFallback() {
+        // Given
+        ContentDTO content = newContent(7L);
+        content.setUpdateTime(null); // the JSON format keeps seconds only
+        byte[] json = jsonSerializer.serialize(content);
+
+        // When
+        Object decoded = serializer.deserialize(json);
+
+        // Then
+        assertEquals(content, decoded);
+    }
+
+    @Test
+    void testUnknownVersionIsReadAsMiss() {
+        // Given
+        byte[] bytes = serializer.serialize(newContent(7L));
+        bytes[1] = (byte) (ContentBinaryRedisSerializer.VERSION + 1);
+
+        // When
+        Object decoded = serializer.deserialize(bytes);
+
+        // Then
+        assertNull(decoded);
+    }
+
+    @Test
+    void testTruncatedValueIsRejected() {
+        byte[] bytes = serializer.serialize(newContent(7L));
+
+        assertThrows(org.springframework.data.redis.serializer.SerializationException.class,
+                () -> serializer.deserialize(Arrays.copyOf(bytes, bytes.length / 2)));
+    }
+
+    /**
+     * Same typing as the JSON serializer of CacheConfig
+     */
+    private static ObjectMapper redisObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        objectMapper.activateDefaultTyping(objectMapper.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        return objectMapper;
+    }
+
+    private static ContentDTO newContent(Long id) {
+        ContentDTO content = new ContentDTO();
+        content.setId(id);
+        content.setTitle("Title " + id);
+        content.setShortDescription("Short description");
+        content.setDescription("Long description with unicode: 内容");
+        content.setPublished(true);
+        content.setFeatureData(false);
+        content.setCategoryId(3L);
+        content.setSiteId(1);
+        content.setHitCounter(100);
+        content.setCreateTime(LocalDateTime.of(2024, 5, 1, 10, 30, 15));
+        content.setUpdateTime(LocalDateTime.of(2024, 5, 2, 11, 0, 0, 123_000_000));
+        content.setCreateBy(9L);
+        return content;
+    }
+}
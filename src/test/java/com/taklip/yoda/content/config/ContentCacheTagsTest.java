@@ -0,0 +1,105 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.taklip.yoda.content.config.ContentCacheTags.ContentState;
+import com.taklip.yoda.content.dto.ContentDTO;
+import com.taklip.yoda.content.dto.ContentIdPage;
+import com.taklip.yoda.content.dto.ContentPageResponse;
+
+class ContentCacheTagsTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private final ContentCacheTags contentCacheTags = new ContentCacheTags();
+
+    @Test
+    void testTitleEditOnlyAffectsContent() {
+        // Given
+        ContentState state = new ContentState(1L, 10L, 100L, true, true, CREATED);
+
+        // When
+        Set<String> tags = ContentCacheTags.affectedBy(state, state);
+
+        // Then
+        assertEquals(Set.of("content:1"), tags);
+    }
+
+    @Test
+    void testFeatureToggleAffectsBothFeaturedDimensions() {
+        // Given
+        ContentState before = new ContentState(1L, 10L, 100L, false, true, CREATED);
+        ContentState after = new ContentState(1L, 10L, 100L, true, true, CREATED);
+
+        // When
+        Set<String> tags = ContentCacheTags.affectedBy(before, after);
+
+        // Then
+        assertEquals(Set.of("content:1", "featured:false", "featured:true"), tags);
+    }
+
+    @Test
+    void testCreateAffectsEveryDimension() {
+        // Given
+        ContentState created = new ContentState(1L, 10L, 100L, false, true, CREATED);
+
+        // When
+        Set<String> tags = ContentCacheTags.affectedBy(null, created);
+
+        // Then
+        assertEquals(Set.of("content:1", "category:10", "user:100", "featured:false", "published:true"), tags);
+    }
+
+    @Test
+    void testResolvePageTags() {
+        // Given
+        ContentDTO record = new ContentDTO();
+        record.setId(7L);
+        ContentPageResponse page = ContentPageResponse.builder().records(List.of(record)).build();
+
+        // When
+        Set<String> tags = contentCacheTags.resolveTags("content:by:category", "10:20", page);
+
+        // Then
+        assertEquals(Set.of("category:10", "content:7"), tags);
+    }
+
+    @Test
+    void testResolveIdPageTagsWithoutContentTags() {
+        // Given
+        ContentIdPage page = ContentIdPage.builder().ids(List.of(7L, 8L)).build();
+
+        // When
+        Set<String> tags = contentCacheTags.resolveTags("content:by:category", "10:20", page);
+
+        // Then
+        assertEquals(Set.of("category:10"), tags);
+    }
+
+    @Test
+    void testResolveByIdTags() {
+        assertEquals(Set.of("content:5"), contentCacheTags.resolveTags("content:by:id", 5L, new ContentDTO()));
+        assertEquals(Set.of("content:5"), contentCacheTags.resolveTags("content:by:id", "id:5:hit-counter", 3));
+        assertEquals(Set.of("content:5"),
+                contentCacheTags.resolveTags("content:by:id", CacheKey.of("id", 5L, "hit-counter"), 3));
+    }
+
+    @Test
+    void testResolveStructuredKeyTags() {
+        // Given
+        CacheKey key = CacheKey.of(10L, 20);
+
+        // When
+        Set<String> tags = contentCacheTags.resolveTags("content:by:category", key, new ContentIdPage());
+
+        // Then
+        assertEquals(Set.of("category:10"), tags);
+        assertEquals("10:20", key.toString());
+    }
+}
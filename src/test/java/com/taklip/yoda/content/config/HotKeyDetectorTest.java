@@ -0,0 +1,51 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class HotKeyDetectorTest {
+
+    @Test
+    void testFrequentKeysBecomeHotAboveMinFrequency() {
+        // Given
+        HotKeyDetector detector = new HotKeyDetector(2, 5, 1024, key -> { });
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            detector.record("content:1");
+        }
+        boolean hotBelowMinimum = detector.isHot("content:1");
+        boolean hot = detector.record("content:1");
+
+        // Then
+        assertFalse(hotBelowMinimum);
+        assertTrue(hot);
+        assertEquals(5L, detector.getHotKeys().get("content:1"));
+    }
+
+    @Test
+    void testMoreFrequentKeyDemotesTheColdestOnceFull() {
+        // Given
+        List<Object> demoted = new ArrayList<>();
+        HotKeyDetector detector = new HotKeyDetector(2, 1, 1024, demoted::add);
+        for (int i = 0; i < 10; i++) {
+            detector.record("a");
+        }
+        for (int i = 0; i < 3; i++) {
+            detector.record("b");
+        }
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            detector.record("c");
+        }
+
+        // Then
+        assertEquals(List.of("b"), demoted);
+        assertEquals(List.of("a", "c"), new ArrayList<>(detector.getHotKeys().keySet()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OffHeapCacheStoreTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testLargeValueIsStoredAcrossBlocksAndSmallOneRejected() {
+        // Given
+        OffHeapCacheStore store = store(64 * 1024);
+        String body = "x".repeat(3000);
+
+        // When
+        boolean largeStored = store.put("large", body);
+        boolean smallStored = store.put("small", "tiny");
+        Cache.ValueWrapper value = store.get("large");
+
+        // Then
+        assertTrue(largeStored);
+        assertFalse(smallStored);
+        assertEquals(body, value.get());
+        assertNull(store.get("small"));
+        assertTrue(store.getUsedBytes() >= 3000);
+        assertEquals((double) store.getUsedBytes(),
+                meterRegistry.get("cache.offheap.used").tag("cache", "test-cache").gauge().value());
+    }
+
+    @Test
+    void testLeastRecentlyReadValueIsEvictedWhenFull() {
+        // Given: a single segment of 8 blocks of 1 KB, each value taking 3 of them
+        OffHeapCacheStore store = store(8 * 1024);
+        store.put("a", "a".repeat(2500));
+        store.put("b", "b".repeat(2500));
+        store.get("a");
+
+        // When
+        store.put("c", "c".repeat(2500));
+
+        // Then
+        assertNotNull(store.get("a"));
+        assertNull(store.get("b"));
+        assertNotNull(store.get("c"));
+        assertEquals(1.0, meterRegistry.get("cache.offheap.evictions").counter().count());
+    }
+
+    @Test
+    void testEvictAndClearFreeTheBlocks() {
+        // Given
+        OffHeapCacheStore store = store(64 * 1024);
+        store.put("a", "a".repeat(2000));
+        store.put("b", "b".repeat(2000));
+
+        // When
+        store.evict("a");
+        long afterEvict = store.size();
+        store.clear();
+
+        // Then
+        assertEquals(1, afterEvict);
+        assertEquals(0, store.size());
+        assertEquals(0, store.getUsedBytes());
+    }
+
+    private OffHeapCacheStore store(long capacityBytes) {
+        return new OffHeapCacheStore("test-cache", SerializationPair.fromSerializer(RedisSerializer.java()),
+                capacityBytes, 1024, 1, 1024, Duration.ofMinutes(5), meterRegistry);
+    }
+}
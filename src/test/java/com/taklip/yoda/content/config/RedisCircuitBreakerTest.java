@@ -0,0 +1,106 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RedisCircuitBreakerTest {
+
+    private final RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(Duration.ofMillis(50), 2,
+            Duration.ofMillis(100), Duration.ofHours(1), new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        circuitBreaker.destroy();
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailuresAndRejectsCalls() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            circuitBreaker.call(() -> {
+                calls.incrementAndGet();
+                throw new RedisConnectionFailureException("down");
+            }, "fallback");
+        }
+        String result = circuitBreaker.call(() -> {
+            calls.incrementAndGet();
+            return "value";
+        }, "fallback");
+
+        // Then
+        assertEquals(RedisCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals("fallback", result);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testSlowCallTimesOutWithFallback() {
+        // When
+        long start = System.nanoTime();
+        String result = circuitBreaker.call(() -> {
+            Thread.sleep(5_000);
+            return "value";
+        }, "fallback");
+
+        // Then
+        assertEquals("fallback", result);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1_000);
+    }
+
+    @Test
+    void testSuccessfulProbeClosesCircuitAndRepairsInBackground() throws Exception {
+        // Given
+        CountDownLatch repaired = new CountDownLatch(1);
+        AtomicReference<Thread> repairThread = new AtomicReference<>();
+        circuitBreaker.onRepair(() -> {
+            repairThread.set(Thread.currentThread());
+            repaired.countDown();
+        });
+        for (int i = 0; i < 2; i++) {
+            circuitBreaker.run(() -> {
+                throw new RedisConnectionFailureException("down");
+            });
+        }
+        Thread.sleep(150);
+
+        // When
+        String result = circuitBreaker.call(() -> "value", "fallback");
+
+        // Then
+        assertEquals("value", result);
+        assertTrue(circuitBreaker.isClosed());
+        assertTrue(repaired.await(1, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), repairThread.get());
+    }
+
+    @Test
+    void testRepairsRunPeriodicallyWhileClosed() throws Exception {
+        // Given
+        RedisCircuitBreaker repairing = new RedisCircuitBreaker(Duration.ofMillis(50), 2, Duration.ofMillis(100),
+                Duration.ofMillis(20), new SimpleMeterRegistry());
+        CountDownLatch repaired = new CountDownLatch(2);
+        repairing.onRepair(repaired::countDown);
+
+        // When
+        boolean ran = repaired.await(1, TimeUnit.SECONDS);
+
+        // Then
+        assertTrue(ran);
+        assertTrue(repairing.isClosed());
+        repairing.destroy();
+    }
+}
@@ -1,19 +1,51 @@
 package com.taklip.yoda.content.config;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.*;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.cache.Cache;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.CacheInterceptor;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import com.taklip.yoda.content.service.CacheLoggingService;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 class TwoLevelCacheManagerTest {
 
@@ -23,19 +55,22 @@ class TwoLevelCacheManagerTest {
     @Mock
     private RedisCacheManager l2CacheManager;
 
-    @Mock
-    private CacheLoggingService cacheLoggingService;
-
     @Mock
     private Cache l1Cache;
 
     @Mock
     private Cache l2Cache;
 
+    private SimpleMeterRegistry meterRegistry;
+
+    private CacheLoggingService cacheLoggingService;
+
     private TwoLevelCacheManager twoLevelCacheManager;
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cacheLoggingService = new CacheLoggingService(meterRegistry, new ContentCacheProperties());
         twoLevelCacheManager = new TwoLevelCacheManager(l1CacheManager, l2CacheManager, cacheLoggingService);
 
         // Setup mocks
@@ -80,7 +115,7 @@ class TwoLevelCacheManagerTest {
         // Then
         assertNotNull(result);
         assertEquals("test-value", result.get());
-        verify(cacheLoggingService).logCacheHit("L1:test-cache", "test-key", 0);
+        assertEquals(1, lookups("l1", "hit"));
         verify(l2Cache, never()).get(any());
     }
 
@@ -101,7 +136,7 @@ class TwoLevelCacheManagerTest {
         // Then
         assertNotNull(result);
         assertEquals("test-value", result.get());
-        verify(cacheLoggingService).logCacheHit("L2:test-cache", "test-key", 0);
+        assertEquals(1, lookups("l2", "hit"));
         verify(l1Cache).put("test-key", "test-value"); // Should populate L1
     }
 
@@ -118,7 +153,8 @@ class TwoLevelCacheManagerTest {
 
         // Then
         assertNull(result);
-        verify(cacheLoggingService).logCacheMiss("L1+L2:test-cache", "test-key", 0, "Not found in either cache");
+        assertEquals(1, lookups("none", "miss"));
+        assertEquals(0, lookups("l1", "hit"));
     }
 
     @Test
@@ -132,7 +168,7 @@ class TwoLevelCacheManagerTest {
         // Then
         verify(l1Cache).put("test-key", "test-value");
         verify(l2Cache).put("test-key", "test-value");
-        verify(cacheLoggingService).logCachePut("L1+L2:test-cache", "test-key", 0);
+        assertEquals(1, meterRegistry.get("cache.put.latency").tag("cache", "test-cache").timer().count());
     }
 
     @Test
@@ -146,7 +182,7 @@ class TwoLevelCacheManagerTest {
         // Then
         verify(l1Cache).evict("test-key");
         verify(l2Cache).evict("test-key");
-        verify(cacheLoggingService).logCacheEvict("L1+L2:test-cache", "test-key", 0);
+        assertEquals(1, meterRegistry.get("cache.evictions.explicit").tag("cache", "test-cache").counter().count());
     }
 
     @Test
@@ -160,6 +196,435 @@ class TwoLevelCacheManagerTest {
         // Then
         verify(l1Cache).clear();
         verify(l2Cache).clear();
-        verify(cacheLoggingService).logCacheEvict("L1+L2:test-cache", "ALL", 0);
+        assertEquals(1, meterRegistry.get("cache.clears").tag("cache", "test-cache").counter().count());
+    }
+
+    @Test
+    void testInvalidateTagsEvictsOnlyDependentEntries() {
+        // Given
+        CacheTagIndex tagIndex = new CacheTagIndex((name, key, value) -> Set.of("tag:" + value));
+        twoLevelCacheManager = new TwoLevelCacheManager(l1CacheManager, l2CacheManager, cacheLoggingService, tagIndex);
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+        cache.put("key-a", "a");
+        cache.put("key-b", "b");
+
+        // When
+        twoLevelCacheManager.invalidateTags(List.of("tag:a"));
+
+        // Then
+        verify(l1Cache).evict("key-a");
+        verify(l2Cache).evict("key-a");
+        verify(l1Cache, never()).evict("key-b");
+        verify(l2Cache, never()).clear();
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() throws Exception {
+        // Given
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        Callable<String> loader = () -> {
+            loads.incrementAndGet();
+            loadStarted.countDown();
+            releaseLoad.await();
+            return "loaded";
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> cache.get("test-key", loader)));
+        loadStarted.await();
+        for (int i = 0; i < 7; i++) {
+            results.add(executor.submit(() -> cache.get("test-key", loader)));
+        }
+        Thread.sleep(100);
+        releaseLoad.countDown();
+
+        // Then
+        for (Future<String> result : results) {
+            assertEquals("loaded", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        verify(l2Cache, times(1)).put("test-key", "loaded");
+        executor.shutdown();
+    }
+
+    @Test
+    void testLoadFinishedBeforeWinningTheSlotIsNotRepeated() {
+        // Given
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+        when(l2Cache.get("test-key")).thenReturn(null, () -> "loaded-meanwhile");
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        String value = cache.get("test-key", () -> {
+            loads.incrementAndGet();
+            return "loaded";
+        });
+
+        // Then
+        assertEquals("loaded-meanwhile", value);
+        assertEquals(0, loads.get());
+        assertEquals(1, lookups("none", "miss"));
+    }
+
+    @Test
+    void testSlowLoadLeaseIsGrantedAtTheCircuitDeadline() {
+        // Given
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(Duration.ofMillis(50), 5,
+                Duration.ofSeconds(5), Duration.ofHours(1), new SimpleMeterRegistry());
+        CacheLoadLease loadLease = mock(CacheLoadLease.class);
+        when(loadLease.tryAcquire("test-cache", "test-key")).thenAnswer(invocation -> {
+            Thread.sleep(1_000);
+            return false;
+        });
+        twoLevelCacheManager.setCircuitBreaker(circuitBreaker);
+        twoLevelCacheManager.setLoadLease(loadLease, Set.of());
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+
+        // When
+        long start = System.nanoTime();
+        String value = cache.get("test-key", () -> "loaded");
+
+        // Then
+        assertEquals("loaded", value);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        verify(loadLease).release("test-cache", "test-key");
+        circuitBreaker.destroy();
+    }
+
+    @Test
+    void testLoaderFailureIsWrappedWithCause() {
+        // Given
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        // When
+        Cache.ValueRetrievalException exception = assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get("test-key", () -> {
+                    throw failure;
+                }));
+
+        // Then
+        assertSame(failure, exception.getCause());
+        verify(l2Cache, never()).put(any(), any());
+    }
+
+    @Test
+    void testStaleHitIsServedAndRefreshedInBackground() throws Exception {
+        // Given
+        ContentCacheProperties.RefreshPolicy policy = new ContentCacheProperties.RefreshPolicy();
+        policy.setSoftTtl(Duration.ZERO);
+        CacheRefresher refresher = new CacheRefresher(1, 10, new SimpleMeterRegistry());
+        twoLevelCacheManager.setRefresh(refresher, Map.of("test-cache", policy));
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+        CountDownLatch refreshed = new CountDownLatch(1);
+        when(l1Cache.get("test-key")).thenReturn(() -> "stale");
+
+        // When
+        String value = cache.get("test-key", () -> {
+            refreshed.countDown();
+            return "fresh";
+        });
+
+        // Then
+        assertEquals("stale", value);
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        verify(l2Cache, timeout(5000)).put("test-key", "fresh");
+        refresher.destroy();
+    }
+
+    @Test
+    void testEntryPromotedFromL2IsAgedFromItsL2Write() throws Exception {
+        // Given
+        ContentCacheProperties.RefreshPolicy policy = new ContentCacheProperties.RefreshPolicy();
+        policy.setSoftTtl(Duration.ofMinutes(5));
+        CacheRefresher refresher = new CacheRefresher(1, 10, new SimpleMeterRegistry());
+        twoLevelCacheManager.setRefresh(refresher, Map.of("test-cache", policy));
+        RedisCacheBatchOperations batchOperations = mock(RedisCacheBatchOperations.class);
+        twoLevelCacheManager.setBatchOperations(batchOperations);
+        RedisCache redisCache = mock(RedisCache.class);
+        when(redisCache.getCacheConfiguration())
+                .thenReturn(RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(10)));
+        when(l2CacheManager.getCache("test-cache")).thenReturn(redisCache);
+        when(batchOperations.timeToLive(redisCache, "old-key")).thenReturn(Duration.ofMinutes(4));
+        when(batchOperations.timeToLive(redisCache, "recent-key")).thenReturn(Duration.ofMinutes(9));
+        when(l1Cache.get("old-key")).thenReturn(() -> "old");
+        when(l1Cache.get("recent-key")).thenReturn(() -> "recent");
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+        CountDownLatch refreshed = new CountDownLatch(1);
+
+        // When
+        Object old = cache.get("old-key", () -> {
+            refreshed.countDown();
+            return "fresh";
+        });
+        Object recent = cache.get("recent-key", () -> "fresh");
+
+        // Then
+        assertEquals("old", old);
+        assertEquals("recent", recent);
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        verify(redisCache, timeout(5000)).put("old-key", "fresh");
+        verify(redisCache, never()).put(eq("recent-key"), any());
+        refresher.destroy();
+    }
+
+    @Test
+    void testRefreshReinvokesTheCachedMethodThroughItsLoader() throws Exception {
+        // Given
+        ContentCacheProperties.RefreshPolicy policy = new ContentCacheProperties.RefreshPolicy();
+        policy.setSoftTtl(Duration.ZERO);
+        CacheRefresher refresher = new CacheRefresher(1, 10, new SimpleMeterRegistry());
+        twoLevelCacheManager.setRefresh(refresher, Map.of("test-cache", policy));
+        CacheInterceptor interceptor = new CacheInterceptor();
+        interceptor.setCacheOperationSource(new AnnotationCacheOperationSource());
+        interceptor.setCacheManager(twoLevelCacheManager);
+        interceptor.afterPropertiesSet();
+        interceptor.afterSingletonsInstantiated();
+        ProxyFactory proxyFactory = new ProxyFactory(new VersionedLoader());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        VersionedLoader loader = (VersionedLoader) proxyFactory.getProxy();
+        // Missed by the lookup and by the read again before loading
+        when(l1Cache.get(7L)).thenReturn(null, null, () -> "version-1");
+
+        // When
+        String loaded = loader.load(7L);
+        String stale = loader.load(7L);
+
+        // Then
+        assertEquals("version-1", loaded);
+        assertEquals("version-1", stale);
+        verify(l2Cache, timeout(5000)).put(7L, "version-2");
+        refresher.destroy();
+    }
+
+    @Test
+    void testWriteBehindPutIsReadBackAndCancelledByEvict() {
+        // Given
+        CacheWriteBehind writeBehind = new CacheWriteBehind(null, new SimpleMeterRegistry(), 100, 10,
+                Duration.ofHours(1), CacheWriteBehind.OVERFLOW_DROP);
+        twoLevelCacheManager.setWriteBehind(writeBehind);
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+
+        // When
+        cache.put("kept", "value");
+        cache.put("evicted", "value");
+        verify(l2Cache, never()).put(any(), any());
+        Cache.ValueWrapper pending = cache.get("kept");
+        cache.evict("evicted");
+        writeBehind.flush();
+
+        // Then
+        assertEquals("value", pending.get());
+        verify(l2Cache).put("kept", "value");
+        verify(l2Cache, never()).put(eq("evicted"), any());
+        writeBehind.destroy();
+    }
+
+    @Test
+    void testWriteBehindFlushesCacheKeysToRedis() {
+        // Given
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+                    return List.of();
+                });
+        RedisCache redisCache = mock(RedisCache.class);
+        when(redisCache.getName()).thenReturn("test-cache");
+        when(redisCache.getCacheConfiguration()).thenReturn(RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofMinutes(5))
+                .serializeValuesWith(SerializationPair.fromSerializer(RedisSerializer.string())));
+        when(l2CacheManager.getCache("test-cache")).thenReturn(redisCache);
+        CacheWriteBehind writeBehind = new CacheWriteBehind(redisTemplate, new SimpleMeterRegistry(), 100, 10,
+                Duration.ofHours(1), CacheWriteBehind.OVERFLOW_DROP);
+        twoLevelCacheManager.setWriteBehind(writeBehind);
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+
+        // When
+        cache.put(CacheKey.of(5L, 20), "value");
+        writeBehind.flush();
+
+        // Then
+        verify(stringCommands).set(aryEq("test-cache::5:20".getBytes(StandardCharsets.UTF_8)),
+                aryEq("value".getBytes(StandardCharsets.UTF_8)), any(Expiration.class), any(SetOption.class));
+        assertEquals(0L, writeBehind.getStatistics().get("droppedError"));
+        writeBehind.destroy();
+    }
+
+    @Test
+    void testOpenCircuitBypassesL2AndReplaysEvictions() throws Exception {
+        // Given
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(Duration.ofMillis(50), 1,
+                Duration.ofMillis(100), Duration.ofHours(1), new SimpleMeterRegistry());
+        twoLevelCacheManager.setCircuitBreaker(circuitBreaker);
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+        doThrow(new RedisConnectionFailureException("down")).doNothing().when(l2Cache).evict("test-key");
+
+        // When
+        cache.evict("test-key");
+        cache.get("other-key");
+        Thread.sleep(150);
+        cache.get("other-key");
+
+        // Then
+        verify(l2Cache, times(1)).get("other-key");
+        verify(l2Cache, timeout(1_000).times(2)).evict("test-key");
+        circuitBreaker.destroy();
+    }
+
+    @Test
+    void testFailedEvictIsRetriedWhileCircuitStaysClosed() {
+        // Given
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(Duration.ofMillis(50), 5,
+                Duration.ofSeconds(5), Duration.ofMillis(20), new SimpleMeterRegistry());
+        twoLevelCacheManager.setCircuitBreaker(circuitBreaker);
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+        doThrow(new RedisConnectionFailureException("down")).doNothing().when(l2Cache).evict("test-key");
+
+        // When
+        cache.evict("test-key");
+
+        // Then
+        assertTrue(circuitBreaker.isClosed());
+        verify(l2Cache, timeout(1_000).times(2)).evict("test-key");
+        circuitBreaker.destroy();
+    }
+
+    @Test
+    void testTimedOutPutIsEvictedAtTheNextRepair() {
+        // Given
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(Duration.ofMillis(50), 5,
+                Duration.ofSeconds(5), Duration.ofMillis(20), new SimpleMeterRegistry());
+        twoLevelCacheManager.setCircuitBreaker(circuitBreaker);
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return null;
+        }).when(l2Cache).put("test-key", "value");
+
+        // When
+        cache.put("test-key", "value");
+
+        // Then
+        verify(l2Cache, timeout(1_000)).evict("test-key");
+        circuitBreaker.destroy();
+    }
+
+    @Test
+    void testGetAllResolvesL1ThenL2InKeyOrder() {
+        // Given
+        TwoLevelCache cache = (TwoLevelCache) twoLevelCacheManager.getCache("test-cache");
+        Cache.ValueWrapper l1Value = () -> "value-a";
+        Cache.ValueWrapper l2Value = () -> "value-c";
+        when(l1Cache.get(any())).thenAnswer(invocation -> "a".equals(invocation.getArgument(0)) ? l1Value : null);
+        when(l2Cache.get(any())).thenAnswer(invocation -> "c".equals(invocation.getArgument(0)) ? l2Value : null);
+
+        // When
+        Map<Object, Object> values = cache.getAll(List.of("c", "b", "a"));
+        cache.putAll(Map.of("b", "value-b"));
+
+        // Then
+        assertEquals(List.of("c", "a"), new ArrayList<>(values.keySet()));
+        assertEquals("value-c", values.get("c"));
+        verify(l2Cache, never()).get("a");
+        verify(l1Cache).put("c", "value-c");
+        verify(l1Cache).put("b", "value-b");
+        verify(l2Cache).put("b", "value-b");
+    }
+
+    @Test
+    void testHotKeyIsServedPinnedOnceEvictedFromL1() {
+        // Given
+        ContentCacheProperties.HotKeys hotKeys = new ContentCacheProperties.HotKeys();
+        hotKeys.setMinFrequency(3);
+        CacheRefresher refresher = new CacheRefresher(1, 10, new SimpleMeterRegistry());
+        twoLevelCacheManager.setHotKeys(hotKeys, refresher);
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+        Cache.ValueWrapper l1Value = () -> "hot-value";
+        when(l1Cache.get("hot-key")).thenReturn(l1Value, l1Value, l1Value, null);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            cache.get("hot-key");
+        }
+        Cache.ValueWrapper pinned = cache.get("hot-key");
+        List<Map<String, Object>> hot = twoLevelCacheManager.getHotKeys().get("test-cache");
+        cache.evict("hot-key");
+        Cache.ValueWrapper evicted = cache.get("hot-key");
+
+        // Then
+        assertEquals("hot-value", pinned.get());
+        assertEquals("hot-key", hot.get(0).get("key"));
+        assertEquals(true, hot.get(0).get("pinned"));
+        assertNull(evicted);
+        verify(l2Cache, times(1)).get("hot-key");
+        refresher.destroy();
+    }
+
+    @Test
+    void testStatisticsCountLookupsByLayerUntilReset() {
+        // Given
+        Cache.ValueWrapper l2Value = () -> "l2-value";
+        when(l1Cache.get(any())).thenReturn(null);
+        when(l2Cache.get(any())).thenAnswer(invocation -> "l2-key".equals(invocation.getArgument(0)) ? l2Value : null);
+        Cache cache = twoLevelCacheManager.getCache("test-cache");
+
+        // When
+        cache.get("l2-key");
+        cache.get("missing-key");
+        Map<String, Object> stats = twoLevelCacheManager.getStatistics(Duration.ofMinutes(5)).get("test-cache");
+        twoLevelCacheManager.resetStatistics();
+        Map<String, Object> afterReset = twoLevelCacheManager.getStatistics(null).get("test-cache");
+
+        // Then
+        assertEquals(2L, stats.get("requests"));
+        assertEquals(1L, stats.get("l2Hits"));
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(0.5, stats.get("hitRate"));
+        assertEquals(0L, afterReset.get("requests"));
+    }
+
+    @Test
+    void testLargeValueIsServedOffHeapInsteadOfL1() {
+        // Given
+        TwoLevelCache cache = (TwoLevelCache) twoLevelCacheManager.getCache("test-cache");
+        cache.setOffHeap(new OffHeapCacheStore("test-cache", SerializationPair.fromSerializer(RedisSerializer.java()),
+                64 * 1024, 512, 1, 1024, Duration.ofMinutes(5), meterRegistry));
+        String body = "x".repeat(4000);
+        when(l1Cache.get("large-key")).thenReturn(null);
+
+        // When
+        cache.put("large-key", body);
+        Cache.ValueWrapper result = cache.get("large-key");
+
+        // Then
+        assertEquals(body, result.get());
+        assertEquals(1, lookups("offheap", "hit"));
+        verify(l1Cache, never()).put(eq("large-key"), any());
+        verify(l2Cache).put("large-key", body);
+        verify(l2Cache, never()).get("large-key");
+    }
+
+    private long lookups(String layer, String result) {
+        return meterRegistry.get("cache.lookup").tag("cache", "test-cache").tag("layer", layer).tag("result", result)
+                .timer().count();
+    }
+
+    static class VersionedLoader {
+        private final AtomicInteger version = new AtomicInteger();
+
+        @Cacheable(value = "test-cache", sync = true)
+        public String load(Long id) {
+            return "version-" + version.incrementAndGet();
+        }
     }
 }
@@ -0,0 +1,78 @@
+package com.taklip.yoda.content.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TwoLevelCacheStatsTest {
+
+    @Test
+    void testWindowCoversOnlyTheLastMinutes() {
+        // Given
+        AtomicLong clock = new AtomicLong(Duration.ofHours(5).toMillis());
+        TwoLevelCacheStats stats = new TwoLevelCacheStats(clock::get);
+        stats.recordL1Hit();
+        stats.recordMiss();
+        clock.addAndGet(Duration.ofMinutes(10).toMillis());
+
+        // When
+        stats.recordL1Hit();
+        stats.recordL2Hit();
+        Map<String, Object> lastFiveMinutes = stats.snapshot(Duration.ofMinutes(5));
+        Map<String, Object> sinceReset = stats.snapshot(null);
+
+        // Then
+        assertEquals(2L, lastFiveMinutes.get("requests"));
+        assertEquals(1L, lastFiveMinutes.get("l2Hits"));
+        assertEquals(0L, lastFiveMinutes.get("misses"));
+        assertEquals(1.0, lastFiveMinutes.get("hitRate"));
+        assertEquals(4L, sinceReset.get("requests"));
+        assertEquals(0.75, sinceReset.get("hitRate"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testRoundTripPercentilesAreBucketUpperBounds() {
+        // Given
+        TwoLevelCacheStats stats = new TwoLevelCacheStats(() -> 0L);
+
+        // When
+        for (int i = 0; i < 990; i++) {
+            stats.recordL2RoundTrip(Duration.ofMillis(1).toNanos());
+        }
+        for (int i = 0; i < 10; i++) {
+            stats.recordL2RoundTrip(Duration.ofMillis(100).toNanos());
+        }
+        Map<String, Object> roundTrip = (Map<String, Object>) stats.snapshot(null).get("l2RoundTrip");
+
+        // Then
+        assertEquals(1000L, roundTrip.get("calls"));
+        double p50 = (double) roundTrip.get("p50Ms");
+        double p999 = (double) roundTrip.get("p999Ms");
+        assertTrue(p50 >= 1.0 && p50 < 1.2, "p50 was " + p50);
+        assertTrue(p999 >= 100.0 && p999 < 120.0, "p99.9 was " + p999);
+    }
+
+    @Test
+    void testResetClearsCounts() {
+        // Given
+        AtomicLong clock = new AtomicLong(1_000L);
+        TwoLevelCacheStats stats = new TwoLevelCacheStats(clock::get);
+        stats.recordL1Hit();
+        stats.recordLoad(1_000_000L, false);
+        clock.set(2_000L);
+
+        // When
+        stats.reset();
+        Map<String, Object> snapshot = stats.snapshot(Duration.ofMinutes(1));
+
+        // Then
+        assertEquals(0L, snapshot.get("requests"));
+        assertEquals(0L, snapshot.get("loadFailures"));
+        assertEquals(2_000L, stats.getResetAt());
+    }
+}
@@ -0,0 +1,59 @@
+package com.taklip.yoda.content.dto;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.taklip.yoda.content.exception.ContentServiceException;
+import com.taklip.yoda.content.model.Content;
+
+class ContentCursorTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 3, 1, 10, 30, 15, 123_000_000);
+
+    @Test
+    void testCursorRoundTrip() {
+        // Given
+        String token = ContentCursor.after(CREATED, 42L);
+
+        // When
+        ContentCursor cursor = ContentCursor.decode(token);
+
+        // Then
+        assertEquals(new ContentCursor(CREATED, 42L), cursor);
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        assertThrows(ContentServiceException.class, () -> ContentCursor.decode("not a cursor"));
+        assertThrows(ContentServiceException.class, () -> ContentCursor.decode("MjAyNQ"));
+    }
+
+    @Test
+    void testNextCursorOnlyWhenMoreContentsFollow() {
+        // Given
+        List<Content> rows = List.of(content(3L, CREATED), content(2L, CREATED), content(1L, CREATED.minusDays(1)));
+
+        // When
+        ContentIdPage fullPage = ContentIdPage.afterCursor(rows, 2);
+        ContentIdPage lastPage = ContentIdPage.afterCursor(rows, 3);
+
+        // Then
+        assertEquals(List.of(3L, 2L), fullPage.getIds());
+        assertEquals(new ContentCursor(CREATED, 2L), ContentCursor.decode(fullPage.getNextCursor()));
+        assertEquals(List.of(3L, 2L, 1L), lastPage.getIds());
+        assertNull(lastPage.getNextCursor());
+        assertEquals(-1, lastPage.getTotal());
+    }
+
+    private Content content(Long id, LocalDateTime createTime) {
+        Content content = new Content();
+        content.setId(id);
+        content.setCreateTime(createTime);
+        return content;
+    }
+}
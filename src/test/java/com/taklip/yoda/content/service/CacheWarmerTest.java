@@ -0,0 +1,73 @@
+package com.taklip.yoda.content.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.taklip.yoda.content.config.ContentCacheProperties;
+import com.taklip.yoda.content.mapper.ContentMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmerTest {
+
+    @Mock
+    private ContentService contentService;
+
+    @Mock
+    private ContentMapper contentMapper;
+
+    @Spy
+    private ContentCacheProperties cacheProperties = new ContentCacheProperties();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private CacheWarmer cacheWarmer;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWarmUpLoadsHotPagesCategoriesAndContents() {
+        // Given
+        cacheProperties.getWarmup().setPages(2);
+        // Top categories, then the most hit contents
+        when(contentMapper.selectObjs(any())).thenReturn(List.of(7L, 8L), List.of(1L, 2L, 3L));
+        when(contentService.getContentsByCategory(any(), any())).thenAnswer(invocation -> {
+            if (Long.valueOf(8L).equals(invocation.getArgument(0))) {
+                throw new IllegalStateException("database down");
+            }
+            return null;
+        });
+
+        // When
+        cacheWarmer.warmUp();
+
+        // Then
+        verify(contentService).getFeaturedContents(0, 10);
+        verify(contentService).getFeaturedContents(2, 10);
+        verify(contentService, never()).getFeaturedContents(1, 10);
+        verify(contentService).getPublishedContents(2, 20);
+        verify(contentService).getContentsByCategory(7L, 20);
+        verify(contentService).getContentsByIds(List.of(1L, 2L, 3L));
+
+        Map<String, Object> status = cacheWarmer.getStatus();
+        assertEquals(CacheWarmer.STATE_DONE, status.get("state"));
+        assertEquals(7, status.get("total"));
+        assertEquals(6, status.get("completed"));
+        assertEquals(1, status.get("failed"));
+        assertEquals(1.0, status.get("progress"));
+    }
+}
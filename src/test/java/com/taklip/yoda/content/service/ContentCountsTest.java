@@ -0,0 +1,89 @@
+package com.taklip.yoda.content.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.taklip.yoda.content.config.ContentCacheTags;
+import com.taklip.yoda.content.config.ContentCacheTags.ContentState;
+import com.taklip.yoda.content.config.ContentProperties;
+import com.taklip.yoda.content.config.ContentProperties.Count.Strategy;
+
+@ExtendWith(MockitoExtension.class)
+class ContentCountsTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Spy
+    private ContentProperties contentProperties = new ContentProperties();
+
+    @InjectMocks
+    private ContentCounts contentCounts;
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        contentCounts.init();
+    }
+
+    @Test
+    void testCachedTotalIsCountedOnce() {
+        // When
+        long first = contentCounts.count(ContentCounts.ALL, () -> count(10));
+        long second = contentCounts.count(ContentCounts.ALL, () -> count(99));
+
+        // Then
+        assertEquals(10, first);
+        assertEquals(10, second);
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void testCachedTotalsFollowTheWrites() {
+        // Given
+        String published = ContentCacheTags.published(true);
+        String user = ContentCacheTags.user(7L);
+        contentCounts.count(ContentCounts.ALL, () -> count(10));
+        contentCounts.count(published, () -> count(4));
+        contentCounts.count(user, () -> count(2));
+
+        // When
+        contentCounts.contentChanged(null, state(1L, false));
+        contentCounts.contentChanged(state(1L, false), state(1L, true));
+        contentCounts.contentChanged(state(2L, false), null);
+
+        // Then
+        assertEquals(10, contentCounts.count(ContentCounts.ALL, () -> count(0)));
+        assertEquals(5, contentCounts.count(published, () -> count(0)));
+        assertEquals(2, contentCounts.count(user, () -> count(0)));
+        assertEquals(3, queries.get());
+    }
+
+    @Test
+    void testStrategyIsConfiguredPerList() {
+        // Given
+        contentProperties.getCount().getStrategies().put(ContentCounts.LIST_BY_CATEGORY, Strategy.NONE);
+
+        // Then
+        assertEquals(Strategy.NONE, contentCounts.strategyOf(ContentCounts.LIST_BY_CATEGORY));
+        assertEquals(Strategy.EXACT, contentCounts.strategyOf(ContentCounts.LIST_FEATURED));
+    }
+
+    private long count(long total) {
+        queries.incrementAndGet();
+        return total;
+    }
+
+    private ContentState state(Long id, boolean published) {
+        return new ContentState(id, null, 7L, false, published, CREATED);
+    }
+}
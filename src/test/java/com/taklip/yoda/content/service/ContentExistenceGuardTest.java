@@ -0,0 +1,148 @@
+package com.taklip.yoda.content.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.taklip.yoda.content.config.CacheInvalidationBus;
+import com.taklip.yoda.content.config.CacheInvalidationMessage;
+import com.taklip.yoda.content.config.ContentCacheProperties;
+import com.taklip.yoda.content.config.ContentCacheTags;
+import com.taklip.yoda.content.constant.ContentConstants;
+import com.taklip.yoda.content.exception.ContentServiceException;
+import com.taklip.yoda.content.mapper.ContentMapper;
+import com.taklip.yoda.content.model.Content;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ContentExistenceGuardTest {
+
+    @Mock
+    private ContentMapper contentMapper;
+
+    @Spy
+    private ContentCacheProperties cacheProperties = new ContentCacheProperties();
+
+    @Mock
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    @InjectMocks
+    private ContentExistenceGuard contentExistenceGuard;
+
+    @BeforeEach
+    void setUp() {
+        contentExistenceGuard.init();
+        when(contentMapper.selectCount(any())).thenReturn(3L);
+        when(contentMapper.selectList(any())).thenReturn(List.of(content(1L), content(2L), content(500L)));
+        contentExistenceGuard.rebuild();
+    }
+
+    @Test
+    void testUnknownIdIsRejectedWithoutLookup() throws Throwable {
+        // Given
+        when(joinPoint.getArgs()).thenReturn(new Object[] { 404L });
+
+        // When
+        ContentServiceException exception = assertThrows(ContentServiceException.class,
+                () -> contentExistenceGuard.guardLookup(joinPoint));
+
+        // Then
+        assertEquals(ContentConstants.ERROR_CONTENT_NOT_FOUND, exception.getErrorCode());
+        verify(joinPoint, never()).proceed();
+    }
+
+    @Test
+    void testMissingIdIsCachedNegatively() throws Throwable {
+        // Given
+        when(joinPoint.getArgs()).thenReturn(new Object[] { 2L });
+        when(joinPoint.proceed()).thenThrow(new ContentServiceException(ContentConstants.ERROR_CONTENT_NOT_FOUND,
+                "Content not found with id: 2"));
+
+        // When
+        assertThrows(ContentServiceException.class, () -> contentExistenceGuard.guardLookup(joinPoint));
+        assertThrows(ContentServiceException.class, () -> contentExistenceGuard.guardLookup(joinPoint));
+
+        // Then
+        verify(joinPoint, times(1)).proceed();
+    }
+
+    @Test
+    void testCreatedIdIsLookedUp() throws Throwable {
+        // Given
+        when(joinPoint.getArgs()).thenReturn(new Object[] { 3L });
+        when(joinPoint.proceed()).thenReturn("content");
+        contentExistenceGuard.contentCreated(3L);
+
+        // When
+        Object result = contentExistenceGuard.guardLookup(joinPoint);
+
+        // Then
+        assertEquals("content", result);
+        verify(cacheInvalidationBus).publishCreated(3L);
+    }
+
+    @Test
+    void testIdAboveTheLoadedIdsIsLookedUp() {
+        // Then
+        assertFalse(contentExistenceGuard.mightExist(404L));
+        assertTrue(contentExistenceGuard.mightExist(501L));
+    }
+
+    @Test
+    void testRemoteCreationsAndDeletionsAreApplied() {
+        // Given
+        ArgumentCaptor<Consumer<CacheInvalidationMessage>> subscriber = ArgumentCaptor.captor();
+        verify(cacheInvalidationBus).subscribe(subscriber.capture());
+        CacheInvalidationMessage message = new CacheInvalidationMessage("other-node", 0);
+        message.getCreated().add(3L);
+        message.getDeleted().add(2L);
+        message.getTags().add(ContentCacheTags.content(1L));
+
+        // When
+        subscriber.getValue().accept(message);
+
+        // Then
+        assertTrue(contentExistenceGuard.mightExist(3L));
+        assertFalse(contentExistenceGuard.mightExist(2L));
+        assertTrue(contentExistenceGuard.mightExist(1L));
+        verify(cacheInvalidationBus, never()).publishCreated(any());
+    }
+
+    @Test
+    void testCreatingAKnownIdAgainIsNotCounted() {
+        // When
+        contentExistenceGuard.contentCreated(1L);
+        contentExistenceGuard.contentCreated(3L);
+        contentExistenceGuard.contentCreated(3L);
+
+        // Then
+        assertEquals(4L, contentExistenceGuard.getStatistics().get("filterIds"));
+    }
+
+    private static Content content(Long id) {
+        Content content = new Content();
+        content.setId(id);
+        return content;
+    }
+}
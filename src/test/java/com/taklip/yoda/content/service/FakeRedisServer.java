@@ -0,0 +1,307 @@
+package com.taklip.yoda.content.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.data.redis.core.script.RedisScript;
+
+import io.lettuce.core.cluster.SlotHash;
+
+/**
+ * A Redis server in the test JVM, speaking RESP2 over a local socket, with the hash and
+ * set commands the hit counters use
+ *
+ * Lua does not run here: a script is registered with a Java handler calling the commands
+ * as the script does. Like a Redis Cluster, a script is refused its keys when they are not
+ * all in the same slot. The set members are scanned in numeric order.
+ */
+class FakeRedisServer implements AutoCloseable {
+
+    /**
+     * Java stand-in of a Lua script, a null result being the Lua false
+     */
+    @FunctionalInterface
+    interface ScriptHandler {
+        Object run(FakeRedisServer redis, List<String> keys, List<String> argv);
+    }
+
+    private static final class RedisError extends RuntimeException {
+        RedisError(String message) {
+            super(message);
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Set<String>> sets = new HashMap<>();
+    private final Map<String, ScriptHandler> scripts = new HashMap<>();
+    private final Map<String, ScriptHandler> loadedScripts = new HashMap<>();
+
+    FakeRedisServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "fake-redis");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    synchronized void script(RedisScript<?> script, ScriptHandler handler) {
+        scripts.put(script.getScriptAsString(), handler);
+    }
+
+    /**
+     * Run a command as a script would, with redis.call
+     */
+    synchronized Object call(String... command) {
+        return execute(Arrays.asList(command));
+    }
+
+    synchronized Map<String, String> hash(String key) {
+        return new LinkedHashMap<>(hashes.getOrDefault(key, Map.of()));
+    }
+
+    synchronized Set<String> members(String key) {
+        return new TreeSet<>(sets.getOrDefault(key, Set.of()));
+    }
+
+    synchronized Set<String> keys() {
+        Set<String> keys = new TreeSet<>(hashes.keySet());
+        keys.addAll(sets.keySet());
+        return keys;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread connection = new Thread(() -> serve(socket), "fake-redis-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+            List<String> command;
+            while ((command = readCommand(in)) != null) {
+                Object reply;
+                try {
+                    synchronized (this) {
+                        reply = execute(command);
+                    }
+                } catch (RedisError e) {
+                    reply = e;
+                }
+                write(out, reply);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Disconnected
+        }
+    }
+
+    private Object execute(List<String> command) {
+        String name = command.get(0).toUpperCase(Locale.ROOT);
+        List<String> args = command.subList(1, command.size());
+        switch (name) {
+            case "HELLO":
+                throw new RedisError("ERR unknown command 'HELLO'");
+            case "PING":
+                return "PONG";
+            case "CLIENT", "SELECT":
+                return "OK";
+            case "HEXISTS":
+                return hashes.getOrDefault(args.get(0), Map.of()).containsKey(args.get(1)) ? 1L : 0L;
+            case "HGET":
+                return hashes.getOrDefault(args.get(0), Map.of()).get(args.get(1));
+            case "HMGET": {
+                Map<String, String> hash = hashes.getOrDefault(args.get(0), Map.of());
+                List<Object> values = new ArrayList<>();
+                args.subList(1, args.size()).forEach(field -> values.add(hash.get(field)));
+                return values;
+            }
+            case "HSET": {
+                Map<String, String> hash = hashes.computeIfAbsent(args.get(0), key -> new LinkedHashMap<>());
+                long added = 0;
+                for (int i = 1; i < args.size(); i += 2) {
+                    added += hash.put(args.get(i), args.get(i + 1)) == null ? 1 : 0;
+                }
+                return added;
+            }
+            case "HSETNX":
+                return hashes.computeIfAbsent(args.get(0), key -> new LinkedHashMap<>())
+                        .putIfAbsent(args.get(1), args.get(2)) == null ? 1L : 0L;
+            case "HINCRBY": {
+                Map<String, String> hash = hashes.computeIfAbsent(args.get(0), key -> new LinkedHashMap<>());
+                long value = Long.parseLong(hash.getOrDefault(args.get(1), "0")) + Long.parseLong(args.get(2));
+                hash.put(args.get(1), String.valueOf(value));
+                return value;
+            }
+            case "HDEL":
+                return removeAll(hashes.get(args.get(0)) != null ? hashes.get(args.get(0)).keySet() : null,
+                        args.subList(1, args.size()));
+            case "SADD": {
+                Set<String> set = sets.computeIfAbsent(args.get(0), key -> new LinkedHashSet<>());
+                return args.subList(1, args.size()).stream().filter(set::add).count();
+            }
+            case "SREM":
+                return removeAll(sets.get(args.get(0)), args.subList(1, args.size()));
+            case "SMEMBERS":
+                return new ArrayList<Object>(members(args.get(0)));
+            case "SSCAN":
+                return scan(args);
+            case "EVAL":
+                return eval(args.get(0), args.subList(1, args.size()));
+            case "EVALSHA": {
+                ScriptHandler handler = loadedScripts.get(args.get(0));
+                if (handler == null) {
+                    throw new RedisError("NOSCRIPT No matching script. Please use EVAL.");
+                }
+                return run(handler, args.subList(1, args.size()));
+            }
+            case "FLUSHALL", "FLUSHDB":
+                hashes.clear();
+                sets.clear();
+                return "OK";
+            default:
+                throw new RedisError("ERR unknown command '" + name + "'");
+        }
+    }
+
+    private static long removeAll(Set<String> from, List<String> members) {
+        return from != null ? members.stream().filter(from::remove).count() : 0;
+    }
+
+    private Object scan(List<String> args) {
+        long cursor = Long.parseLong(args.get(1));
+        int count = 10;
+        for (int i = 2; i + 1 < args.size(); i += 2) {
+            if ("COUNT".equalsIgnoreCase(args.get(i))) {
+                count = Integer.parseInt(args.get(i + 1));
+            }
+        }
+        // The cursor is the lowest member not returned yet
+        List<Long> remaining = sets.getOrDefault(args.get(0), Set.of()).stream()
+                .map(Long::valueOf)
+                .filter(member -> member >= cursor)
+                .sorted()
+                .toList();
+        List<Object> page = new ArrayList<>();
+        remaining.stream().limit(count).forEach(member -> page.add(member.toString()));
+        String next = remaining.size() > count ? String.valueOf(remaining.get(count - 1) + 1) : "0";
+        return List.of(next, page);
+    }
+
+    private Object eval(String source, List<String> args) {
+        ScriptHandler handler = scripts.get(source);
+        if (handler == null) {
+            throw new RedisError("ERR no handler for the script " + source);
+        }
+        loadedScripts.put(sha1(source), handler);
+        return run(handler, args);
+    }
+
+    private Object run(ScriptHandler handler, List<String> args) {
+        int numKeys = Integer.parseInt(args.get(0));
+        List<String> keys = args.subList(1, 1 + numKeys);
+        if (keys.stream().map(SlotHash::getSlot).distinct().count() > 1) {
+            throw new RedisError("CROSSSLOT Keys in request don't hash to the same slot");
+        }
+        return handler.run(this, keys, args.subList(1 + numKeys, args.size()));
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+        if (header.charAt(0) != '*') {
+            throw new IOException("Unexpected request " + header);
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<String> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = Integer.parseInt(readLine(in).substring(1));
+            command.add(new String(in.readNBytes(length), StandardCharsets.UTF_8));
+            readLine(in);
+        }
+        return command;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int read;
+        while ((read = in.read()) != '\r') {
+            if (read == -1) {
+                return null;
+            }
+            line.append((char) read);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private static void write(OutputStream out, Object reply) throws IOException {
+        if (reply == null) {
+            out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof RedisError error) {
+            out.write(("-" + error.getMessage() + "\r\n").getBytes(StandardCharsets.UTF_8));
+        } else if (reply instanceof Long number) {
+            out.write((":" + number + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof List<?> values) {
+            out.write(("*" + values.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (Object value : values) {
+                write(out, value);
+            }
+        } else if ("OK".equals(reply) || "PONG".equals(reply)) {
+            out.write(("+" + reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        } else {
+            byte[] bytes = reply.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(bytes);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private static String sha1(String source) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1")
+                    .digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.taklip.yoda.content.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.taklip.yoda.content.config.ContentProperties;
+import com.taklip.yoda.content.mapper.ContentMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class HitCounterAggregatorTest {
+
+    @Mock
+    private ContentMapper contentMapper;
+
+    @Spy
+    private ContentProperties contentProperties = new ContentProperties();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private HitCounterAggregator hitCounterAggregator;
+
+    private final List<Map<Long, Long>> written = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        contentProperties.getHitCounter().setFlushInterval(Duration.ofHours(1));
+        hitCounterAggregator.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hitCounterAggregator.destroy();
+    }
+
+    @Test
+    void testViewsAreWrittenAsBatchedDeltas() {
+        // Given
+        contentProperties.getHitCounter().setBatchSize(2);
+        recordWrites();
+        for (int i = 0; i < 3; i++) {
+            hitCounterAggregator.record(1L);
+        }
+        hitCounterAggregator.record(2L);
+        hitCounterAggregator.record(3L);
+
+        // When
+        hitCounterAggregator.flush();
+        hitCounterAggregator.flush();
+
+        // Then
+        assertEquals(List.of(Map.of(1L, 3L, 2L, 1L), Map.of(3L, 1L)), written);
+        assertEquals(0, hitCounterAggregator.getPendingViews());
+        assertEquals(0.0, meterRegistry.get("content.hits.pending").gauge().value());
+    }
+
+    @Test
+    void testDiscardedViewsAreNotWritten() {
+        // Given
+        recordWrites();
+        for (int i = 0; i < 3; i++) {
+            hitCounterAggregator.record(1L);
+        }
+        hitCounterAggregator.record(2L);
+
+        // When
+        hitCounterAggregator.discard(1L);
+        hitCounterAggregator.record(1L);
+        hitCounterAggregator.flush();
+
+        // Then
+        assertEquals(List.of(Map.of(1L, 1L, 2L, 1L)), written);
+        assertEquals(0, hitCounterAggregator.getPendingViews());
+    }
+
+    @Test
+    void testFailedWriteIsRetriedWithLaterViews() {
+        // Given
+        when(contentMapper.increaseHitCounters(any())).thenThrow(new IllegalStateException("database down"));
+        hitCounterAggregator.record(1L);
+        hitCounterAggregator.flush();
+        reset(contentMapper);
+        recordWrites();
+
+        // When
+        hitCounterAggregator.record(1L);
+        hitCounterAggregator.flush();
+
+        // Then
+        assertEquals(List.of(Map.of(1L, 2L)), written);
+        assertEquals(1.0, meterRegistry.get("content.hits.flush.failures").counter().count());
+    }
+
+    @Test
+    void testPendingViewsAreWrittenOnShutdown() {
+        // Given
+        recordWrites();
+        hitCounterAggregator.record(5L);
+
+        // When
+        hitCounterAggregator.destroy();
+
+        // Then
+        assertEquals(List.of(Map.of(5L, 1L)), written);
+    }
+
+    private void recordWrites() {
+        when(contentMapper.increaseHitCounters(any())).thenAnswer(invocation -> {
+            written.add(new LinkedHashMap<>(invocation.<Map<Long, Long>>getArgument(0)));
+            return 1;
+        });
+    }
+}
@@ -0,0 +1,129 @@
+package com.taklip.yoda.content.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.taklip.yoda.content.config.ContentProperties;
+import com.taklip.yoda.content.mapper.ContentMapper;
+import com.taklip.yoda.content.model.Content;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class LiveHitCountersTest {
+
+    @Mock
+    private ContentMapper contentMapper;
+
+    @Spy
+    private ContentProperties contentProperties = new ContentProperties();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private LiveHitCounters liveHitCounters;
+
+    @BeforeEach
+    void setUp() {
+        contentProperties.getHitCounter().setMode(ContentProperties.HitCounter.MODE_IN_MEMORY);
+        contentProperties.getHitCounter().setReconcileInterval(Duration.ofHours(1));
+        liveHitCounters.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        liveHitCounters.destroy();
+    }
+
+    @Test
+    void testViewsAreReadLiveAndReconciledAsAbsoluteCounts() {
+        // Given
+        when(contentMapper.selectById(1L)).thenReturn(content(1L, 10));
+        liveHitCounters.increment(1L);
+        liveHitCounters.increment(1L);
+
+        // When
+        Integer live = liveHitCounters.get(1L);
+        liveHitCounters.reconcile();
+        liveHitCounters.reconcile();
+
+        // Then
+        assertEquals(12, live);
+        verify(contentMapper, times(1)).setHitCounters(Map.of(1L, 12L));
+        verify(contentMapper, times(1)).selectById(1L);
+    }
+
+    @Test
+    void testFailedReconcileIsRetried() {
+        // Given
+        when(contentMapper.selectById(1L)).thenReturn(content(1L, 0));
+        when(contentMapper.setHitCounters(any()))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(1);
+        liveHitCounters.increment(1L);
+        liveHitCounters.reconcile();
+        liveHitCounters.increment(1L);
+
+        // When
+        liveHitCounters.reconcile();
+
+        // Then
+        verify(contentMapper).setHitCounters(Map.of(1L, 1L));
+        verify(contentMapper).setHitCounters(Map.of(1L, 2L));
+    }
+
+    @Test
+    void testResetDuringAWriteIsWrittenNext() {
+        // Given
+        when(contentMapper.selectById(1L)).thenReturn(content(1L, 10));
+        when(contentMapper.setHitCounters(Map.of(1L, 11L))).thenAnswer(invocation -> {
+            liveHitCounters.reset(1L);
+            return 1;
+        });
+        liveHitCounters.increment(1L);
+        liveHitCounters.reconcile();
+
+        // When
+        liveHitCounters.reconcile();
+
+        // Then
+        assertEquals(0, liveHitCounters.get(1L));
+        verify(contentMapper).setHitCounters(Map.of(1L, 0L));
+    }
+
+    @Test
+    void testMissingContentIsNotCounted() {
+        // Given
+        when(contentMapper.selectById(2L)).thenReturn(null);
+
+        // When
+        liveHitCounters.increment(2L);
+        liveHitCounters.reconcile();
+
+        // Then
+        assertNull(liveHitCounters.get(2L));
+        verify(contentMapper, never()).setHitCounters(any());
+    }
+
+    private Content content(Long id, int hitCounter) {
+        Content content = new Content();
+        content.setId(id);
+        content.setHitCounter(hitCounter);
+        return content;
+    }
+}
@@ -0,0 +1,194 @@
+package com.taklip.yoda.content.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.lettuce.core.cluster.SlotHash;
+
+/**
+ * The Redis hit counters through Lettuce against {@link FakeRedisServer}, its scripts
+ * standing in for the Lua ones line by line
+ */
+class RedisHitCounterStoreTest {
+
+    private static final String PREFIX = "hits:";
+
+    private static FakeRedisServer server;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private RedisHitCounterStore store;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = new FakeRedisServer();
+        server.script(RedisHitCounterStore.INCREMENT_SCRIPT, (redis, keys, argv) -> {
+            if (redis.call("hexists", keys.get(0), argv.get(0)).equals(0L)) {
+                return null;
+            }
+            Object count = redis.call("hincrby", keys.get(0), argv.get(0), "1");
+            redis.call("sadd", keys.get(1), argv.get(0));
+            return count;
+        });
+        server.script(RedisHitCounterStore.RESET_SCRIPT, (redis, keys, argv) -> {
+            redis.call("hset", keys.get(0), argv.get(0), "0");
+            redis.call("sadd", keys.get(1), argv.get(0));
+            return 0L;
+        });
+        server.script(RedisHitCounterStore.CLEAR_DIRTY_SCRIPT, (redis, keys, argv) -> {
+            long cleared = 0;
+            for (int i = 0; i < argv.size(); i += 2) {
+                Object count = redis.call("hget", keys.get(0), argv.get(i));
+                if (count == null || count.equals(argv.get(i + 1))) {
+                    cleared += (Long) redis.call("srem", keys.get(1), argv.get(i));
+                }
+            }
+            return cleared;
+        });
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("localhost", server.getPort()));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        connectionFactory.destroy();
+        server.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        server.call("flushall");
+        store = new RedisHitCounterStore(new StringRedisTemplate(connectionFactory), PREFIX, 4);
+    }
+
+    @Test
+    void testIncrementCountsOnlyInitializedCounters() {
+        // Given
+        Long uninitialized = store.increment(7L);
+        store.initialize(7L, 10);
+        store.initialize(7L, 99);
+
+        // When
+        Long count = store.increment(7L);
+
+        // Then
+        assertNull(uninitialized);
+        assertEquals(11L, count);
+        assertEquals(11L, store.get(7L));
+        assertEquals(Map.of("7", "11"), server.hash("hits:{3}"));
+        assertEquals(Set.of("7"), server.members("hits:dirty:{3}"));
+    }
+
+    @Test
+    void testCounterAndDirtySetOfAShardShareASlot() {
+        // Given
+        for (long id = 0; id < 8; id++) {
+            store.initialize(id, 0);
+            store.increment(id);
+        }
+
+        // Then
+        assertEquals(Set.of("hits:{0}", "hits:{1}", "hits:{2}", "hits:{3}",
+                "hits:dirty:{0}", "hits:dirty:{1}", "hits:dirty:{2}", "hits:dirty:{3}"), server.keys());
+        for (int shard = 0; shard < 4; shard++) {
+            assertEquals(SlotHash.getSlot("hits:{" + shard + "}"), SlotHash.getSlot("hits:dirty:{" + shard + "}"));
+        }
+    }
+
+    @Test
+    void testScanLeavesTheDirtyMarks() {
+        // Given
+        for (long id = 1; id <= 20; id += 4) {
+            store.initialize(id, 0);
+            store.increment(id);
+        }
+        List<List<Long>> batches = new ArrayList<>();
+
+        // When
+        boolean scanned = store.scanDirty(1, 2, batches::add);
+
+        // Then
+        assertTrue(scanned);
+        assertEquals(List.of(List.of(1L, 5L), List.of(9L, 13L), List.of(17L)), batches);
+        assertEquals(Set.of("1", "5", "9", "13", "17"), server.members("hits:dirty:{1}"));
+    }
+
+    @Test
+    void testScanStopsAtARejectedBatch() {
+        // Given
+        for (long id = 1; id <= 20; id += 4) {
+            store.initialize(id, 0);
+            store.increment(id);
+        }
+        List<List<Long>> batches = new ArrayList<>();
+
+        // When
+        boolean scanned = store.scanDirty(1, 2, batch -> {
+            batches.add(batch);
+            return false;
+        });
+
+        // Then
+        assertFalse(scanned);
+        assertEquals(List.of(List.of(1L, 5L)), batches);
+    }
+
+    @Test
+    void testClearKeepsTheContentsViewedSinceTheirWrite() {
+        // Given
+        store.initialize(1L, 0);
+        store.initialize(5L, 0);
+        store.increment(1L);
+        store.increment(5L);
+        server.call("sadd", "hits:dirty:{1}", "9");
+        Map<Long, Long> written = store.getAll(List.of(1L, 5L, 9L));
+        store.increment(5L);
+
+        // When
+        store.clearDirty(List.of(1L, 5L, 9L), written);
+
+        // Then
+        assertEquals(Map.of(1L, 1L, 5L, 1L), written);
+        assertEquals(Set.of("5"), server.members("hits:dirty:{1}"));
+    }
+
+    @Test
+    void testGetAllMapsTheCountsOfEachShard() {
+        // Given
+        store.initialize(1L, 10);
+        store.initialize(2L, 20);
+        store.initialize(6L, 60);
+        store.initialize(7L, 70);
+
+        // When
+        Map<Long, Long> counts = store.getAll(List.of(7L, 1L, 3L, 6L, 2L));
+
+        // Then
+        assertEquals(Map.of(1L, 10L, 2L, 20L, 6L, 60L, 7L, 70L), counts);
+    }
+
+    @Test
+    void testResetZeroesTheCounterAndMarksItDirty() {
+        // Given
+        store.initialize(2L, 40);
+
+        // When
+        store.reset(2L);
+
+        // Then
+        assertEquals(0L, store.get(2L));
+        assertEquals(Set.of("2"), server.members("hits:dirty:{2}"));
+    }
+}
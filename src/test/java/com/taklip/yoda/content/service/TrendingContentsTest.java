@@ -0,0 +1,154 @@
+package com.taklip.yoda.content.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.taklip.yoda.content.config.ContentProperties;
+import com.taklip.yoda.content.mapper.ContentMapper;
+import com.taklip.yoda.content.model.Content;
+import com.taklip.yoda.content.service.TrendingContents.Entry;
+import com.taklip.yoda.content.service.TrendingContents.Window;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingContentsTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+    @Mock
+    private ContentMapper contentMapper;
+
+    @Spy
+    private ContentProperties contentProperties = new ContentProperties();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private TrendingContents trendingContents;
+
+    @BeforeEach
+    void setUp() {
+        contentProperties.getTrending().setRefreshInterval(Duration.ofHours(1));
+        trendingContents.init();
+        when(contentMapper.selectList(any())).thenReturn(List.of(
+                content(1L, 10L, 1, true), content(2L, 20L, 1, true), content(3L, 10L, 2, true),
+                content(4L, 10L, 1, false)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        trendingContents.destroy();
+    }
+
+    @Test
+    void testViewsOutsideTheWindowAreNotCounted() {
+        // Given
+        recordAt(NOW.minus(Duration.ofHours(2)), 1L, 5);
+        recordAt(NOW.minus(Duration.ofMinutes(10)), 2L, 2);
+        recordAt(NOW, 3L, 1);
+
+        // When
+        trendingContents.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+        trendingContents.rank();
+
+        // Then
+        assertEquals(List.of(new Entry(2L, 2, 20L, 1), new Entry(3L, 1, 10L, 2)),
+                trendingContents.getTrending(Window.HOUR, null, null, 10));
+        assertEquals(List.of(1L, 2L, 3L), ids(trendingContents.getTrending(Window.DAY, null, null, 10)));
+    }
+
+    @Test
+    void testRankingsAreFilteredByCategoryAndSite() {
+        // Given
+        recordAt(NOW, 1L, 1);
+        recordAt(NOW, 2L, 2);
+        recordAt(NOW, 3L, 3);
+        recordAt(NOW, 4L, 4);
+
+        // When
+        trendingContents.rank();
+
+        // Then
+        assertEquals(List.of(3L, 2L), ids(trendingContents.getTrending(Window.HOUR, null, null, 2)));
+        assertEquals(List.of(3L, 1L), ids(trendingContents.getTrending(Window.HOUR, 10L, null, 10)));
+        assertEquals(List.of(2L, 1L), ids(trendingContents.getTrending(Window.HOUR, null, 1, 10)));
+        assertEquals(List.of(1L), ids(trendingContents.getTrending(Window.HOUR, 10L, 1, 10)));
+    }
+
+    @Test
+    void testLeastViewedContentsAreDroppedBeyondTheLimit() {
+        // Given
+        contentProperties.getTrending().setMaxTracked(2);
+        recordAt(NOW, 1L, 3);
+        recordAt(NOW, 2L, 1);
+        recordAt(NOW, 3L, 2);
+
+        // When
+        trendingContents.rank();
+
+        // Then
+        assertEquals(List.of(1L, 3L), ids(trendingContents.getTrending(Window.DAY, null, null, 10)));
+        assertEquals(2.0, meterRegistry.get("content.trending.tracked").gauge().value());
+    }
+
+    @Test
+    void testContentsBeyondTheLimitAreAdmittedOnlyWhenViewedMoreThanTheTracked() {
+        // Given
+        contentProperties.getTrending().setMaxTracked(2);
+        recordAt(NOW, 1L, 3);
+        recordAt(NOW, 3L, 2);
+        trendingContents.rank();
+
+        // When
+        for (long id = 10; id < 20; id++) {
+            recordAt(NOW, id, 1);
+        }
+        double trackedAfterSingleViews = meterRegistry.get("content.trending.tracked").gauge().value();
+        recordAt(NOW, 2L, 3);
+        trendingContents.rank();
+
+        // Then
+        assertEquals(2.0, trackedAfterSingleViews);
+        assertEquals(List.of(new Entry(1L, 3, 10L, 1), new Entry(2L, 3, 20L, 1)),
+                trendingContents.getTrending(Window.DAY, null, null, 10));
+    }
+
+    private void recordAt(Instant instant, Long id, int views) {
+        trendingContents.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+        for (int i = 0; i < views; i++) {
+            trendingContents.record(id);
+        }
+    }
+
+    private List<Long> ids(List<Entry> entries) {
+        return entries.stream().map(Entry::id).toList();
+    }
+
+    private Content content(Long id, Long categoryId, Integer siteId, boolean published) {
+        Content content = new Content();
+        content.setId(id);
+        content.setCategoryId(categoryId);
+        content.setSiteId(siteId);
+        content.setPublished(published);
+        return content;
+    }
+}
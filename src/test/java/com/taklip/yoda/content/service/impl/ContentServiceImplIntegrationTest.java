@@ -2,18 +2,42 @@ package com.taklip.yoda.content.service.impl;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
+import com.taklip.yoda.content.dto.ContentCursor;
+import com.taklip.yoda.content.dto.ContentIdPage;
+import com.taklip.yoda.content.service.ContentListQueries;
+
 @SpringBootTest
 @ActiveProfiles("test")
 class ContentServiceImplIntegrationTest {
 
+    // Created after any other test content, so these come first in the lists
+    private static final LocalDateTime CREATED = LocalDateTime.of(2100, 1, 1, 0, 0);
+
     @Autowired
     private ContentServiceImpl contentService;
 
+    @Autowired
+    private ContentListQueries contentListQueries;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM content WHERE id BETWEEN 9001 AND 9005");
+    }
+
     @Test
     void contextLoads() {
         // This test verifies that the Spring context loads successfully
@@ -34,4 +58,32 @@ class ContentServiceImplIntegrationTest {
                   exception.getMessage().contains("database") ||
                   exception.getMessage().contains("Table"));
     }
+
+    @Test
+    void getContentsAfter_WithTiesOnCreateTime_ShouldPageInCursorOrder() {
+        // Given: three contents created together, then two created together a second later
+        insertContent(9001L, CREATED);
+        insertContent(9002L, CREATED);
+        insertContent(9003L, CREATED);
+        insertContent(9004L, CREATED.plusSeconds(1));
+        insertContent(9005L, CREATED.plusSeconds(1));
+        String start = ContentCursor.after(CREATED.plusSeconds(2), Long.MAX_VALUE);
+
+        // When
+        ContentIdPage first = contentListQueries.getContentsAfter(start, 2);
+        ContentIdPage second = contentListQueries.getContentsAfter(first.getNextCursor(), 2);
+        ContentIdPage third = contentListQueries.getContentsAfter(second.getNextCursor(), 2);
+
+        // Then
+        assertEquals(List.of(9005L, 9004L), first.getIds());
+        assertEquals(List.of(9003L, 9002L), second.getIds());
+        assertEquals(9001L, third.getIds().get(0));
+        assertTrue(first.isHasNext());
+        assertEquals(new ContentCursor(CREATED, 9002L), ContentCursor.decode(second.getNextCursor()));
+    }
+
+    private void insertContent(Long id, LocalDateTime createTime) {
+        jdbcTemplate.update("INSERT INTO content (id, title, published, create_time, deleted)"
+                + " VALUES (?, ?, TRUE, ?, 0)", id, "Content " + id, Timestamp.valueOf(createTime));
+    }
 }
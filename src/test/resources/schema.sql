@@ -19,5 +19,9 @@ CREATE TABLE IF NOT EXISTS content (
     update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     create_by VARCHAR(100),
     create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    deleted BOOLEAN DEFAULT FALSE
+    deleted TINYINT DEFAULT 0
 );
+
+-- Order of the content lists, sought by their cursors (production DDL in the README)
+CREATE INDEX IF NOT EXISTS idx_content_create_time_id ON content (create_time, id);
+CREATE INDEX IF NOT EXISTS idx_content_featured_create_time_id ON content (feature_data, create_time, id);